@@ -0,0 +1,37 @@
+package ltd.weiyiyi.requestlogging.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口
+ * 开启GC profiler以输出每次操作的分配字节数（gc.alloc.rate.norm），
+ * 结果以JSON格式写入文件，便于在各版本之间对比
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar ltd.weiyiyi.requestlogging.benchmark.BenchmarkRunner [include-regex] [result-file]
+ * </pre>
+ *
+ * @author weihan
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackageName() + ".*";
+        String resultFile = args.length > 1 ? args[1] : "jmh-result.json";
+        Options options = new OptionsBuilder()
+            .include(include)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(resultFile)
+            .build();
+        new Runner(options).run();
+    }
+}
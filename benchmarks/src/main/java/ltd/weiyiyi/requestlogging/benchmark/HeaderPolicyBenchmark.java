@@ -0,0 +1,129 @@
+package ltd.weiyiyi.requestlogging.benchmark;
+
+import ltd.weiyiyi.requestlogging.infrastructure.compatibility.ServletAdapter;
+import ltd.weiyiyi.requestlogging.infrastructure.header.HeaderPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求头捕获：30余个请求头中捕获全部与只捕获5个的对比
+ *
+ * @author weihan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeaderPolicyBenchmark {
+
+    private ServletAdapter request;
+    private HeaderPolicy captureAll;
+    private HeaderPolicy captureFew;
+
+    @Setup
+    public void setUp() {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(BenchmarkFixtures.headers());
+        for (int i = 0; headers.size() < 32; i++) {
+            headers.put("X-Custom-Header-" + i, "value-" + i);
+        }
+        request = new HeaderMapAdapter(headers);
+        captureAll = new HeaderPolicy(List.of(), List.of("Cookie"), List.of());
+        captureFew = new HeaderPolicy(List.of("Content-Type", "User-Agent", "X-Request-Id", "X-Forwarded-For", "Authorization"),
+            List.of("Cookie"), List.of());
+    }
+
+    @Benchmark
+    public Map<String, String> captureAllHeaders() {
+        return captureAll.capture(request);
+    }
+
+    @Benchmark
+    public Map<String, String> captureFiveHeaders() {
+        return captureFew.capture(request);
+    }
+
+    private static final class HeaderMapAdapter implements ServletAdapter {
+        private final Map<String, String> headers;
+
+        private HeaderMapAdapter(Map<String, String> headers) {
+            this.headers = headers;
+        }
+
+        @Override
+        public String getHeader(String headerName) {
+            return headers.get(headerName);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(headers.keySet());
+        }
+
+        @Override
+        public String getContentType() {
+            return headers.get("Content-Type");
+        }
+
+        @Override
+        public String getRemoteAddr() {
+            return "192.168.1.100";
+        }
+
+        @Override
+        public String getRequestURI() {
+            return "/api/v1/orders/83741/items";
+        }
+
+        @Override
+        public String getMethod() {
+            return "POST";
+        }
+
+        @Override
+        public String getQueryString() {
+            return null;
+        }
+
+        @Override
+        public int getContentLength() {
+            return 0;
+        }
+
+        @Override
+        public byte[] getContentAsByteArray() {
+            return new byte[0];
+        }
+
+        @Override
+        public int getStatus() {
+            return 200;
+        }
+
+        @Override
+        public byte[] getResponseContentAsByteArray() {
+            return new byte[0];
+        }
+
+        @Override
+        public void copyBodyToResponse() {
+        }
+    }
+}
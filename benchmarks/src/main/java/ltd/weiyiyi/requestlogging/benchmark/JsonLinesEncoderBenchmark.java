@@ -0,0 +1,56 @@
+package ltd.weiyiyi.requestlogging.benchmark;
+
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.JsonLinesEncoder;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.LogFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON Lines 与多行文本编码为UTF-8字节的性能对比
+ *
+ * @author weihan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonLinesEncoderBenchmark {
+
+    private JsonLinesEncoder jsonEncoder;
+    private LogFormatter textFormatter;
+    private RequestLog requestLog;
+
+    @Setup
+    public void setUp() {
+        RequestLoggingProperties properties = new RequestLoggingProperties();
+        properties.setEnableColorOutput(false);
+        jsonEncoder = new JsonLinesEncoder();
+        textFormatter = new LogFormatter(properties);
+        requestLog = BenchmarkFixtures.requestLog();
+    }
+
+    @Benchmark
+    public int jsonLine() {
+        return jsonEncoder.encode(LogEventType.REQUEST_COMPLETE, requestLog).length();
+    }
+
+    @Benchmark
+    public int textBlock() {
+        return textFormatter.format(LogEventType.REQUEST_COMPLETE, requestLog).length();
+    }
+}
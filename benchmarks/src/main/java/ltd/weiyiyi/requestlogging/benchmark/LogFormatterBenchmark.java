@@ -0,0 +1,76 @@
+package ltd.weiyiyi.requestlogging.benchmark;
+
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.LogFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LogFormatter} 格式化性能基准
+ *
+ * @author weihan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogFormatterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean logHeaders;
+
+    @Param({"true", "false"})
+    public boolean logBody;
+
+    @Param({"true", "false"})
+    public boolean prettyPrint;
+
+    @Param({"true", "false"})
+    public boolean colorOutput;
+
+    private LogFormatter formatter;
+    private RequestLog requestLog;
+    private RequestLog errorLog;
+
+    @Setup
+    public void setUp() {
+        RequestLoggingProperties properties = new RequestLoggingProperties();
+        properties.setLogHeaders(logHeaders);
+        properties.setLogRequestBody(logBody);
+        properties.setLogResponse(logBody);
+        properties.setPrettyPrint(prettyPrint);
+        properties.setEnableColorOutput(colorOutput);
+        formatter = new LogFormatter(properties);
+        requestLog = BenchmarkFixtures.requestLog();
+        errorLog = BenchmarkFixtures.errorLog();
+    }
+
+    @Benchmark
+    public String requestStart() {
+        return formatter.logRequestStart(requestLog);
+    }
+
+    @Benchmark
+    public String requestComplete() {
+        return formatter.logRequestComplete(requestLog);
+    }
+
+    @Benchmark
+    public String requestError() {
+        return formatter.logRequestError(errorLog);
+    }
+}
@@ -0,0 +1,83 @@
+package ltd.weiyiyi.requestlogging.benchmark;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import ltd.weiyiyi.requestlogging.infrastructure.redaction.ParameterRedactor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON 请求体脱敏的单次耗时：流式遍历与解析为对象树后修改再序列化对比
+ *
+ * @author weihan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParameterRedactorBenchmark {
+    private static final List<String> NAMES = List.of("password", "token");
+
+    private ParameterRedactor redactor;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        redactor = new ParameterRedactor(NAMES);
+        StringBuilder json = new StringBuilder("{\"username\":\"alice\",\"password\":\"p@ssw0rd\",\"items\":[");
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"sku\":\"SKU-").append(i).append("\",\"quantity\":").append(i + 1)
+                    .append(",\"price\":").append(9.99 + i).append(",\"meta\":{\"token\":\"abc").append(i).append("\"}}");
+        }
+        json.append("],\"remark\":\"deliver before noon\"}");
+        body = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String streaming() {
+        return redactor.redactJson(body, 500, false);
+    }
+
+    @Benchmark
+    public String objectTree() {
+        Object tree = JSON.parse(body);
+        redact(tree);
+        String json = JSON.toJSONString(tree);
+        return json.length() > 500 ? json.substring(0, 500) + "..." : json;
+    }
+
+    private static void redact(Object node) {
+        if (node instanceof JSONObject) {
+            JSONObject object = (JSONObject) node;
+            for (String key : object.keySet()) {
+                if (NAMES.contains(key)) {
+                    object.put(key, ParameterRedactor.MASK);
+                } else {
+                    redact(object.get(key));
+                }
+            }
+        } else if (node instanceof JSONArray) {
+            for (Object element : (JSONArray) node) {
+                redact(element);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ltd.weiyiyi.requestlogging.benchmark;
+
+import ltd.weiyiyi.requestlogging.infrastructure.route.PathRuleMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路径规则匹配的单次耗时：编译后的前缀树与逐条 AntPathMatcher 匹配对比
+ *
+ * @author weihan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathRuleMatcherBenchmark {
+
+    @Param({"20", "300"})
+    private int ruleCount;
+
+    @Param({"/api/v1/orders/83741/items", "/static/js/app.min.js", "/actuator/health"})
+    private String path;
+
+    private PathRuleMatcher compiled;
+    private List<String> patterns;
+    private AntPathMatcher antPathMatcher;
+
+    @Setup
+    public void setUp() {
+        List<String> rules = new ArrayList<>();
+        rules.add("/actuator/**");
+        rules.add("/swagger*/**");
+        rules.add("/**/*.js");
+        for (int i = 0; rules.size() < ruleCount; i++) {
+            rules.add("/api/v" + (i % 3) + "/service" + i + "/**");
+            rules.add("GET /internal/module" + i + "/{id}/status");
+        }
+        compiled = PathRuleMatcher.compile(rules);
+        patterns = new ArrayList<>();
+        for (String rule : rules) {
+            patterns.add(rule.substring(rule.indexOf('/')));
+        }
+        antPathMatcher = new AntPathMatcher();
+    }
+
+    @Benchmark
+    public boolean compiledTrie() {
+        return compiled.matches("GET", path);
+    }
+
+    @Benchmark
+    public boolean antPathMatcherLoop() {
+        for (String pattern : patterns) {
+            if (antPathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,116 @@
+package ltd.weiyiyi.requestlogging.benchmark;
+
+import ltd.weiyiyi.requestlogging.application.service.RequestLoggingService;
+import ltd.weiyiyi.requestlogging.infrastructure.compatibility.ServletFilterAdapter;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RequestLoggingService} 完整处理路径的性能基准
+ * 使用 Mock 请求/响应对象，控制台输出关闭，文件输出写入临时目录
+ *
+ * @author weihan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestLoggingServiceBenchmark {
+
+    @Param({"false", "true"})
+    public boolean fileLogging;
+
+    @Param({"false", "true"})
+    public boolean asyncLogging;
+
+    private Path logDir;
+    private RequestLoggingService service;
+    private ContentCachingRequestWrapper request;
+    private ContentCachingResponseWrapper response;
+    private ServletFilterAdapter exchange;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logDir = Files.createTempDirectory("request-logging-bench");
+        RequestLoggingProperties properties = new RequestLoggingProperties();
+        properties.setEnableConsoleLogging(false);
+        properties.setEnableFileLogging(fileLogging);
+        properties.setAsyncLogging(asyncLogging);
+        properties.setAsyncOverflowPolicy("block");
+        properties.setLogFileBaseDir(logDir.toString());
+        service = new RequestLoggingService(properties);
+
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("POST", "/api/v1/orders/83741/items");
+        mockRequest.setQueryString("id=123&type=abc&page=2");
+        mockRequest.setRemoteAddr("192.168.1.100");
+        mockRequest.setContentType("application/json");
+        mockRequest.setContent(BenchmarkFixtures.REQUEST_BODY.getBytes(StandardCharsets.UTF_8));
+        for (Map.Entry<String, String> header : BenchmarkFixtures.headers().entrySet()) {
+            mockRequest.addHeader(header.getKey(), header.getValue());
+        }
+        request = new ContentCachingRequestWrapper(mockRequest);
+        // 读取一次请求体，使其进入缓存
+        request.getInputStream().readAllBytes();
+
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+        response = new ContentCachingResponseWrapper(mockResponse);
+        response.setStatus(200);
+        response.setContentType("application/json");
+        response.getOutputStream().write(BenchmarkFixtures.RESPONSE_BODY.getBytes(StandardCharsets.UTF_8));
+        exchange = new ServletFilterAdapter(request, response);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        service.shutdown();
+        FileSystemUtils.deleteRecursively(logDir);
+    }
+
+    @Benchmark
+    public void logRequest() {
+        service.logRequest(request);
+        service.clearThreadLocals();
+    }
+
+    @Benchmark
+    public void logRequestAndResponse() {
+        service.logRequest(request);
+        service.logResponse(request, response);
+        service.clearThreadLocals();
+    }
+
+    /**
+     * 交换日志模式：同样的请求/响应只输出一条日志
+     */
+    @Benchmark
+    public void logExchange() {
+        service.completeExchange(service.startExchange(exchange), exchange, null);
+        service.clearThreadLocals();
+    }
+}
@@ -1,24 +1,37 @@
 package ltd.weiyiyi.requestlogging.application.service;
 
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestExchange;
 import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.async.AsyncLogDispatcher;
+import ltd.weiyiyi.requestlogging.infrastructure.compatibility.ServletAdapter;
+import ltd.weiyiyi.requestlogging.infrastructure.compatibility.ServletFilterAdapter;
 import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
 import ltd.weiyiyi.requestlogging.infrastructure.processor.ConsoleLogProcessor;
 import ltd.weiyiyi.requestlogging.infrastructure.logfile.FileLogProcessor;
 import ltd.weiyiyi.requestlogging.infrastructure.formatter.LogFormatter;
+import ltd.weiyiyi.requestlogging.infrastructure.header.HeaderPolicy;
+import ltd.weiyiyi.requestlogging.infrastructure.metrics.LatencyRegistry;
+import ltd.weiyiyi.requestlogging.infrastructure.redaction.ParameterRedactor;
+import ltd.weiyiyi.requestlogging.infrastructure.route.RouteResolver;
+import ltd.weiyiyi.requestlogging.infrastructure.sampling.RequestSampler;
+import ltd.weiyiyi.requestlogging.infrastructure.sampling.TailSamplingPolicy;
+import ltd.weiyiyi.requestlogging.infrastructure.trace.TraceIdResolver;
 import ltd.weiyiyi.requestlogging.infrastructure.spi.RequestLogProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.web.util.ContentCachingRequestWrapper;
 import org.springframework.web.util.ContentCachingResponseWrapper;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.ServiceLoader;
-import java.util.UUID;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 
@@ -32,11 +45,36 @@ public class RequestLoggingService {
     private final LogFormatter logFormatter;
     private final List<RequestLogProcessor> logProcessors = new ArrayList<>();
     private final ThreadLocal<String> traceId = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> sampled = new ThreadLocal<>();
+    /**
+     * 尾部采样模式下缓存的请求开始日志
+     */
+    private final ThreadLocal<RequestExchange> pendingStart = new ThreadLocal<>();
+    private final AsyncLogDispatcher asyncDispatcher;
+    private final LatencyRegistry latencyRegistry;
+    private final RouteResolver routeResolver;
+    private final RequestSampler sampler;
+    private final TailSamplingPolicy tailSamplingPolicy;
+    private final TraceIdResolver traceIdResolver;
+    private final HeaderPolicy headerPolicy;
+    private final ParameterRedactor parameterRedactor;
 
     public RequestLoggingService(RequestLoggingProperties properties) {
         this.properties = properties;
         this.logFormatter = new LogFormatter(properties);
+        this.routeResolver = new RouteResolver(properties.getRouteCacheSize());
+        this.sampler = new RequestSampler(properties);
+        this.tailSamplingPolicy = properties.isTailSampling() ? new TailSamplingPolicy(properties) : null;
+        this.traceIdResolver = new TraceIdResolver(properties.getTraceIdHeader(), properties.isEnableTraceId());
+        this.headerPolicy = new HeaderPolicy(properties);
+        this.parameterRedactor = new ParameterRedactor(properties.getExcludeParameters() != null
+                ? Arrays.asList(properties.getExcludeParameters()) : null);
         initLogProcessors();
+        this.asyncDispatcher = properties.isAsyncLogging() ? new AsyncLogDispatcher(logProcessors, properties) : null;
+        this.latencyRegistry = properties.isLatencyMetricsEnabled()
+                ? new LatencyRegistry(properties.getLatencyMaxEndpoints(),
+                        DurationStyle.detectAndParse(properties.getLatencyWindow()).toMillis())
+                : null;
     }
 
     private void initLogProcessors() {
@@ -61,12 +99,23 @@ public class RequestLoggingService {
      * @param request HTTP请求对象
      */
     public void logRequest(ContentCachingRequestWrapper request) {
-        if (!shouldLog()) {
+        logRequest(adapt(request, null));
+    }
+
+    /**
+     * 记录请求日志
+     *
+     * @param request 请求适配器
+     */
+    public void logRequest(ServletAdapter request) {
+        boolean requestSampled = isSampled(request);
+        if (!properties.isEnabled() || !requestSampled && tailSamplingPolicy == null) {
             return;
         }
 
         try {
-            String currentTraceId = generateTraceId();
+            long startNanos = System.nanoTime();
+            String currentTraceId = getTraceId(request);
             if (properties.isEnableMdcTrace()) {
                 MDC.put(properties.getTraceIdKey(), currentTraceId);
             }
@@ -79,7 +128,8 @@ public class RequestLoggingService {
                 // 获取通用请求信息
                 log.setMethod(request.getMethod());
                 log.setUri(request.getRequestURI());
-                log.setQueryString(request.getQueryString());
+                log.setRoute(routeResolver.resolve(request));
+                log.setQueryString(parameterRedactor.redactQuery(request.getQueryString()));
                 log.setClientIp(getClientIp(request));
 
                 // 记录请求头
@@ -89,18 +139,16 @@ public class RequestLoggingService {
 
                 // 记录请求体
                 if (properties.isLogRequestBody()) {
-                    byte[] content = request.getContentAsByteArray();
-                    if (content != null && content.length > 0) {
-                        String requestBody = new String(content);
-                        if (requestBody.length() > properties.getRequestBodyMaxLength()) {
-                            requestBody = requestBody.substring(0, properties.getRequestBodyMaxLength()) + "...";
-                        }
-                        log.setRequestBody(requestBody);
-                    }
+                    log.setRequestBody(getRequestBody(request));
                 }
             }
-            
-            logProcessors.forEach(processor -> processor.processRequestStart(log));
+
+            if (tailSamplingPolicy != null) {
+                // 等请求完成后再决定是否输出
+                pendingStart.set(new RequestExchange(log, startNanos, requestSampled));
+                return;
+            }
+            dispatch(LogEventType.REQUEST_START, log);
         } catch (Exception e) {
             logger.error("Error logging request", e);
         }
@@ -113,7 +161,18 @@ public class RequestLoggingService {
      * @param response HTTP响应对象
      */
     public void logResponse(ContentCachingRequestWrapper request, ContentCachingResponseWrapper response) {
-        if (!shouldLog()) {
+        logResponse(adapt(request, response));
+    }
+
+    /**
+     * 记录响应日志
+     *
+     * @param exchange 请求/响应适配器
+     */
+    public void logResponse(ServletAdapter exchange) {
+        // 5xx 不受采样影响
+        if (!properties.isEnabled() || tailSamplingPolicy == null && !isSampled(exchange)
+                && (exchange == null || exchange.getStatus() < 500)) {
             return;
         }
 
@@ -123,27 +182,23 @@ public class RequestLoggingService {
             log.setResponseTime(LocalDateTime.now());
             log.setTraceId(traceId.get());
 
-            if (request != null) {
-                log.setMethod(request.getMethod());
-                log.setUri(request.getRequestURI());
-                log.setQueryString(request.getQueryString());
-                log.setClientIp(getClientIp(request));
+            if (exchange != null) {
+                log.setMethod(exchange.getMethod());
+                log.setUri(exchange.getRequestURI());
+                log.setRoute(routeResolver.resolve(exchange));
+                log.setQueryString(parameterRedactor.redactQuery(exchange.getQueryString()));
+                log.setClientIp(getClientIp(exchange));
             }
 
-            if (response != null && properties.isLogResponse()) {
-                log.setStatus(response.getStatus());
+            if (exchange != null && properties.isLogResponse()) {
+                log.setStatus(exchange.getStatus());
+                log.setResponseBody(getResponseBody(exchange));
+            }
 
-                byte[] content = response.getContentAsByteArray();
-                if (content != null && content.length > 0) {
-                    String responseBody = new String(content);
-                    if (responseBody.length() > properties.getResponseMaxLength()) {
-                        responseBody = responseBody.substring(0, properties.getResponseMaxLength()) + "...";
-                    }
-                    log.setResponseBody(responseBody);
-                }
+            if (tailSamplingPolicy != null && !keepTail(exchange, log, false)) {
+                return;
             }
-            
-            logProcessors.forEach(processor -> processor.processRequestComplete(log));
+            dispatch(LogEventType.REQUEST_COMPLETE, log);
         } catch (Exception e) {
             logger.error("Error logging response", e);
         }
@@ -157,7 +212,18 @@ public class RequestLoggingService {
      * @param exception 异常对象
      */
     public void logError(ContentCachingRequestWrapper request, ContentCachingResponseWrapper response, Exception exception) {
-        if (!shouldLog()) {
+        logError(adapt(request, response), exception);
+    }
+
+    /**
+     * 记录错误日志
+     *
+     * @param exchange 请求/响应适配器
+     * @param exception 异常对象
+     */
+    public void logError(ServletAdapter exchange, Exception exception) {
+        // 错误日志不受采样影响
+        if (!properties.isEnabled()) {
             return;
         }
 
@@ -167,15 +233,13 @@ public class RequestLoggingService {
             log.setResponseTime(LocalDateTime.now());
             log.setTraceId(traceId.get());
 
-            if (request != null) {
-                log.setMethod(request.getMethod());
-                log.setUri(request.getRequestURI());
-                log.setQueryString(request.getQueryString());
-                log.setClientIp(getClientIp(request));
-            }
-
-            if (response != null) {
-                log.setStatus(response.getStatus());
+            if (exchange != null) {
+                log.setMethod(exchange.getMethod());
+                log.setUri(exchange.getRequestURI());
+                log.setRoute(routeResolver.resolve(exchange));
+                log.setQueryString(parameterRedactor.redactQuery(exchange.getQueryString()));
+                log.setClientIp(getClientIp(exchange));
+                log.setStatus(exchange.getStatus());
             }
 
             if (exception != null) {
@@ -188,26 +252,255 @@ public class RequestLoggingService {
                 log.setStackTrace(sw.toString());
             }
 
-            logProcessors.forEach(processor -> processor.processRequestError(log));
+            if (tailSamplingPolicy != null) {
+                keepTail(exchange, log, true);
+            }
+            dispatch(LogEventType.REQUEST_ERROR, log);
         } catch (Exception e) {
             logger.error("Error logging error", e);
         }
     }
 
-    private boolean shouldLog() {
-        return properties.isEnabled() && Math.random() < properties.getSamplingRate();
+    /**
+     * 是否启用交换日志模式
+     *
+     * @return 是否每个请求只输出一条日志
+     */
+    public boolean isExchangeLogging() {
+        return properties.isExchangeLogging();
+    }
+
+    /**
+     * 是否启用尾部采样
+     *
+     * @return 是否在请求完成后才决定是否输出
+     */
+    public boolean isTailSampling() {
+        return tailSamplingPolicy != null;
     }
 
-    private String generateTraceId() {
+    /**
+     * 开始一次请求交换，此时只记录请求行、请求头等在请求开始时即可确定的信息
+     * 未被采样的请求也会创建上下文，以便出错或返回5xx时仍能输出，但不记录请求头
+     *
+     * @param request 请求适配器
+     * @return 交换上下文，未启用日志时返回null
+     */
+    public RequestExchange startExchange(ServletAdapter request) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+
+        try {
+            long startNanos = System.nanoTime();
+            boolean requestSampled = isSampled(request);
+            String currentTraceId = getTraceId(request);
+            if (requestSampled && properties.isEnableMdcTrace()) {
+                MDC.put(properties.getTraceIdKey(), currentTraceId);
+            }
+
+            RequestLog log = new RequestLog();
+            log.setRequestTime(LocalDateTime.now());
+            log.setTraceId(currentTraceId);
+            log.setMethod(request.getMethod());
+            log.setUri(request.getRequestURI());
+            log.setRoute(routeResolver.resolve(request));
+            log.setQueryString(parameterRedactor.redactQuery(request.getQueryString()));
+            log.setClientIp(getClientIp(request));
+            if (requestSampled && properties.isLogHeaders()) {
+                log.setHeaders(getHeaders(request));
+            }
+            return new RequestExchange(log, startNanos, requestSampled);
+        } catch (Exception e) {
+            logger.error("Error starting request exchange", e);
+            return null;
+        }
+    }
+
+    /**
+     * 完成请求交换并输出一条日志，此时应用已读取请求体、响应已写出
+     *
+     * @param requestExchange 交换上下文，为null时忽略
+     * @param exchange 请求/响应适配器
+     * @param exception 处理过程中抛出的异常，可以为null
+     */
+    public void completeExchange(RequestExchange requestExchange, ServletAdapter exchange, Exception exception) {
+        if (requestExchange == null) {
+            return;
+        }
+
+        try {
+            int status = exchange.getStatus();
+            // 异常仍在向上抛出，容器随后会返回500
+            if (exception != null && status < 400) {
+                status = 500;
+            }
+            long durationMillis = (System.nanoTime() - requestExchange.getStartNanos()) / 1_000_000;
+            // 错误与5xx不受采样影响，尾部采样时还会保留慢请求
+            boolean keep = tailSamplingPolicy != null
+                    ? tailSamplingPolicy.shouldKeep(exchange.getRequestURI(), status, exception != null,
+                            durationMillis, requestExchange.isSampled())
+                    : requestExchange.isSampled() || exception != null || status >= 500;
+            if (!keep) {
+                return;
+            }
+
+            RequestLog log = requestExchange.getLog();
+            log.setProcessingTime(durationMillis);
+            log.setResponseTime(LocalDateTime.now());
+            // 处理器匹配完成后才能拿到路径模式
+            log.setRoute(routeResolver.resolve(exchange));
+            if (!requestExchange.isSampled() && properties.isLogHeaders()) {
+                log.setHeaders(getHeaders(exchange));
+            }
+            if (properties.isLogRequestBody()) {
+                log.setRequestBody(getRequestBody(exchange));
+            }
+            log.setStatus(status);
+            if (properties.isLogResponse()) {
+                log.setResponseBody(getResponseBody(exchange));
+            }
+
+            if (exception != null) {
+                log.setException(exception.getClass().getName());
+                log.setExceptionMessage(exception.getMessage());
+                StringWriter sw = new StringWriter();
+                exception.printStackTrace(new PrintWriter(sw));
+                log.setStackTrace(sw.toString());
+            }
+
+            dispatch(LogEventType.EXCHANGE, log);
+        } catch (Exception e) {
+            logger.error("Error logging request exchange", e);
+        }
+    }
+
+    /**
+     * 记录请求耗时到延迟直方图
+     * 路由由 {@link RouteResolver} 解析
+     *
+     * @param exchange 请求/响应适配器
+     * @param durationNanos 耗时（纳秒）
+     */
+    public void recordLatency(ServletAdapter exchange, long durationNanos) {
+        if (latencyRegistry == null || exchange == null) {
+            return;
+        }
+        try {
+            latencyRegistry.record(exchange.getMethod(), routeResolver.resolve(exchange), durationNanos);
+        } catch (Exception e) {
+            logger.error("Error recording request latency", e);
+        }
+    }
+
+    /**
+     * 尾部采样：请求完成时决定是否保留，保留时先输出缓存的请求开始日志
+     *
+     * @param exchange 请求/响应适配器
+     * @param log 结束或错误日志，会补上耗时
+     * @param failed 是否抛出异常
+     * @return 是否保留
+     */
+    private boolean keepTail(ServletAdapter exchange, RequestLog log, boolean failed) {
+        RequestExchange start = pendingStart.get();
+        pendingStart.remove();
+        boolean requestSampled = start != null ? start.isSampled() : isSampled(exchange);
+        if (start != null) {
+            log.setProcessingTime((System.nanoTime() - start.getStartNanos()) / 1_000_000);
+        }
+        int status = exchange != null ? exchange.getStatus() : 0;
+        if (!tailSamplingPolicy.shouldKeep(log.getUri(), status, failed, log.getProcessingTime(), requestSampled)) {
+            return false;
+        }
+        if (start != null) {
+            dispatch(LogEventType.REQUEST_START, start.getLog());
+        }
+        return true;
+    }
+
+    private String getRequestBody(ServletAdapter request) {
+        byte[] content = request.getContentAsByteArray();
+        if (content == null || content.length == 0) {
+            return null;
+        }
+        if (!parameterRedactor.isEmpty()) {
+            String redacted = parameterRedactor.redactBody(content, request.getContentType(),
+                    properties.getRequestBodyMaxLength(), request.isContentTruncated());
+            if (redacted != null) {
+                return redacted;
+            }
+        }
+        String requestBody = new String(content);
+        if (requestBody.length() > properties.getRequestBodyMaxLength()) {
+            return requestBody.substring(0, properties.getRequestBodyMaxLength()) + "...";
+        }
+        return request.isContentTruncated() ? requestBody + "..." : requestBody;
+    }
+
+    private String getResponseBody(ServletAdapter exchange) {
+        byte[] content = exchange.getResponseContentAsByteArray();
+        if (content == null || content.length == 0) {
+            return null;
+        }
+        if (!parameterRedactor.isEmpty()) {
+            // 响应没有内容类型可用，按内容识别 JSON
+            String redacted = parameterRedactor.redactBody(content, null,
+                    properties.getResponseMaxLength(), exchange.isResponseContentTruncated());
+            if (redacted != null) {
+                return redacted;
+            }
+        }
+        String responseBody = new String(content);
+        if (responseBody.length() > properties.getResponseMaxLength()) {
+            return responseBody.substring(0, properties.getResponseMaxLength()) + "...";
+        }
+        return exchange.isResponseContentTruncated() ? responseBody + "..." : responseBody;
+    }
+
+    private void dispatch(LogEventType type, RequestLog log) {
+        if (asyncDispatcher != null) {
+            asyncDispatcher.publish(type, log);
+            return;
+        }
+        logProcessors.forEach(processor -> processor.process(type, log));
+    }
+
+    /**
+     * 获取当前请求的采样决定，同一请求只决定一次，结果保存到 {@link #clearThreadLocals()} 为止
+     *
+     * @param request 请求适配器
+     * @return 是否采样
+     */
+    public boolean isSampled(ServletAdapter request) {
+        Boolean decision = sampled.get();
+        if (decision == null) {
+            decision = properties.isEnabled()
+                    && sampler.isSampled(getTraceId(request), request != null ? request.getRequestURI() : null);
+            sampled.set(decision);
+        }
+        return decision;
+    }
+
+    /**
+     * 获取当前请求的追踪ID，同一请求内只解析一次
+     *
+     * @param request 请求适配器，可以为null
+     * @return 追踪ID
+     */
+    public String getTraceId(ServletAdapter request) {
         String currentTraceId = traceId.get();
         if (currentTraceId == null) {
-            currentTraceId = UUID.randomUUID().toString();
+            currentTraceId = traceIdResolver.resolve(request);
             traceId.set(currentTraceId);
         }
         return currentTraceId;
     }
 
-    private String getClientIp(ContentCachingRequestWrapper request) {
+    private static ServletAdapter adapt(ContentCachingRequestWrapper request, ContentCachingResponseWrapper response) {
+        return request != null ? new ServletFilterAdapter(request, response) : null;
+    }
+
+    private String getClientIp(ServletAdapter request) {
         String ip = request.getHeader("X-Forwarded-For");
         if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
             ip = request.getHeader("Proxy-Client-IP");
@@ -227,14 +520,8 @@ public class RequestLoggingService {
         return ip;
     }
 
-    private java.util.Map<String, String> getHeaders(ContentCachingRequestWrapper request) {
-        java.util.Map<String, String> headers = new java.util.HashMap<>();
-        java.util.Enumeration<String> headerNames = request.getHeaderNames();
-        while (headerNames.hasMoreElements()) {
-            String headerName = headerNames.nextElement();
-            headers.put(headerName, request.getHeader(headerName));
-        }
-        return headers;
+    private java.util.Map<String, String> getHeaders(ServletAdapter request) {
+        return headerPolicy.capture(request);
     }
 
     /**
@@ -242,8 +529,54 @@ public class RequestLoggingService {
      */
     public void clearThreadLocals() {
         traceId.remove();
+        sampled.remove();
+        pendingStart.remove();
         if (properties.isEnableMdcTrace()) {
             MDC.remove(properties.getTraceIdKey());
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 获取配置
+     *
+     * @return 请求日志配置
+     */
+    public RequestLoggingProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * 获取接口延迟统计
+     *
+     * @return 未启用延迟统计时返回null
+     */
+    public LatencyRegistry getLatencyRegistry() {
+        return latencyRegistry;
+    }
+
+    /**
+     * 获取异步日志分发器
+     *
+     * @return 未启用异步日志时返回null
+     */
+    public AsyncLogDispatcher getAsyncDispatcher() {
+        return asyncDispatcher;
+    }
+
+    /**
+     * 关闭服务，等待异步缓冲区中的日志处理完毕并关闭各处理器
+     * 作为Spring Bean时会被自动推断为销毁方法
+     */
+    public void shutdown() {
+        if (asyncDispatcher != null) {
+            asyncDispatcher.shutdown();
+        }
+        for (RequestLogProcessor processor : logProcessors) {
+            try {
+                processor.close();
+            } catch (Exception e) {
+                logger.warn("Error closing log processor: {}", processor.getClass().getName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ltd.weiyiyi.requestlogging.domain.model;
+
+/**
+ * 日志事件类型
+ *
+ * @author weihan
+ */
+public enum LogEventType {
+    /**
+     * 请求开始
+     */
+    REQUEST_START,
+
+    /**
+     * 请求完成
+     */
+    REQUEST_COMPLETE,
+
+    /**
+     * 请求错误
+     */
+    REQUEST_ERROR,
+
+    /**
+     * 请求交换：请求完成时输出的包含请求与响应信息的单条记录
+     */
+    EXCHANGE
+}
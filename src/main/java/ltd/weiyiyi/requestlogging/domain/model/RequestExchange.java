@@ -0,0 +1,41 @@
+package ltd.weiyiyi.requestlogging.domain.model;
+
+/**
+ * 请求交换上下文
+ * 在请求开始时创建，随请求传递到完成时补全响应信息，最终作为一条日志输出
+ *
+ * @author weihan
+ */
+public class RequestExchange {
+    private final RequestLog log;
+    private final long startNanos;
+    private final boolean sampled;
+
+    public RequestExchange(RequestLog log, long startNanos) {
+        this(log, startNanos, true);
+    }
+
+    public RequestExchange(RequestLog log, long startNanos, boolean sampled) {
+        this.log = log;
+        this.startNanos = startNanos;
+        this.sampled = sampled;
+    }
+
+    public RequestLog getLog() {
+        return log;
+    }
+
+    /**
+     * 请求开始时的 {@link System#nanoTime()}
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * 是否被采样，未被采样的请求只在出错或返回5xx时输出
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+}
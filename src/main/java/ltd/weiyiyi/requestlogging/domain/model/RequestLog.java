@@ -9,6 +9,10 @@ import java.util.Map;
 public class RequestLog {
     private String traceId;
     private String uri;
+    /**
+     * 归一化后的路由模板，例如 /orders/{id}/items/{id}
+     */
+    private String route;
     private String method;
     private String queryString;
     private String clientIp;
@@ -39,6 +43,14 @@ public class RequestLog {
         this.uri = uri;
     }
 
+    public String getRoute() {
+        return route;
+    }
+
+    public void setRoute(String route) {
+        this.route = route;
+    }
+
     public String getMethod() {
         return method;
     }
@@ -0,0 +1,223 @@
+package ltd.weiyiyi.requestlogging.infrastructure.async;
+
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.RequestLogProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 异步日志分发器
+ * 请求线程只负责把日志事件写入环形缓冲区，由专用消费线程调用各个 {@link RequestLogProcessor}，
+ * 使文件和控制台I/O不再占用请求线程。每个消费线程拥有独立的缓冲区，生产者按线程ID选择缓冲区，
+ * 因此同一请求线程产生的事件保持顺序
+ *
+ * @author weihan
+ */
+public class AsyncLogDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncLogDispatcher.class);
+    private static final int DRAIN_BATCH_SIZE = 256;
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    private final List<RequestLogProcessor> processors;
+    private final OverflowPolicy overflowPolicy;
+    private final Shard[] shards;
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private volatile boolean running = true;
+
+    public AsyncLogDispatcher(List<RequestLogProcessor> processors, RequestLoggingProperties properties) {
+        this.processors = processors;
+        this.overflowPolicy = OverflowPolicy.of(properties.getAsyncOverflowPolicy());
+        int consumers = Math.max(1, properties.getAsyncConsumerThreads());
+        int capacityPerShard = Math.max(2, properties.getAsyncRingBufferSize() / consumers);
+        this.shards = new Shard[consumers];
+        for (int i = 0; i < consumers; i++) {
+            shards[i] = new Shard(i, capacityPerShard, WaitStrategy.of(properties.getAsyncWaitStrategy()));
+            shards[i].thread.start();
+        }
+        logger.info("Async request logging started: consumers={}, capacity={}, waitStrategy={}, overflowPolicy={}",
+            consumers, shards[0].ringBuffer.capacity() * consumers, properties.getAsyncWaitStrategy(), overflowPolicy);
+    }
+
+    /**
+     * 发布日志事件
+     *
+     * @param type 事件类型
+     * @param log 请求日志对象，发布后调用方不应再修改
+     */
+    public void publish(LogEventType type, RequestLog log) {
+        if (!running) {
+            // 已关闭时同步处理，避免丢失关闭过程中的日志
+            deliver(new LogEvent(type, log));
+            return;
+        }
+
+        Shard shard = shards.length == 1 ? shards[0]
+            : shards[(int) (Thread.currentThread().getId() % shards.length)];
+        LogEvent event = new LogEvent(type, log);
+        if (!shard.ringBuffer.offer(event) && !handleOverflow(shard, event)) {
+            droppedCount.increment();
+            return;
+        }
+        publishedCount.increment();
+        if (!running) {
+            // 写入期间开始关闭时，消费线程最后一次清空可能已经结束，由调用线程处理剩余的日志
+            shard.drainRemaining();
+            return;
+        }
+        shard.waitStrategy.signal();
+    }
+
+    /**
+     * 处理缓冲区已满的情况
+     *
+     * @return 日志已写入缓冲区或已同步处理时返回true，被丢弃时返回false
+     */
+    private boolean handleOverflow(Shard shard, LogEvent event) {
+        switch (overflowPolicy) {
+            case DROP_NEWEST:
+                return false;
+            case DROP_OLDEST:
+                while (!shard.ringBuffer.offer(event)) {
+                    if (shard.ringBuffer.poll() != null) {
+                        droppedCount.increment();
+                    }
+                }
+                return true;
+            case BLOCK:
+            default:
+                while (!shard.ringBuffer.offer(event)) {
+                    if (!running) {
+                        // 已关闭时消费线程不再处理缓冲区，同步处理而不是丢弃
+                        deliver(event);
+                        return true;
+                    }
+                    shard.waitStrategy.signal();
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+                return true;
+        }
+    }
+
+    private void deliver(LogEvent event) {
+        for (RequestLogProcessor processor : processors) {
+            try {
+                processor.process(event.type, event.log);
+            } catch (Exception e) {
+                logger.error("Error processing {} log asynchronously", event.type, e);
+            }
+        }
+    }
+
+    /**
+     * 停止消费线程，等待缓冲区中剩余的日志处理完毕
+     */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MILLIS);
+        for (Shard shard : shards) {
+            shard.waitStrategy.signal();
+            try {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                shard.thread.join(Math.max(1, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        logger.info("Async request logging stopped: published={}, dropped={}", getPublishedCount(), getDroppedCount());
+    }
+
+    /**
+     * @return 已发布到缓冲区的日志数量
+     */
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    /**
+     * @return 因缓冲区已满被丢弃的日志数量
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * @return 缓冲区中等待处理的日志数量
+     */
+    public int getPendingCount() {
+        int pending = 0;
+        for (Shard shard : shards) {
+            pending += shard.ringBuffer.size();
+        }
+        return pending;
+    }
+
+    private static final class LogEvent {
+        private final LogEventType type;
+        private final RequestLog log;
+
+        private LogEvent(LogEventType type, RequestLog log) {
+            this.type = type;
+            this.log = log;
+        }
+    }
+
+    private final class Shard implements Runnable {
+        private final MpscRingBuffer<LogEvent> ringBuffer;
+        private final WaitStrategy waitStrategy;
+        private final Thread thread;
+        private final BooleanSupplier hasWork;
+
+        private Shard(int index, int capacity, WaitStrategy waitStrategy) {
+            this.ringBuffer = new MpscRingBuffer<>(capacity);
+            this.waitStrategy = waitStrategy;
+            this.hasWork = () -> !ringBuffer.isEmpty() || !running;
+            this.thread = new Thread(this, "request-logging-async-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int idleCount = 0;
+            while (running) {
+                if (ringBuffer.drain(AsyncLogDispatcher.this::deliver, DRAIN_BATCH_SIZE) > 0) {
+                    idleCount = 0;
+                    continue;
+                }
+                try {
+                    waitStrategy.idle(idleCount, hasWork);
+                    if (idleCount < Integer.MAX_VALUE) {
+                        idleCount++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            // 处理关闭前剩余的日志
+            drainRemaining();
+        }
+
+        /**
+         * 清空缓冲区，出队使用CAS，可以与消费线程同时调用
+         */
+        private void drainRemaining() {
+            while (ringBuffer.drain(AsyncLogDispatcher.this::deliver, DRAIN_BATCH_SIZE) > 0) {
+                // continue draining
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ltd.weiyiyi.requestlogging.infrastructure.async;
+
+/**
+ * 异步缓冲区已满时的处理策略
+ *
+ * @author weihan
+ */
+public enum OverflowPolicy {
+    /**
+     * 阻塞生产者直到有空位
+     */
+    BLOCK,
+
+    /**
+     * 丢弃当前写入的日志
+     */
+    DROP_NEWEST,
+
+    /**
+     * 丢弃缓冲区中最旧的日志
+     */
+    DROP_OLDEST;
+
+    /**
+     * 根据配置名称解析策略，支持 block / drop-newest / drop-oldest
+     *
+     * @param name 策略名称
+     * @return 溢出策略，无法识别时返回 BLOCK
+     */
+    public static OverflowPolicy of(String name) {
+        if (name == null) {
+            return BLOCK;
+        }
+        return switch (name.trim().toLowerCase().replace('_', '-')) {
+            case "drop-newest" -> DROP_NEWEST;
+            case "drop-oldest" -> DROP_OLDEST;
+            default -> BLOCK;
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package ltd.weiyiyi.requestlogging.infrastructure.async;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 消费线程在缓冲区为空时的等待策略
+ *
+ * @author weihan
+ */
+public interface WaitStrategy {
+    /**
+     * 缓冲区为空时由消费线程调用
+     *
+     * @param idleCount 连续空闲次数
+     * @param hasWork 判断缓冲区是否已有数据
+     * @throws InterruptedException 线程被中断
+     */
+    void idle(int idleCount, BooleanSupplier hasWork) throws InterruptedException;
+
+    /**
+     * 生产者发布数据后调用，用于唤醒等待中的消费线程
+     */
+    default void signal() {
+    }
+
+    /**
+     * 根据配置名称创建等待策略，支持 blocking / sleeping / yielding / busy-spin
+     *
+     * @param name 策略名称
+     * @return 等待策略，无法识别时返回 sleeping
+     */
+    static WaitStrategy of(String name) {
+        String key = name == null ? "" : name.trim().toLowerCase().replace('_', '-');
+        return switch (key) {
+            case "blocking" -> new Blocking();
+            case "yielding" -> new Yielding();
+            case "busy-spin" -> new BusySpin();
+            default -> new Sleeping();
+        };
+    }
+
+    /**
+     * 忙等，延迟最低但会占满一个CPU核心
+     */
+    final class BusySpin implements WaitStrategy {
+        @Override
+        public void idle(int idleCount, BooleanSupplier hasWork) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * 先自旋，再让出CPU
+     */
+    final class Yielding implements WaitStrategy {
+        private static final int SPIN_TRIES = 100;
+
+        @Override
+        public void idle(int idleCount, BooleanSupplier hasWork) {
+            if (idleCount < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * 自旋、让出CPU后进入短暂休眠，兼顾延迟与CPU占用
+     */
+    final class Sleeping implements WaitStrategy {
+        private static final int SPIN_TRIES = 100;
+        private static final int YIELD_TRIES = 200;
+        private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+        @Override
+        public void idle(int idleCount, BooleanSupplier hasWork) {
+            if (idleCount < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (idleCount < YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(SLEEP_NANOS);
+            }
+        }
+    }
+
+    /**
+     * 基于条件变量阻塞，CPU占用最低；生产者仅在消费线程等待时才加锁唤醒
+     */
+    final class Blocking implements WaitStrategy {
+        private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private volatile boolean waiting;
+
+        @Override
+        public void idle(int idleCount, BooleanSupplier hasWork) throws InterruptedException {
+            lock.lock();
+            try {
+                waiting = true;
+                if (!hasWork.getAsBoolean()) {
+                    notEmpty.awaitNanos(MAX_WAIT_NANOS);
+                }
+            } finally {
+                waiting = false;
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signal() {
+            if (waiting) {
+                lock.lock();
+                try {
+                    notEmpty.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
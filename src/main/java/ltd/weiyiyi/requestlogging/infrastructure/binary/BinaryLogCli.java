@@ -0,0 +1,89 @@
+package ltd.weiyiyi.requestlogging.infrastructure.binary;
+
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.JsonLinesEncoder;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.LogFormatter;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.OutputFormat;
+
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 二进制日志转换工具，将二进制日志还原为文本或JSON Lines输出到标准输出
+ * <pre>
+ * java -cp request-logging.jar ltd.weiyiyi.requestlogging.infrastructure.binary.BinaryLogCli [--format text|json] &lt;file&gt;...
+ * </pre>
+ * 文件名为 "-" 时从标准输入读取，以 .gz 结尾的文件按 gzip 解压后读取
+ *
+ * @author weihan
+ */
+public final class BinaryLogCli {
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private BinaryLogCli() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        OutputFormat format = OutputFormat.TEXT;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--format".equals(args[i]) && i + 1 < args.length) {
+                format = OutputFormat.of(args[++i]);
+            } else if (args[i].startsWith("--format=")) {
+                format = OutputFormat.of(args[i].substring("--format=".length()));
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: BinaryLogCli [--format text|json] <file>...");
+            System.exit(2);
+            return;
+        }
+
+        OutputStream out = new BufferedOutputStream(System.out, 64 * 1024);
+        LogFormatter formatter = format == OutputFormat.JSON ? null : new LogFormatter(textProperties());
+        JsonLinesEncoder jsonEncoder = format == OutputFormat.JSON ? new JsonLinesEncoder() : null;
+        for (String file : files) {
+            InputStream in = "-".equals(file) ? System.in : new FileInputStream(file);
+            if (file.endsWith(".gz")) {
+                in = new GZIPInputStream(in, 64 * 1024);
+            }
+            try (BinaryLogReader reader = new BinaryLogReader(in)) {
+                BinaryLogEntry entry;
+                while ((entry = reader.next()) != null) {
+                    if (jsonEncoder != null) {
+                        jsonEncoder.encode(entry.getType(), entry.getLog()).writeTo(out);
+                        out.write('\n');
+                    } else {
+                        formatter.format(entry.getType(), entry.getLog()).writeTo(out);
+                        out.write(LINE_SEPARATOR);
+                    }
+                }
+                if (reader.getSkippedBytes() > 0) {
+                    System.err.println(file + ": skipped " + reader.getSkippedBytes() + " corrupted bytes");
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * 转换时输出二进制日志中保存的全部字段
+     */
+    private static RequestLoggingProperties textProperties() {
+        RequestLoggingProperties properties = new RequestLoggingProperties();
+        properties.setEnableColorOutput(false);
+        properties.setLogHeaders(true);
+        properties.setLogRequestBody(true);
+        properties.setLogResponse(true);
+        return properties;
+    }
+}
@@ -0,0 +1,224 @@
+package ltd.weiyiyi.requestlogging.infrastructure.binary;
+
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.layout.Utf8Buffer;
+import ltd.weiyiyi.requestlogging.infrastructure.logfile.RecordEncoder;
+import ltd.weiyiyi.requestlogging.infrastructure.util.LogTimestamps;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 二进制日志编码器
+ * 请求方法、URI、客户端IP、异常类型、请求头名称及常见请求头的值写入段内符号表，
+ * 之后只写符号编号；符号表达到上限时开始新的段。
+ * 非线程安全，需由 {@link ltd.weiyiyi.requestlogging.infrastructure.logfile.GroupCommitFileWriter} 在写锁内调用
+ *
+ * @author weihan
+ */
+public class BinaryLogEncoder implements RecordEncoder {
+    /**
+     * 每个段的最大符号数
+     */
+    static final int MAX_SYMBOLS = 4096;
+    /**
+     * 超过该长度的字符串不进入符号表
+     */
+    static final int MAX_SYMBOL_LENGTH = 256;
+    /**
+     * 段写满该字节数后开始新的段，限制数据损坏的影响范围
+     */
+    static final int MAX_SEGMENT_BYTES = 1024 * 1024;
+    private static final int MAX_RETAINED_PAYLOAD_SIZE = 64 * 1024;
+
+    /**
+     * 取值几乎每次都不同的请求头，值直接写入不进入符号表
+     */
+    private static final Set<String> UNIQUE_VALUE_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        UNIQUE_VALUE_HEADERS.add("authorization");
+        UNIQUE_VALUE_HEADERS.add("cookie");
+        UNIQUE_VALUE_HEADERS.add("content-length");
+        UNIQUE_VALUE_HEADERS.add("date");
+        UNIQUE_VALUE_HEADERS.add("if-modified-since");
+        UNIQUE_VALUE_HEADERS.add("if-none-match");
+        UNIQUE_VALUE_HEADERS.add("sec-websocket-key");
+        UNIQUE_VALUE_HEADERS.add("traceparent");
+        UNIQUE_VALUE_HEADERS.add("tracestate");
+        UNIQUE_VALUE_HEADERS.add("x-correlation-id");
+        UNIQUE_VALUE_HEADERS.add("x-request-id");
+        UNIQUE_VALUE_HEADERS.add("x-trace-id");
+    }
+
+    private final Map<String, Integer> symbols = new HashMap<>();
+    private final Utf8Buffer payload = new Utf8Buffer(1024);
+    private long baseEpochMillis;
+    private long segmentBytes;
+
+    @Override
+    public void beginSegment(Utf8Buffer out) {
+        symbols.clear();
+        segmentBytes = 0;
+        baseEpochMillis = System.currentTimeMillis();
+        out.append(BinaryLogFormat.MAGIC).appendByte(BinaryLogFormat.VERSION);
+        BinaryLogFormat.writeVarLong(out, baseEpochMillis);
+    }
+
+    @Override
+    public void encode(LogEventType type, RequestLog log, Utf8Buffer out) {
+        if (symbols.size() >= MAX_SYMBOLS || segmentBytes >= MAX_SEGMENT_BYTES) {
+            beginSegment(out);
+        }
+        int start = out.length();
+        payload.reset(MAX_RETAINED_PAYLOAD_SIZE);
+        payload.appendByte(type.ordinal());
+        BinaryLogFormat.writeVarLong(payload, fieldMask(log));
+
+        // 符号帧直接写入 out，位于引用它的记录帧之前
+        if (log.getTraceId() != null) {
+            writeTraceId(log.getTraceId());
+        }
+        if (log.getMethod() != null) {
+            writeSymbol(log.getMethod(), out);
+        }
+        if (log.getUri() != null) {
+            writeSymbol(log.getUri(), out);
+        }
+        if (log.getQueryString() != null) {
+            writeLiteral(payload, log.getQueryString());
+        }
+        if (log.getClientIp() != null) {
+            writeSymbol(log.getClientIp(), out);
+        }
+        if (log.getStatus() != 0) {
+            BinaryLogFormat.writeVarLong(payload, log.getStatus());
+        }
+        if (log.getProcessingTime() != 0) {
+            BinaryLogFormat.writeZigZag(payload, log.getProcessingTime());
+        }
+        if (log.getHeaders() != null) {
+            writeHeaders(log.getHeaders(), out);
+        }
+        if (log.getRequestBody() != null) {
+            writeLiteral(payload, log.getRequestBody());
+        }
+        if (log.getResponseBody() != null) {
+            writeLiteral(payload, log.getResponseBody());
+        }
+        if (log.getException() != null) {
+            writeSymbol(log.getException(), out);
+        }
+        if (log.getExceptionMessage() != null) {
+            writeLiteral(payload, log.getExceptionMessage());
+        }
+        if (log.getStackTrace() != null) {
+            writeLiteral(payload, log.getStackTrace());
+        }
+        if (log.getRequestTime() != null) {
+            writeTime(log.getRequestTime());
+        }
+        if (log.getResponseTime() != null) {
+            writeTime(log.getResponseTime());
+        }
+        if (log.getRoute() != null) {
+            writeSymbol(log.getRoute(), out);
+        }
+
+        out.appendByte(BinaryLogFormat.TAG_RECORD);
+        BinaryLogFormat.writeVarLong(out, payload.length());
+        out.append(payload.array(), 0, payload.length());
+        segmentBytes += out.length() - start;
+    }
+
+    private static int fieldMask(RequestLog log) {
+        int mask = 0;
+        mask |= log.getTraceId() != null ? BinaryLogFormat.FIELD_TRACE_ID : 0;
+        mask |= log.getMethod() != null ? BinaryLogFormat.FIELD_METHOD : 0;
+        mask |= log.getUri() != null ? BinaryLogFormat.FIELD_URI : 0;
+        mask |= log.getQueryString() != null ? BinaryLogFormat.FIELD_QUERY : 0;
+        mask |= log.getClientIp() != null ? BinaryLogFormat.FIELD_CLIENT_IP : 0;
+        mask |= log.getStatus() != 0 ? BinaryLogFormat.FIELD_STATUS : 0;
+        mask |= log.getProcessingTime() != 0 ? BinaryLogFormat.FIELD_PROCESSING_TIME : 0;
+        mask |= log.getHeaders() != null ? BinaryLogFormat.FIELD_HEADERS : 0;
+        mask |= log.getRequestBody() != null ? BinaryLogFormat.FIELD_REQUEST_BODY : 0;
+        mask |= log.getResponseBody() != null ? BinaryLogFormat.FIELD_RESPONSE_BODY : 0;
+        mask |= log.getException() != null ? BinaryLogFormat.FIELD_EXCEPTION : 0;
+        mask |= log.getExceptionMessage() != null ? BinaryLogFormat.FIELD_EXCEPTION_MESSAGE : 0;
+        mask |= log.getStackTrace() != null ? BinaryLogFormat.FIELD_STACK_TRACE : 0;
+        mask |= log.getRequestTime() != null ? BinaryLogFormat.FIELD_REQUEST_TIME : 0;
+        mask |= log.getResponseTime() != null ? BinaryLogFormat.FIELD_RESPONSE_TIME : 0;
+        mask |= log.getRoute() != null ? BinaryLogFormat.FIELD_ROUTE : 0;
+        return mask;
+    }
+
+    private void writeHeaders(Map<String, String> headers, Utf8Buffer out) {
+        BinaryLogFormat.writeVarLong(payload, headers.size());
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            String name = header.getKey();
+            String value = header.getValue() != null ? header.getValue() : "";
+            writeSymbol(name, out);
+            if (UNIQUE_VALUE_HEADERS.contains(name)) {
+                writeLiteral(payload, value);
+            } else {
+                writeSymbol(value, out);
+            }
+        }
+    }
+
+    private void writeTraceId(String traceId) {
+        int kind = BinaryLogFormat.traceIdKind(traceId);
+        payload.appendByte(kind);
+        if (kind == BinaryLogFormat.TRACE_ID_STRING) {
+            writeLiteral(payload, traceId);
+            return;
+        }
+        int high = -1;
+        for (int i = 0; i < traceId.length(); i++) {
+            int value = BinaryLogFormat.hexValue(traceId.charAt(i));
+            if (value < 0) {
+                continue;
+            }
+            if (high < 0) {
+                high = value;
+            } else {
+                payload.appendByte((high << 4) | value);
+                high = -1;
+            }
+        }
+    }
+
+    private void writeTime(LocalDateTime time) {
+        BinaryLogFormat.writeZigZag(payload, LogTimestamps.toEpochMillis(time) - baseEpochMillis);
+    }
+
+    /**
+     * 写入符号引用，首次出现的值先在 out 中写入符号帧；
+     * 值过长或符号表已满时退化为直接写入
+     */
+    private void writeSymbol(String value, Utf8Buffer out) {
+        Integer id = symbols.get(value);
+        if (id == null) {
+            if (value.length() > MAX_SYMBOL_LENGTH || symbols.size() >= MAX_SYMBOLS) {
+                writeLiteral(payload, value);
+                return;
+            }
+            id = symbols.size() + 1;
+            symbols.put(value, id);
+            out.appendByte(BinaryLogFormat.TAG_SYMBOL);
+            BinaryLogFormat.writeVarLong(out, BinaryLogFormat.utf8Length(value));
+            out.append(value);
+        }
+        BinaryLogFormat.writeVarLong(payload, id);
+    }
+
+    private static void writeLiteral(Utf8Buffer buffer, String value) {
+        buffer.appendByte(0);
+        BinaryLogFormat.writeVarLong(buffer, BinaryLogFormat.utf8Length(value));
+        buffer.append(value);
+    }
+}
@@ -0,0 +1,27 @@
+package ltd.weiyiyi.requestlogging.infrastructure.binary;
+
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+
+/**
+ * 从二进制日志中解码出的一条记录
+ *
+ * @author weihan
+ */
+public final class BinaryLogEntry {
+    private final LogEventType type;
+    private final RequestLog log;
+
+    BinaryLogEntry(LogEventType type, RequestLog log) {
+        this.type = type;
+        this.log = log;
+    }
+
+    public LogEventType getType() {
+        return type;
+    }
+
+    public RequestLog getLog() {
+        return log;
+    }
+}
@@ -0,0 +1,132 @@
+package ltd.weiyiyi.requestlogging.infrastructure.binary;
+
+import ltd.weiyiyi.requestlogging.infrastructure.layout.Utf8Buffer;
+
+/**
+ * 二进制日志格式定义
+ * <pre>
+ * 段头    : 'R' 'L' 'B' 版本号(1字节) 基准时间(varint, 毫秒时间戳)
+ * 符号帧  : 0x01 长度(varint) UTF-8字节           —— 按出现顺序分配编号，从1开始
+ * 记录帧  : 0x02 长度(varint) 记录内容
+ * 记录内容: 事件类型(1字节) 字段掩码(varint) 按掩码位顺序排列的字段
+ * 字符串  : 0 长度(varint) UTF-8字节 | 符号编号(varint, &gt;0)
+ * 追踪ID  : 0 字符串 | 1 UUID(16字节) | 2 32位小写十六进制(16字节)
+ * 时间    : 相对段头基准时间的毫秒差(zigzag varint)
+ * </pre>
+ * 每个段拥有独立的符号表，文件中可以包含多个段，读取时遇到段头即重置符号表；
+ * 段的大小有上限，数据损坏时最多丢失所在段剩余的记录
+ *
+ * @author weihan
+ */
+final class BinaryLogFormat {
+    static final byte[] MAGIC = {'R', 'L', 'B'};
+    static final int VERSION = 1;
+
+    static final int TAG_SYMBOL = 0x01;
+    static final int TAG_RECORD = 0x02;
+
+    static final int TRACE_ID_STRING = 0;
+    static final int TRACE_ID_UUID = 1;
+    static final int TRACE_ID_HEX = 2;
+
+    static final int FIELD_TRACE_ID = 1;
+    static final int FIELD_METHOD = 1 << 1;
+    static final int FIELD_URI = 1 << 2;
+    static final int FIELD_QUERY = 1 << 3;
+    static final int FIELD_CLIENT_IP = 1 << 4;
+    static final int FIELD_STATUS = 1 << 5;
+    static final int FIELD_PROCESSING_TIME = 1 << 6;
+    static final int FIELD_HEADERS = 1 << 7;
+    static final int FIELD_REQUEST_BODY = 1 << 8;
+    static final int FIELD_RESPONSE_BODY = 1 << 9;
+    static final int FIELD_EXCEPTION = 1 << 10;
+    static final int FIELD_EXCEPTION_MESSAGE = 1 << 11;
+    static final int FIELD_STACK_TRACE = 1 << 12;
+    static final int FIELD_REQUEST_TIME = 1 << 13;
+    static final int FIELD_RESPONSE_TIME = 1 << 14;
+    static final int FIELD_ROUTE = 1 << 15;
+
+    /**
+     * 单个帧允许的最大长度，超出视为数据损坏
+     */
+    static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private BinaryLogFormat() {
+    }
+
+    static void writeVarLong(Utf8Buffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.appendByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.appendByte((int) value);
+    }
+
+    static void writeZigZag(Utf8Buffer out, long value) {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * 判断追踪ID的紧凑编码方式
+     *
+     * @return TRACE_ID_UUID、TRACE_ID_HEX 或 TRACE_ID_STRING
+     */
+    static int traceIdKind(String traceId) {
+        int length = traceId.length();
+        if (length != 32 && length != 36) {
+            return TRACE_ID_STRING;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = traceId.charAt(i);
+            if (length == 36 && (i == 8 || i == 13 || i == 18 || i == 23)) {
+                if (c != '-') {
+                    return TRACE_ID_STRING;
+                }
+            } else if (hexValue(c) < 0) {
+                return TRACE_ID_STRING;
+            }
+        }
+        return length == 36 ? TRACE_ID_UUID : TRACE_ID_HEX;
+    }
+
+    /**
+     * 小写十六进制字符的值，其他字符返回-1（大写无法无损还原）
+     */
+    static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    static long decodeZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 计算字符串按UTF-8编码后的字节数，与 {@link Utf8Buffer#append(CharSequence)} 的编码规则一致
+     */
+    static int utf8Length(CharSequence text) {
+        int length = text.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                // 代理对共4字节，两个char已计2字节
+                bytes += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+}
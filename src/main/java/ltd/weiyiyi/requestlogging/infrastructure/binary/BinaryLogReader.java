@@ -0,0 +1,278 @@
+package ltd.weiyiyi.requestlogging.infrastructure.binary;
+
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.util.LogTimestamps;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 二进制日志流式读取器
+ * 逐条解码记录，遇到段头时重置符号表；遇到无法识别的数据时向后查找下一个段头继续读取，
+ * 文件末尾未写完整的帧视为结束
+ *
+ * @author weihan
+ */
+public class BinaryLogReader implements Closeable {
+    private static final LogEventType[] EVENT_TYPES = LogEventType.values();
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final InputStream in;
+    private final List<String> symbols = new ArrayList<>();
+    private byte[] frame = new byte[4096];
+    private int position;
+    private int limit;
+    private long baseEpochMillis;
+    private boolean inSegment;
+    private long skippedBytes;
+
+    public BinaryLogReader(InputStream in) {
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 64 * 1024);
+    }
+
+    /**
+     * 读取下一条记录
+     *
+     * @return 日志记录，已到达末尾时返回null
+     * @throws IOException 读取失败
+     */
+    public BinaryLogEntry next() throws IOException {
+        for (;;) {
+            int tag = in.read();
+            if (tag < 0) {
+                return null;
+            }
+            if (tag == BinaryLogFormat.MAGIC[0]) {
+                if (!readSegmentHeader()) {
+                    return null;
+                }
+                continue;
+            }
+            if (!inSegment || (tag != BinaryLogFormat.TAG_SYMBOL && tag != BinaryLogFormat.TAG_RECORD)) {
+                skippedBytes++;
+                inSegment = false;
+                continue;
+            }
+            long length = readVarLong();
+            if (length < 0) {
+                return null;
+            }
+            if (length > BinaryLogFormat.MAX_FRAME_LENGTH) {
+                inSegment = false;
+                continue;
+            }
+            if (!readFrame((int) length)) {
+                return null;
+            }
+            if (tag == BinaryLogFormat.TAG_SYMBOL) {
+                symbols.add(new String(frame, 0, limit, StandardCharsets.UTF_8));
+                continue;
+            }
+            try {
+                return decodeRecord();
+            } catch (RuntimeException e) {
+                // 记录内容损坏，丢弃当前段剩余内容
+                skippedBytes += length;
+                inSegment = false;
+            }
+        }
+    }
+
+    /**
+     * 因数据损坏而跳过的字节数
+     */
+    public long getSkippedBytes() {
+        return skippedBytes;
+    }
+
+    private boolean readSegmentHeader() throws IOException {
+        for (int i = 1; i < BinaryLogFormat.MAGIC.length; i++) {
+            int b = in.read();
+            if (b < 0) {
+                return false;
+            }
+            if (b != BinaryLogFormat.MAGIC[i]) {
+                skippedBytes += i + 1;
+                inSegment = false;
+                return true;
+            }
+        }
+        int version = in.read();
+        if (version != BinaryLogFormat.VERSION) {
+            if (version < 0) {
+                return false;
+            }
+            throw new IOException("Unsupported binary log version: " + version);
+        }
+        long base = readVarLong();
+        if (base < 0) {
+            return false;
+        }
+        baseEpochMillis = base;
+        symbols.clear();
+        inSegment = true;
+        return true;
+    }
+
+    private boolean readFrame(int length) throws IOException {
+        if (frame.length < length) {
+            frame = new byte[Math.max(length, frame.length << 1)];
+        }
+        int read = 0;
+        while (read < length) {
+            int n = in.read(frame, read, length - read);
+            if (n < 0) {
+                return false;
+            }
+            read += n;
+        }
+        position = 0;
+        limit = length;
+        return true;
+    }
+
+    /**
+     * 从输入流读取varint，到达末尾时返回-1
+     */
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                return -1;
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private BinaryLogEntry decodeRecord() {
+        LogEventType type = EVENT_TYPES[frame[position++]];
+        long mask = frameVarLong();
+        RequestLog log = new RequestLog();
+        if ((mask & BinaryLogFormat.FIELD_TRACE_ID) != 0) {
+            log.setTraceId(frameTraceId());
+        }
+        if ((mask & BinaryLogFormat.FIELD_METHOD) != 0) {
+            log.setMethod(frameString());
+        }
+        if ((mask & BinaryLogFormat.FIELD_URI) != 0) {
+            log.setUri(frameString());
+        }
+        if ((mask & BinaryLogFormat.FIELD_QUERY) != 0) {
+            log.setQueryString(frameString());
+        }
+        if ((mask & BinaryLogFormat.FIELD_CLIENT_IP) != 0) {
+            log.setClientIp(frameString());
+        }
+        if ((mask & BinaryLogFormat.FIELD_STATUS) != 0) {
+            log.setStatus((int) frameVarLong());
+        }
+        if ((mask & BinaryLogFormat.FIELD_PROCESSING_TIME) != 0) {
+            log.setProcessingTime(BinaryLogFormat.decodeZigZag(frameVarLong()));
+        }
+        if ((mask & BinaryLogFormat.FIELD_HEADERS) != 0) {
+            int count = (int) frameVarLong();
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = frameString();
+                headers.put(name, frameString());
+            }
+            log.setHeaders(headers);
+        }
+        if ((mask & BinaryLogFormat.FIELD_REQUEST_BODY) != 0) {
+            log.setRequestBody(frameString());
+        }
+        if ((mask & BinaryLogFormat.FIELD_RESPONSE_BODY) != 0) {
+            log.setResponseBody(frameString());
+        }
+        if ((mask & BinaryLogFormat.FIELD_EXCEPTION) != 0) {
+            log.setException(frameString());
+        }
+        if ((mask & BinaryLogFormat.FIELD_EXCEPTION_MESSAGE) != 0) {
+            log.setExceptionMessage(frameString());
+        }
+        if ((mask & BinaryLogFormat.FIELD_STACK_TRACE) != 0) {
+            log.setStackTrace(frameString());
+        }
+        if ((mask & BinaryLogFormat.FIELD_REQUEST_TIME) != 0) {
+            log.setRequestTime(LogTimestamps.toLocalDateTime(baseEpochMillis + BinaryLogFormat.decodeZigZag(frameVarLong())));
+        }
+        if ((mask & BinaryLogFormat.FIELD_RESPONSE_TIME) != 0) {
+            log.setResponseTime(LogTimestamps.toLocalDateTime(baseEpochMillis + BinaryLogFormat.decodeZigZag(frameVarLong())));
+        }
+        if ((mask & BinaryLogFormat.FIELD_ROUTE) != 0) {
+            log.setRoute(frameString());
+        }
+        return new BinaryLogEntry(type, log);
+    }
+
+    private long frameVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= limit) {
+                throw new IllegalStateException("Truncated record");
+            }
+            byte b = frame[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    private String frameTraceId() {
+        int kind = frame[position++];
+        if (kind == BinaryLogFormat.TRACE_ID_STRING) {
+            return frameString();
+        }
+        if (kind != BinaryLogFormat.TRACE_ID_UUID && kind != BinaryLogFormat.TRACE_ID_HEX) {
+            throw new IllegalStateException("Unknown trace id kind: " + kind);
+        }
+        if (position + 16 > limit) {
+            throw new IllegalStateException("Truncated record");
+        }
+        char[] chars = new char[kind == BinaryLogFormat.TRACE_ID_UUID ? 36 : 32];
+        int index = 0;
+        for (int i = 0; i < 16; i++) {
+            if (kind == BinaryLogFormat.TRACE_ID_UUID && (i == 4 || i == 6 || i == 8 || i == 10)) {
+                chars[index++] = '-';
+            }
+            int b = frame[position++] & 0xFF;
+            chars[index++] = HEX_DIGITS[b >>> 4];
+            chars[index++] = HEX_DIGITS[b & 0x0F];
+        }
+        return new String(chars);
+    }
+
+    private String frameString() {
+        long id = frameVarLong();
+        if (id > 0) {
+            return symbols.get((int) id - 1);
+        }
+        int length = (int) frameVarLong();
+        if (length < 0 || position + length > limit) {
+            throw new IllegalStateException("Truncated record");
+        }
+        String value = new String(frame, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
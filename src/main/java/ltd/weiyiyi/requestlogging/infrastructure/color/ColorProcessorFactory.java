@@ -33,6 +33,25 @@ public class ColorProcessorFactory {
         return foregroundColor + text + ANSI_RESET;
     }
 
+    /**
+     * 获取颜色对前景色对应的ANSI转义序列
+     *
+     * @param colorPair 颜色对
+     * @return ANSI转义序列，无法识别的颜色返回空字符串
+     */
+    public static String getAnsiCode(ColorPair colorPair) {
+        return colorPair == null ? "" : getAnsiCode(colorPair.getForegroundColor());
+    }
+
+    /**
+     * 获取重置颜色的ANSI转义序列
+     *
+     * @return ANSI转义序列
+     */
+    public static String getResetCode() {
+        return ANSI_RESET;
+    }
+
     private static String getAnsiCode(String color) {
         if (color == null) {
             return "";
@@ -0,0 +1,234 @@
+package ltd.weiyiyi.requestlogging.infrastructure.compatibility;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Map;
+
+/**
+ * 有界请求体捕获包装器
+ * 请求体原样透传给应用，同时只把前 captureLimit 个字节复制到一个固定大小的缓冲区，
+ * 无论请求体多大，捕获占用的内存都不超过该上限
+ *
+ * @author weihan
+ */
+public class BoundedCaptureRequestWrapper extends HttpServletRequestWrapper {
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+    private static final int MIN_INITIAL_CAPACITY = 256;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int captureLimit;
+    private byte[] captured;
+    private int capturedLength;
+    private long totalBytes;
+    private boolean parametersAccessed;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+
+    /**
+     * @param request 原始请求
+     * @param captureLimit 最多捕获的字节数，为0时不捕获
+     */
+    public BoundedCaptureRequestWrapper(HttpServletRequest request, int captureLimit) {
+        super(request);
+        this.captureLimit = Math.max(0, captureLimit);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            inputStream = new CaptureInputStream(getRequest().getInputStream());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), charset()));
+        }
+        return reader;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        parametersAccessed = true;
+        return super.getParameter(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        parametersAccessed = true;
+        return super.getParameterMap();
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        parametersAccessed = true;
+        return super.getParameterNames();
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        parametersAccessed = true;
+        return super.getParameterValues(name);
+    }
+
+    /**
+     * 获取已捕获的请求体前缀
+     * 表单请求的请求体由容器解析参数时直接读取，不经过本包装器，
+     * 此时若应用已读取过参数，则按参数重建请求体
+     *
+     * @return 捕获的字节，最多 captureLimit 个
+     */
+    public byte[] getContentAsByteArray() {
+        if (capturedLength == 0 && parametersAccessed && isFormPost()) {
+            return formContent();
+        }
+        return capturedLength == 0 ? EMPTY : Arrays.copyOf(captured, capturedLength);
+    }
+
+    /**
+     * 应用读取的请求体是否超过了捕获上限
+     */
+    public boolean isContentTruncated() {
+        return totalBytes > capturedLength;
+    }
+
+    /**
+     * 应用实际读取的请求体字节数
+     */
+    public long getContentBytesRead() {
+        return totalBytes;
+    }
+
+    private void capture(byte[] src, int offset, int length) {
+        totalBytes += length;
+        int writable = Math.min(length, captureLimit - capturedLength);
+        if (writable <= 0) {
+            return;
+        }
+        ensureCapacity(capturedLength + writable);
+        System.arraycopy(src, offset, captured, capturedLength, writable);
+        capturedLength += writable;
+    }
+
+    private void capture(int b) {
+        totalBytes++;
+        if (capturedLength >= captureLimit) {
+            return;
+        }
+        ensureCapacity(capturedLength + 1);
+        captured[capturedLength++] = (byte) b;
+    }
+
+    private void ensureCapacity(int required) {
+        if (captured == null) {
+            // 按声明的请求体长度分配，避免小请求占用完整上限
+            long declared = getContentLengthLong();
+            int initial = declared > 0 ? (int) Math.min(declared, captureLimit) : Math.min(MIN_INITIAL_CAPACITY, captureLimit);
+            captured = new byte[Math.max(initial, required)];
+        } else if (required > captured.length) {
+            captured = Arrays.copyOf(captured, Math.min(captureLimit, Math.max(required, captured.length << 1)));
+        }
+    }
+
+    private boolean isFormPost() {
+        String contentType = getContentType();
+        return contentType != null && contentType.startsWith(FORM_CONTENT_TYPE) && "POST".equalsIgnoreCase(getMethod());
+    }
+
+    private byte[] formContent() {
+        Charset charset = charset();
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, String[]> entry : super.getParameterMap().entrySet()) {
+            String name = URLEncoder.encode(entry.getKey(), charset);
+            for (String value : entry.getValue()) {
+                if (builder.length() > 0) {
+                    builder.append('&');
+                }
+                builder.append(name);
+                if (value != null) {
+                    builder.append('=').append(URLEncoder.encode(value, charset));
+                }
+                if (builder.length() >= captureLimit) {
+                    byte[] bytes = builder.toString().getBytes(charset);
+                    return bytes.length > captureLimit ? Arrays.copyOf(bytes, captureLimit) : bytes;
+                }
+            }
+        }
+        return builder.toString().getBytes(charset);
+    }
+
+    private Charset charset() {
+        String encoding = getCharacterEncoding();
+        if (encoding != null) {
+            try {
+                return Charset.forName(encoding);
+            } catch (RuntimeException e) {
+                // 无法识别的编码按UTF-8处理
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private final class CaptureInputStream extends ServletInputStream {
+        private final ServletInputStream delegate;
+
+        private CaptureInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0) {
+                capture(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, len);
+            if (n > 0) {
+                capture(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public int readLine(byte[] b, int off, int len) throws IOException {
+            int n = delegate.readLine(b, off, len);
+            if (n > 0) {
+                capture(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+}
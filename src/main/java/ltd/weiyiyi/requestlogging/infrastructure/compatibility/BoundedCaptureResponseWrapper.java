@@ -0,0 +1,300 @@
+package ltd.weiyiyi.requestlogging.infrastructure.compatibility;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 有界响应体捕获包装器
+ * 响应内容立即写入原始响应，不做整体缓存，只把前 captureLimit 个字节复制一份用于日志；
+ * SSE、NDJSON 等流式响应以及二进制内容完全透传，不做捕获
+ *
+ * @author weihan
+ */
+public class BoundedCaptureResponseWrapper extends HttpServletResponseWrapper {
+    private static final int MIN_INITIAL_CAPACITY = 256;
+    private static final byte[] EMPTY = new byte[0];
+    /**
+     * 不捕获的内容类型前缀
+     */
+    private static final String[] PASSTHROUGH_CONTENT_TYPES = {
+        "text/event-stream",
+        "application/x-ndjson",
+        "application/stream+json",
+        "application/grpc",
+        "multipart/x-mixed-replace",
+        "application/octet-stream",
+        "image/",
+        "audio/",
+        "video/"
+    };
+
+    private final int captureLimit;
+    private byte[] captured;
+    private int capturedLength;
+    private long totalBytes;
+    private StringBuilder capturedChars;
+    private long totalChars;
+    private Boolean passthrough;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    /**
+     * @param response 原始响应
+     * @param captureLimit 最多捕获的字节数，为0时不捕获
+     */
+    public BoundedCaptureResponseWrapper(HttpServletResponse response, int captureLimit) {
+        super(response);
+        this.captureLimit = Math.max(0, captureLimit);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new CaptureOutputStream(getResponse().getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            // 沿用容器的 Writer，保留其字符集与缓冲行为
+            writer = new PrintWriter(new CaptureWriter(getResponse().getWriter()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        clearCapture();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        clearCapture();
+        passthrough = null;
+    }
+
+    /**
+     * 获取已捕获的响应体前缀，通过 Writer 写入的内容按响应字符集编码
+     *
+     * @return 捕获的字节
+     */
+    public byte[] getContentAsByteArray() {
+        if (capturedChars != null && capturedChars.length() > 0) {
+            return capturedChars.toString().getBytes(charset());
+        }
+        return capturedLength == 0 ? EMPTY : Arrays.copyOf(captured, capturedLength);
+    }
+
+    /**
+     * 响应体是否超过了捕获上限
+     */
+    public boolean isContentTruncated() {
+        return totalBytes > capturedLength || (capturedChars != null && totalChars > capturedChars.length());
+    }
+
+    /**
+     * 当前响应是否透传未捕获
+     */
+    public boolean isPassthrough() {
+        return passthrough != null && passthrough;
+    }
+
+    /**
+     * 在首次写入时根据内容类型决定是否捕获
+     */
+    private boolean capturing() {
+        if (passthrough == null) {
+            passthrough = captureLimit == 0 || isPassthroughContentType(getContentType());
+        }
+        return !passthrough;
+    }
+
+    static boolean isPassthroughContentType(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.trim().toLowerCase(Locale.ROOT);
+        for (String prefix : PASSTHROUGH_CONTENT_TYPES) {
+            if (type.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void capture(byte[] src, int offset, int length) {
+        if (!capturing()) {
+            return;
+        }
+        totalBytes += length;
+        int writable = Math.min(length, captureLimit - capturedLength);
+        if (writable <= 0) {
+            return;
+        }
+        ensureCapacity(capturedLength + writable);
+        System.arraycopy(src, offset, captured, capturedLength, writable);
+        capturedLength += writable;
+    }
+
+    private void capture(int b) {
+        if (!capturing()) {
+            return;
+        }
+        totalBytes++;
+        if (capturedLength >= captureLimit) {
+            return;
+        }
+        ensureCapacity(capturedLength + 1);
+        captured[capturedLength++] = (byte) b;
+    }
+
+    /**
+     * 字符按上限的三分之一截取，与字节上限对应的字符数一致
+     */
+    private void captureChars(CharSequence chars, int offset, int length) {
+        if (!capturing()) {
+            return;
+        }
+        totalChars += length;
+        if (capturedChars == null) {
+            capturedChars = new StringBuilder(Math.min(MIN_INITIAL_CAPACITY, captureLimit));
+        }
+        int writable = Math.min(length, captureLimit / 3 - capturedChars.length());
+        if (writable > 0) {
+            capturedChars.append(chars, offset, offset + writable);
+        }
+    }
+
+    private void captureChar(char c) {
+        if (!capturing()) {
+            return;
+        }
+        totalChars++;
+        if (capturedChars == null) {
+            capturedChars = new StringBuilder(Math.min(MIN_INITIAL_CAPACITY, captureLimit));
+        }
+        if (capturedChars.length() < captureLimit / 3) {
+            capturedChars.append(c);
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (captured == null) {
+            captured = new byte[Math.max(Math.min(MIN_INITIAL_CAPACITY, captureLimit), required)];
+        } else if (required > captured.length) {
+            captured = Arrays.copyOf(captured, Math.min(captureLimit, Math.max(required, captured.length << 1)));
+        }
+    }
+
+    private void clearCapture() {
+        capturedLength = 0;
+        totalBytes = 0;
+        totalChars = 0;
+        if (capturedChars != null) {
+            capturedChars.setLength(0);
+        }
+    }
+
+    private Charset charset() {
+        String encoding = getCharacterEncoding();
+        if (encoding != null) {
+            try {
+                return Charset.forName(encoding);
+            } catch (RuntimeException e) {
+                // 无法识别的编码按UTF-8处理
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private final class CaptureOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+
+        private CaptureOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            capture(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            capture(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+
+    private final class CaptureWriter extends Writer {
+        private final PrintWriter delegate;
+
+        private CaptureWriter(PrintWriter delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int c) {
+            delegate.write(c);
+            captureChar((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            delegate.write(cbuf, off, len);
+            captureChars(CharBuffer.wrap(cbuf), off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            delegate.write(str, off, len);
+            captureChars(str, off, len);
+        }
+
+        @Override
+        public void flush() {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
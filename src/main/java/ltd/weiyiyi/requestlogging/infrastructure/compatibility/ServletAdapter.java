@@ -15,6 +15,20 @@ public interface ServletAdapter {
      */
     String getHeader(String headerName);
 
+    /**
+     * 获取所有请求头名称
+     *
+     * @return 请求头名称
+     */
+    java.util.Enumeration<String> getHeaderNames();
+
+    /**
+     * 获取请求内容类型
+     *
+     * @return 内容类型
+     */
+    String getContentType();
+
     /**
      * 获取远程地址
      *
@@ -50,6 +64,16 @@ public interface ServletAdapter {
      */
     int getContentLength();
 
+    /**
+     * 获取请求属性
+     *
+     * @param name 属性名
+     * @return 属性值，不支持时返回null
+     */
+    default Object getAttribute(String name) {
+        return null;
+    }
+
     /**
      * 获取请求体字节数组
      *
@@ -57,6 +81,15 @@ public interface ServletAdapter {
      */
     byte[] getContentAsByteArray();
 
+    /**
+     * 请求体是否超过捕获上限，仅捕获了前缀
+     *
+     * @return 是否被截断
+     */
+    default boolean isContentTruncated() {
+        return false;
+    }
+
     /**
      * 获取响应状态
      *
@@ -71,6 +104,15 @@ public interface ServletAdapter {
      */
     byte[] getResponseContentAsByteArray();
 
+    /**
+     * 响应体是否超过捕获上限，仅捕获了前缀
+     *
+     * @return 是否被截断
+     */
+    default boolean isResponseContentTruncated() {
+        return false;
+    }
+
     /**
      * 复制响应体到原始响应
      *
@@ -1 +1,134 @@
- 
\ No newline at end of file
+package ltd.weiyiyi.requestlogging.infrastructure.compatibility;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * 基于 Servlet 请求/响应对象的适配器实现
+ * 请求体与响应体优先取 {@link BoundedCaptureRequestWrapper}、{@link BoundedCaptureResponseWrapper} 捕获的前缀，
+ * 也兼容 Spring 的 ContentCaching 包装器
+ *
+ * @author weihan
+ */
+public class ServletFilterAdapter implements ServletAdapter {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+
+    /**
+     * @param request 请求对象
+     * @param response 响应对象，可以为null
+     */
+    public ServletFilterAdapter(HttpServletRequest request, HttpServletResponse response) {
+        this.request = request;
+        this.response = response;
+    }
+
+    public HttpServletRequest getRequest() {
+        return request;
+    }
+
+    public HttpServletResponse getResponse() {
+        return response;
+    }
+
+    @Override
+    public String getHeader(String headerName) {
+        return request.getHeader(headerName);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        Enumeration<String> headerNames = request.getHeaderNames();
+        return headerNames != null ? headerNames : Collections.emptyEnumeration();
+    }
+
+    @Override
+    public String getContentType() {
+        return request.getContentType();
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return request.getRemoteAddr();
+    }
+
+    @Override
+    public String getRequestURI() {
+        return request.getRequestURI();
+    }
+
+    @Override
+    public String getMethod() {
+        return request.getMethod();
+    }
+
+    @Override
+    public String getQueryString() {
+        return request.getQueryString();
+    }
+
+    @Override
+    public int getContentLength() {
+        return request.getContentLength();
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return request.getAttribute(name);
+    }
+
+    @Override
+    public byte[] getContentAsByteArray() {
+        if (request instanceof BoundedCaptureRequestWrapper captureRequest) {
+            return captureRequest.getContentAsByteArray();
+        }
+        if (request instanceof ContentCachingRequestWrapper cachingRequest) {
+            return cachingRequest.getContentAsByteArray();
+        }
+        return EMPTY;
+    }
+
+    @Override
+    public boolean isContentTruncated() {
+        return request instanceof BoundedCaptureRequestWrapper captureRequest && captureRequest.isContentTruncated();
+    }
+
+    @Override
+    public int getStatus() {
+        return response != null ? response.getStatus() : 0;
+    }
+
+    @Override
+    public byte[] getResponseContentAsByteArray() {
+        if (response instanceof BoundedCaptureResponseWrapper captureResponse) {
+            return captureResponse.getContentAsByteArray();
+        }
+        if (response instanceof ContentCachingResponseWrapper cachingResponse) {
+            return cachingResponse.getContentAsByteArray();
+        }
+        return EMPTY;
+    }
+
+    @Override
+    public boolean isResponseContentTruncated() {
+        return response instanceof BoundedCaptureResponseWrapper captureResponse && captureResponse.isContentTruncated();
+    }
+
+    /**
+     * {@link BoundedCaptureResponseWrapper} 已直接写入原始响应，无需复制
+     */
+    @Override
+    public void copyBodyToResponse() throws IOException {
+        if (response instanceof ContentCachingResponseWrapper cachingResponse) {
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+}
@@ -2,6 +2,8 @@ package ltd.weiyiyi.requestlogging.infrastructure.config;
 
 import ltd.weiyiyi.requestlogging.application.service.RequestLoggingService;
 import ltd.weiyiyi.requestlogging.infrastructure.filter.RequestLoggingFilter;
+import ltd.weiyiyi.requestlogging.infrastructure.metrics.RequestLatencyEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
@@ -34,4 +36,19 @@ public class RequestLoggingAutoConfiguration {
     public RequestLoggingFilter requestLoggingFilter(RequestLoggingService loggingService) {
         return new RequestLoggingFilter(loggingService);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 存在 Actuator 时注册接口延迟统计端点
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    @ConditionalOnProperty(prefix = "request-logging", name = "latency-metrics-enabled", havingValue = "true", matchIfMissing = true)
+    static class LatencyEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public RequestLatencyEndpoint requestLatencyEndpoint(RequestLoggingService loggingService) {
+            return new RequestLatencyEndpoint(loggingService.getLatencyRegistry());
+        }
+    }
+}
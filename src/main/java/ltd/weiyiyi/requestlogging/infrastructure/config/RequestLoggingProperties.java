@@ -2,8 +2,11 @@ package ltd.weiyiyi.requestlogging.infrastructure.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 请求日志配置属性
@@ -24,7 +27,19 @@ public class RequestLoggingProperties {
     private String logLevel = "INFO";
 
     /**
-     * 排除的参数名称列表
+     * 需要记录的请求路径规则，为空时记录所有请求。
+     * 格式为 "[方法[,方法...]] 路径模式"，路径模式为 Ant 风格，例如 "/api/**"、"GET,POST /orders/*"
+     */
+    private List<String> includePaths = new ArrayList<>();
+
+    /**
+     * 不记录的请求路径规则，格式同 includePaths，优先于 includePaths
+     */
+    private List<String> excludePaths = new ArrayList<>(List.of(
+            "/actuator/**", "/swagger*/**", "/v3/api-docs/**", "/webjars/**", "/favicon.ico"));
+
+    /**
+     * 需要脱敏的参数名称列表，忽略大小写，作用于查询字符串、表单请求体以及任意层级的 JSON 字段
      */
     private String[] excludeParameters = {};
 
@@ -38,16 +53,92 @@ public class RequestLoggingProperties {
      */
     private int responseMaxLength = 1000;
 
+    /**
+     * 是否启用交换日志模式：每个请求在完成时只输出一条包含请求与响应信息的记录，
+     * 请求体在应用读取后捕获，耗时按 System.nanoTime() 计算
+     */
+    private boolean exchangeLogging = false;
+
+    /**
+     * 是否按接口统计延迟直方图，统计不受采样率影响
+     */
+    private boolean latencyMetricsEnabled = true;
+
+    /**
+     * 延迟统计窗口长度，例如 1m、30s
+     */
+    private String latencyWindow = "1m";
+
+    /**
+     * 最多单独统计的接口数，超出后统一计入 OTHER
+     */
+    private int latencyMaxEndpoints = 500;
+
+    /**
+     * URI到路由模板的缓存容量
+     */
+    private int routeCacheSize = 10000;
+
     /**
      * 是否启用异步日志
      */
     private boolean asyncLogging = false;
 
     /**
-     * 采样率 (0.0-1.0)
+     * 异步日志环形缓冲区容量，会向上取整为2的幂
+     */
+    private int asyncRingBufferSize = 8192;
+
+    /**
+     * 异步日志消费线程数
+     */
+    private int asyncConsumerThreads = 1;
+
+    /**
+     * 异步消费线程等待策略：blocking/sleeping/yielding/busy-spin
+     */
+    private String asyncWaitStrategy = "sleeping";
+
+    /**
+     * 异步缓冲区已满时的处理策略：block/drop-newest/drop-oldest
+     */
+    private String asyncOverflowPolicy = "block";
+
+    /**
+     * 采样率 (0.0-1.0)，按追踪ID的哈希值决定，同一请求的各条日志一致
      */
     private double samplingRate = 1.0;
 
+    /**
+     * 按路由配置的采样率，键为 Ant 风格路径模式（如 /orders/{id}、/internal/**），按配置顺序第一个匹配的生效
+     */
+    private Map<String, Double> routeSamplingRates = new LinkedHashMap<>();
+
+    /**
+     * 自适应采样的目标日志条数/秒，大于0时启用，按实际请求速率动态调整全局采样率
+     */
+    private double samplingTargetPerSecond = 0;
+
+    /**
+     * 自适应采样率的调整周期
+     */
+    private String samplingAdjustInterval = "5s";
+
+    /**
+     * 是否启用尾部采样：请求完成后再决定是否输出日志，出错、5xx、慢请求总会保留，其余按采样率保留
+     */
+    private boolean tailSampling = false;
+
+    /**
+     * 尾部采样的慢请求阈值，例如 500ms、1s
+     */
+    private String slowRequestThreshold = "1s";
+
+    /**
+     * 按路由配置的慢请求阈值，键为 Ant 风格路径模式，按配置顺序第一个匹配的生效
+     */
+    private Map<String, String> routeSlowThresholds = new LinkedHashMap<>();
+
     /**
      * 是否记录请求头
      */
@@ -58,6 +149,16 @@ public class RequestLoggingProperties {
      */
     private String[] excludeHeaders = {"Authorization", "Cookie"};
 
+    /**
+     * 只捕获的请求头名称列表，为空时捕获除 excludeHeaders 外的全部请求头
+     */
+    private List<String> captureHeaders = new ArrayList<>();
+
+    /**
+     * 捕获时需要掩码的请求头名称列表，名称包含 authorization/cookie/token 的请求头总会被掩码
+     */
+    private List<String> maskHeaders = new ArrayList<>(List.of("Proxy-Authorization", "Set-Cookie", "X-Api-Key"));
+
     /**
      * 是否记录请求体
      */
@@ -69,7 +170,7 @@ public class RequestLoggingProperties {
     private int requestBodyMaxLength = 1000;
 
     /**
-     * 是否启用追踪ID
+     * 是否启用追踪ID：沿用上游传入的追踪ID（traceIdHeader 或 W3C traceparent），并写入响应头
      */
     private boolean enableTraceId = true;
 
@@ -93,6 +194,12 @@ public class RequestLoggingProperties {
      */
     private String timestampFormat = "yyyy-MM-dd HH:mm:ss.SSS";
 
+    /**
+     * 自定义日志模式，例如 "%timestamp %flag %method %uri %status %duration{}ms %traceId"，
+     * 为空时使用默认的多行布局
+     */
+    private String logPattern;
+
     /**
      * 是否显示时间戳
      */
@@ -209,25 +316,83 @@ public class RequestLoggingProperties {
     private String logFileBaseDir = "data";
 
     /**
-     * 日志文件策略：daily/size
+     * 日志文件策略：daily/time/size/mmap
      */
     private String logFileStrategy = "daily";
 
+    /**
+     * 滚动周期（time策略），整分钟且在1分钟到1天之间，例如 15m、1h、1d
+     */
+    private String rollingPeriod = "1h";
+
+    /**
+     * 文件日志输出格式：text（多行文本）/json（JSON Lines）/binary（带符号表的二进制格式，仅非 mmap 策略）
+     */
+    private String fileOutputFormat = "text";
+
+    /**
+     * 文件分片数（非 mmap 策略），大于1时每个写入线程固定写入日志目录下的一个 shard-NN 子目录，
+     * 各分片有独立的写入器与文件通道，保留清理按所有分片合计；0 表示使用CPU核数。
+     * 分片需要 json 或 binary 输出格式才能合并，text 格式下忽略该配置只使用一个分片；
+     * 开启异步日志时只有消费线程写入文件，分片数不超过 asyncConsumerThreads
+     */
+    private int fileShards = 1;
+
     /**
      * 单个文件大小限制（size策略）
      */
     private String maxFileSize = "100MB";
 
     /**
-     * 日志保留天数（daily策略）
+     * 内存映射日志段大小（mmap策略），最大2GB
+     */
+    private String mappedSegmentSize = "64MB";
+
+    /**
+     * 日志保留天数，超过的日志文件由后台保留管理器删除，不大于0表示不限制
      */
     private int maxHistory = 30;
 
+    /**
+     * 最多保留的日志文件数（包括当前文件与压缩文件），不大于0表示不限制
+     */
+    private int maxLogFiles = 0;
+
+    /**
+     * 所有日志文件的总大小上限，超过时从最旧的文件开始删除，0表示不限制
+     */
+    private String maxTotalSize = "0";
+
+    /**
+     * 保留清理的执行间隔
+     */
+    private String retentionCheckInterval = "1m";
+
+    /**
+     * 是否在后台压缩已滚动的日志文件
+     */
+    private boolean compressRolledFiles = false;
+
+    /**
+     * 压缩编解码器名称，内置 gzip，可通过 SPI 扩展
+     */
+    private String compressionCodec = "gzip";
+
+    /**
+     * 并行压缩的线程数
+     */
+    private int compressionThreads = 2;
+
     /**
      * 是否启用控制台日志
      */
     private boolean enableConsoleLogging = true;
 
+    /**
+     * 控制台日志输出格式：text（多行文本）/json（JSON Lines）
+     */
+    private String consoleOutputFormat = "text";
+
     /**
      * 需要添加 TraceID 的包路径列表
      */
@@ -298,6 +463,22 @@ public class RequestLoggingProperties {
         this.excludeParameters = excludeParameters;
     }
 
+    public List<String> getIncludePaths() {
+        return includePaths;
+    }
+
+    public void setIncludePaths(List<String> includePaths) {
+        this.includePaths = includePaths;
+    }
+
+    public List<String> getExcludePaths() {
+        return excludePaths;
+    }
+
+    public void setExcludePaths(List<String> excludePaths) {
+        this.excludePaths = excludePaths;
+    }
+
     public boolean isLogResponse() {
         return logResponse;
     }
@@ -314,6 +495,46 @@ public class RequestLoggingProperties {
         this.responseMaxLength = responseMaxLength;
     }
 
+    public boolean isExchangeLogging() {
+        return exchangeLogging;
+    }
+
+    public void setExchangeLogging(boolean exchangeLogging) {
+        this.exchangeLogging = exchangeLogging;
+    }
+
+    public boolean isLatencyMetricsEnabled() {
+        return latencyMetricsEnabled;
+    }
+
+    public void setLatencyMetricsEnabled(boolean latencyMetricsEnabled) {
+        this.latencyMetricsEnabled = latencyMetricsEnabled;
+    }
+
+    public String getLatencyWindow() {
+        return latencyWindow;
+    }
+
+    public void setLatencyWindow(String latencyWindow) {
+        this.latencyWindow = latencyWindow;
+    }
+
+    public int getLatencyMaxEndpoints() {
+        return latencyMaxEndpoints;
+    }
+
+    public void setLatencyMaxEndpoints(int latencyMaxEndpoints) {
+        this.latencyMaxEndpoints = latencyMaxEndpoints;
+    }
+
+    public int getRouteCacheSize() {
+        return routeCacheSize;
+    }
+
+    public void setRouteCacheSize(int routeCacheSize) {
+        this.routeCacheSize = routeCacheSize;
+    }
+
     public boolean isAsyncLogging() {
         return asyncLogging;
     }
@@ -322,6 +543,38 @@ public class RequestLoggingProperties {
         this.asyncLogging = asyncLogging;
     }
 
+    public int getAsyncRingBufferSize() {
+        return asyncRingBufferSize;
+    }
+
+    public void setAsyncRingBufferSize(int asyncRingBufferSize) {
+        this.asyncRingBufferSize = asyncRingBufferSize;
+    }
+
+    public int getAsyncConsumerThreads() {
+        return asyncConsumerThreads;
+    }
+
+    public void setAsyncConsumerThreads(int asyncConsumerThreads) {
+        this.asyncConsumerThreads = asyncConsumerThreads;
+    }
+
+    public String getAsyncWaitStrategy() {
+        return asyncWaitStrategy;
+    }
+
+    public void setAsyncWaitStrategy(String asyncWaitStrategy) {
+        this.asyncWaitStrategy = asyncWaitStrategy;
+    }
+
+    public String getAsyncOverflowPolicy() {
+        return asyncOverflowPolicy;
+    }
+
+    public void setAsyncOverflowPolicy(String asyncOverflowPolicy) {
+        this.asyncOverflowPolicy = asyncOverflowPolicy;
+    }
+
     public double getSamplingRate() {
         return samplingRate;
     }
@@ -330,6 +583,54 @@ public class RequestLoggingProperties {
         this.samplingRate = samplingRate;
     }
 
+    public Map<String, Double> getRouteSamplingRates() {
+        return routeSamplingRates;
+    }
+
+    public void setRouteSamplingRates(Map<String, Double> routeSamplingRates) {
+        this.routeSamplingRates = routeSamplingRates;
+    }
+
+    public double getSamplingTargetPerSecond() {
+        return samplingTargetPerSecond;
+    }
+
+    public void setSamplingTargetPerSecond(double samplingTargetPerSecond) {
+        this.samplingTargetPerSecond = samplingTargetPerSecond;
+    }
+
+    public String getSamplingAdjustInterval() {
+        return samplingAdjustInterval;
+    }
+
+    public void setSamplingAdjustInterval(String samplingAdjustInterval) {
+        this.samplingAdjustInterval = samplingAdjustInterval;
+    }
+
+    public boolean isTailSampling() {
+        return tailSampling;
+    }
+
+    public void setTailSampling(boolean tailSampling) {
+        this.tailSampling = tailSampling;
+    }
+
+    public String getSlowRequestThreshold() {
+        return slowRequestThreshold;
+    }
+
+    public void setSlowRequestThreshold(String slowRequestThreshold) {
+        this.slowRequestThreshold = slowRequestThreshold;
+    }
+
+    public Map<String, String> getRouteSlowThresholds() {
+        return routeSlowThresholds;
+    }
+
+    public void setRouteSlowThresholds(Map<String, String> routeSlowThresholds) {
+        this.routeSlowThresholds = routeSlowThresholds;
+    }
+
     public boolean isLogHeaders() {
         return logHeaders;
     }
@@ -338,6 +639,22 @@ public class RequestLoggingProperties {
         this.logHeaders = logHeaders;
     }
 
+    public List<String> getCaptureHeaders() {
+        return captureHeaders;
+    }
+
+    public void setCaptureHeaders(List<String> captureHeaders) {
+        this.captureHeaders = captureHeaders;
+    }
+
+    public List<String> getMaskHeaders() {
+        return maskHeaders;
+    }
+
+    public void setMaskHeaders(List<String> maskHeaders) {
+        this.maskHeaders = maskHeaders;
+    }
+
     public String[] getExcludeHeaders() {
         return excludeHeaders;
     }
@@ -522,6 +839,14 @@ public class RequestLoggingProperties {
         this.timestampFormat = timestampFormat;
     }
 
+    public String getLogPattern() {
+        return logPattern;
+    }
+
+    public void setLogPattern(String logPattern) {
+        this.logPattern = logPattern;
+    }
+
     public boolean isShowTimestamp() {
         return showTimestamp;
     }
@@ -586,6 +911,14 @@ public class RequestLoggingProperties {
         this.logFileBaseDir = logFileBaseDir;
     }
 
+    public String getRollingPeriod() {
+        return rollingPeriod;
+    }
+
+    public void setRollingPeriod(String rollingPeriod) {
+        this.rollingPeriod = rollingPeriod;
+    }
+
     public String getLogFileStrategy() {
         return logFileStrategy;
     }
@@ -594,6 +927,22 @@ public class RequestLoggingProperties {
         this.logFileStrategy = logFileStrategy;
     }
 
+    public String getFileOutputFormat() {
+        return fileOutputFormat;
+    }
+
+    public void setFileOutputFormat(String fileOutputFormat) {
+        this.fileOutputFormat = fileOutputFormat;
+    }
+
+    public int getFileShards() {
+        return fileShards;
+    }
+
+    public void setFileShards(int fileShards) {
+        this.fileShards = fileShards;
+    }
+
     public String getMaxFileSize() {
         return maxFileSize;
     }
@@ -602,6 +951,14 @@ public class RequestLoggingProperties {
         this.maxFileSize = maxFileSize;
     }
 
+    public String getMappedSegmentSize() {
+        return mappedSegmentSize;
+    }
+
+    public void setMappedSegmentSize(String mappedSegmentSize) {
+        this.mappedSegmentSize = mappedSegmentSize;
+    }
+
     public int getMaxHistory() {
         return maxHistory;
     }
@@ -610,6 +967,54 @@ public class RequestLoggingProperties {
         this.maxHistory = maxHistory;
     }
 
+    public int getMaxLogFiles() {
+        return maxLogFiles;
+    }
+
+    public void setMaxLogFiles(int maxLogFiles) {
+        this.maxLogFiles = maxLogFiles;
+    }
+
+    public String getMaxTotalSize() {
+        return maxTotalSize;
+    }
+
+    public void setMaxTotalSize(String maxTotalSize) {
+        this.maxTotalSize = maxTotalSize;
+    }
+
+    public String getRetentionCheckInterval() {
+        return retentionCheckInterval;
+    }
+
+    public void setRetentionCheckInterval(String retentionCheckInterval) {
+        this.retentionCheckInterval = retentionCheckInterval;
+    }
+
+    public boolean isCompressRolledFiles() {
+        return compressRolledFiles;
+    }
+
+    public void setCompressRolledFiles(boolean compressRolledFiles) {
+        this.compressRolledFiles = compressRolledFiles;
+    }
+
+    public String getCompressionCodec() {
+        return compressionCodec;
+    }
+
+    public void setCompressionCodec(String compressionCodec) {
+        this.compressionCodec = compressionCodec;
+    }
+
+    public int getCompressionThreads() {
+        return compressionThreads;
+    }
+
+    public void setCompressionThreads(int compressionThreads) {
+        this.compressionThreads = compressionThreads;
+    }
+
     public boolean isEnableConsoleLogging() {
         return enableConsoleLogging;
     }
@@ -618,6 +1023,14 @@ public class RequestLoggingProperties {
         this.enableConsoleLogging = enableConsoleLogging;
     }
 
+    public String getConsoleOutputFormat() {
+        return consoleOutputFormat;
+    }
+
+    public void setConsoleOutputFormat(String consoleOutputFormat) {
+        this.consoleOutputFormat = consoleOutputFormat;
+    }
+
     public List<String> getTracePackages() {
         return tracePackages;
     }
@@ -1,11 +1,15 @@
 package ltd.weiyiyi.requestlogging.infrastructure.filter;
 
 import ltd.weiyiyi.requestlogging.application.service.RequestLoggingService;
+import ltd.weiyiyi.requestlogging.domain.model.RequestExchange;
+import ltd.weiyiyi.requestlogging.infrastructure.compatibility.BoundedCaptureRequestWrapper;
+import ltd.weiyiyi.requestlogging.infrastructure.compatibility.BoundedCaptureResponseWrapper;
+import ltd.weiyiyi.requestlogging.infrastructure.compatibility.ServletFilterAdapter;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.route.PathRuleMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.Ordered;
-import org.springframework.web.util.ContentCachingRequestWrapper;
-import org.springframework.web.util.ContentCachingResponseWrapper;
 
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
@@ -25,10 +29,15 @@ public class RequestLoggingFilter implements Filter, Ordered {
 
     private static final Logger logger = LoggerFactory.getLogger(RequestLoggingFilter.class);
     private final RequestLoggingService requestLoggingService;
+    private final PathRuleMatcher includeMatcher;
+    private final PathRuleMatcher excludeMatcher;
     private int order = Ordered.LOWEST_PRECEDENCE - 10;
 
     public RequestLoggingFilter(RequestLoggingService requestLoggingService) {
         this.requestLoggingService = requestLoggingService;
+        RequestLoggingProperties properties = requestLoggingService.getProperties();
+        this.includeMatcher = PathRuleMatcher.compile(properties.getIncludePaths());
+        this.excludeMatcher = PathRuleMatcher.compile(properties.getExcludePaths());
     }
 
     @Override
@@ -56,28 +65,142 @@ public class RequestLoggingFilter implements Filter, Ordered {
             return;
         }
 
-        ContentCachingRequestWrapper wrappedRequest = new ContentCachingRequestWrapper(httpRequest);
-        ContentCachingResponseWrapper wrappedResponse = new ContentCachingResponseWrapper(httpResponse);
+        long startNanos = System.nanoTime();
+        ServletFilterAdapter rawExchange = new ServletFilterAdapter(httpRequest, httpResponse);
+        try {
+            // 先做采样决定，未被采样的请求不包装请求/响应（尾部采样需要等请求完成才能决定，仍然包装）
+            boolean sampled = requestLoggingService.isSampled(rawExchange);
+            writeTraceIdHeader(rawExchange, httpResponse);
+            if (!sampled && !requestLoggingService.isTailSampling()) {
+                doFilterUnsampled(httpRequest, httpResponse, rawExchange, chain);
+                return;
+            }
+
+            BoundedCaptureRequestWrapper wrappedRequest = new BoundedCaptureRequestWrapper(httpRequest, requestCaptureLimit());
+            BoundedCaptureResponseWrapper wrappedResponse = new BoundedCaptureResponseWrapper(httpResponse, responseCaptureLimit());
+            ServletFilterAdapter exchange = new ServletFilterAdapter(wrappedRequest, wrappedResponse);
+            if (requestLoggingService.isExchangeLogging()) {
+                doFilterExchange(wrappedRequest, wrappedResponse, exchange, chain);
+            } else {
+                doFilterStartEnd(wrappedRequest, wrappedResponse, exchange, chain);
+            }
+        } finally {
+            // 延迟统计不受采样影响
+            requestLoggingService.recordLatency(rawExchange, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 在响应开始写出之前把追踪ID放到响应头，便于客户端关联日志
+     */
+    private void writeTraceIdHeader(ServletFilterAdapter exchange, HttpServletResponse response) {
+        RequestLoggingProperties properties = requestLoggingService.getProperties();
+        String header = properties.getTraceIdHeader();
+        if (properties.isEnableTraceId() && header != null && !header.isEmpty()) {
+            response.setHeader(header, requestLoggingService.getTraceId(exchange));
+        }
+    }
+
+    /**
+     * 未被采样的请求：直接传递原始请求/响应对象，不捕获请求体与响应体，只在出错或返回5xx时输出日志
+     */
+    private void doFilterUnsampled(HttpServletRequest request, HttpServletResponse response,
+                                   ServletFilterAdapter exchange, FilterChain chain) throws IOException, ServletException {
+        RequestExchange requestExchange = requestLoggingService.isExchangeLogging()
+                ? requestLoggingService.startExchange(exchange) : null;
+        Exception failure = null;
+        try {
+            chain.doFilter(request, response);
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (requestExchange != null) {
+                requestLoggingService.completeExchange(requestExchange, exchange, failure);
+            } else if (failure != null) {
+                requestLoggingService.logError(exchange, failure);
+            } else {
+                requestLoggingService.logResponse(exchange);
+            }
+            requestLoggingService.clearThreadLocals();
+        }
+    }
+
+    /**
+     * 默认模式：请求开始、结束（或出错）时各输出一条日志
+     */
+    private void doFilterStartEnd(BoundedCaptureRequestWrapper wrappedRequest, BoundedCaptureResponseWrapper wrappedResponse,
+                                  ServletFilterAdapter exchange, FilterChain chain) throws IOException, ServletException {
+        try {
+            requestLoggingService.logRequest(exchange);
+            chain.doFilter(wrappedRequest, wrappedResponse);
+            requestLoggingService.logResponse(exchange);
+            exchange.copyBodyToResponse();
+        } catch (Exception e) {
+            requestLoggingService.logError(exchange, e);
+            throw e;
+        } finally {
+            requestLoggingService.clearThreadLocals();
+        }
+    }
 
+    /**
+     * 交换日志模式：请求完成后输出一条同时包含请求与响应的日志
+     */
+    private void doFilterExchange(BoundedCaptureRequestWrapper wrappedRequest, BoundedCaptureResponseWrapper wrappedResponse,
+                                  ServletFilterAdapter exchange, FilterChain chain) throws IOException, ServletException {
+        RequestExchange requestExchange = requestLoggingService.startExchange(exchange);
+        Exception failure = null;
         try {
-            requestLoggingService.logRequest(wrappedRequest);
             chain.doFilter(wrappedRequest, wrappedResponse);
-            requestLoggingService.logResponse(wrappedRequest, wrappedResponse);
-            wrappedResponse.copyBodyToResponse();
         } catch (Exception e) {
-            requestLoggingService.logError(wrappedRequest, wrappedResponse, e);
+            failure = e;
             throw e;
         } finally {
+            requestLoggingService.completeExchange(requestExchange, exchange, failure);
             requestLoggingService.clearThreadLocals();
         }
     }
 
+    /**
+     * 请求体捕获上限（字节）
+     * requestBodyMaxLength 按字符计，UTF-8下一个字符最多3字节（代理对4字节对应2个字符）
+     */
+    private int requestCaptureLimit() {
+        RequestLoggingProperties properties = requestLoggingService.getProperties();
+        return properties.isLogRequestBody() ? captureLimit(properties.getRequestBodyMaxLength()) : 0;
+    }
+
+    /**
+     * 响应体捕获上限（字节），换算方式同请求体
+     */
+    private int responseCaptureLimit() {
+        RequestLoggingProperties properties = requestLoggingService.getProperties();
+        return properties.isLogResponse() ? captureLimit(properties.getResponseMaxLength()) : 0;
+    }
+
+    private static int captureLimit(int maxChars) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, (long) maxChars * 3);
+    }
+
+    /**
+     * 按 excludePaths、includePaths 判断是否跳过请求，排除规则优先；未配置包含规则时包含所有请求
+     */
     protected boolean shouldNotFilter(HttpServletRequest request) {
-        String path = request.getRequestURI();
-        return path.contains("/actuator") || 
-               path.contains("/swagger") || 
-               path.contains("/v3/api-docs") ||
-               path.contains("/webjars") ||
-               path.contains("/favicon.ico");
+        String path = pathWithinApplication(request);
+        String method = request.getMethod();
+        if (excludeMatcher.matches(method, path)) {
+            return true;
+        }
+        return !includeMatcher.isEmpty() && !includeMatcher.matches(method, path);
+    }
+
+    private static String pathWithinApplication(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (uri != null && contextPath != null && !contextPath.isEmpty() && uri.startsWith(contextPath)) {
+            return uri.substring(contextPath.length());
+        }
+        return uri;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,108 @@
+package ltd.weiyiyi.requestlogging.infrastructure.formatter;
+
+import com.alibaba.fastjson2.JSONWriter;
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.layout.Utf8Buffer;
+import ltd.weiyiyi.requestlogging.infrastructure.util.LogTimestamps;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * JSON Lines 编码器
+ * 使用 fastjson2 的 {@link JSONWriter} 按固定字段顺序把日志直接编码为UTF-8字节，一条记录一行，
+ * 值为null的字段不输出。字段顺序：ts、event、traceId、method、uri、route、query、clientIp、status、
+ * durationMs、headers、requestBody、responseBody、exception、exceptionMessage、stackTrace
+ *
+ * @author weihan
+ */
+public class JsonLinesEncoder {
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private final ThreadLocal<Utf8Buffer> buffers = ThreadLocal.withInitial(() -> new Utf8Buffer(INITIAL_BUFFER_SIZE));
+
+    /**
+     * 编码一条日志，结果不含换行符
+     * 返回的是当前线程复用的缓冲区，再次调用本方法前必须使用完毕
+     *
+     * @param type 事件类型
+     * @param log 请求日志对象
+     * @return 线程私有的缓冲区
+     */
+    public Utf8Buffer encode(LogEventType type, RequestLog log) {
+        Utf8Buffer buffer = buffers.get();
+        buffer.reset(MAX_RETAINED_BUFFER_SIZE);
+        encode(type, log, buffer);
+        return buffer;
+    }
+
+    /**
+     * 编码一条日志并追加到指定缓冲区，结果不含换行符
+     *
+     * @param type 事件类型
+     * @param log 请求日志对象
+     * @param out 输出缓冲区
+     */
+    public void encode(LogEventType type, RequestLog log, Utf8Buffer out) {
+        try (JSONWriter writer = JSONWriter.ofUTF8()) {
+            writer.startObject();
+            writer.writeName("ts");
+            writer.writeColon();
+            writer.writeInt64(LogTimestamps.recordTimestamp(type, log));
+            writer.writeName("event");
+            writer.writeColon();
+            writer.writeString(type.name());
+            writeString(writer, "traceId", log.getTraceId());
+            writeString(writer, "method", log.getMethod());
+            writeString(writer, "uri", log.getUri());
+            writeString(writer, "route", log.getRoute());
+            writeString(writer, "query", log.getQueryString());
+            writeString(writer, "clientIp", log.getClientIp());
+            if (type != LogEventType.REQUEST_START) {
+                writer.writeName("status");
+                writer.writeColon();
+                writer.writeInt32(log.getStatus());
+                writer.writeName("durationMs");
+                writer.writeColon();
+                writer.writeInt64(log.getProcessingTime());
+            }
+            writeHeaders(writer, log.getHeaders());
+            writeString(writer, "requestBody", log.getRequestBody());
+            writeString(writer, "responseBody", log.getResponseBody());
+            writeString(writer, "exception", log.getException());
+            writeString(writer, "exceptionMessage", log.getExceptionMessage());
+            writeString(writer, "stackTrace", log.getStackTrace());
+            writer.endObject();
+            writer.flushTo(out.asOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeString(JSONWriter writer, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        writer.writeName(name);
+        writer.writeColon();
+        writer.writeString(value);
+    }
+
+    private static void writeHeaders(JSONWriter writer, Map<String, String> headers) {
+        if (headers == null) {
+            return;
+        }
+        writer.writeName("headers");
+        writer.writeColon();
+        writer.startObject();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            writer.writeName(header.getKey());
+            writer.writeColon();
+            writer.writeString(header.getValue());
+        }
+        writer.endObject();
+    }
+}
@@ -1,259 +1,71 @@
 package ltd.weiyiyi.requestlogging.infrastructure.formatter;
 
-import com.alibaba.fastjson2.JSON;
-import com.alibaba.fastjson2.JSONWriter;
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
 import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
-import ltd.weiyiyi.requestlogging.infrastructure.color.ColorPair;
-import ltd.weiyiyi.requestlogging.infrastructure.color.ColorProcessorFactory;
 import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
-import ltd.weiyiyi.requestlogging.infrastructure.util.SystemMetricsCollector;
-
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.Collections;
-import java.util.Map;
+import ltd.weiyiyi.requestlogging.infrastructure.layout.LayoutCompiler;
+import ltd.weiyiyi.requestlogging.infrastructure.layout.LogLayout;
+import ltd.weiyiyi.requestlogging.infrastructure.layout.Utf8Buffer;
 
 /**
  * 日志格式化器
+ * 布局在构造时编译完成，格式化时直接写入线程私有的UTF-8缓冲区
  */
 public class LogFormatter {
-    private final RequestLoggingProperties properties;
-    private final ColorPair requestStartColor;
-    private final ColorPair requestEndColor;
-    private final ColorPair errorColor;
-    private final DateTimeFormatter timestampFormatter;
+    private static final int INITIAL_BUFFER_SIZE = 2048;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private final LogLayout requestStartLayout;
+    private final LogLayout requestCompleteLayout;
+    private final LogLayout requestErrorLayout;
+    private final LogLayout exchangeLayout;
+    private final ThreadLocal<Utf8Buffer> buffers = ThreadLocal.withInitial(() -> new Utf8Buffer(INITIAL_BUFFER_SIZE));
 
     public LogFormatter(RequestLoggingProperties properties) {
-        this.properties = properties;
-        this.requestStartColor = new ColorPair(properties.getRequestStartColor(), null);
-        this.requestEndColor = new ColorPair(properties.getRequestEndColor(), null);
-        this.errorColor = new ColorPair(properties.getErrorColor(), null);
-        this.timestampFormatter = DateTimeFormatter.ofPattern(properties.getTimestampFormat())
-            .withZone(ZoneId.systemDefault());
+        LayoutCompiler compiler = new LayoutCompiler(properties);
+        this.requestStartLayout = compiler.compile(LogEventType.REQUEST_START);
+        this.requestCompleteLayout = compiler.compile(LogEventType.REQUEST_COMPLETE);
+        this.requestErrorLayout = compiler.compile(LogEventType.REQUEST_ERROR);
+        this.exchangeLayout = compiler.compile(LogEventType.EXCHANGE);
     }
 
     public String logRequestStart(RequestLog requestLog) {
-        StringBuilder builder = new StringBuilder();
-        
-        // Separator
-        builder.append(properties.getSeparator()).append("\n");
-
-        // Request Start Flag
-        builder.append(properties.getRequestStartFlag()).append("\n");
-        
-        // Basic Info
-        builder.append(String.format("Timestamp      : %s\n", LocalDateTime.now().format(timestampFormatter)));
-        builder.append(String.format("HTTP Method    : %s\n", requestLog.getMethod()));
-        builder.append(String.format("Endpoint       : %s\n", requestLog.getUri()));
-        builder.append(String.format("Full URL       : %s\n", buildFullUrl(requestLog)));
-        builder.append(String.format("Client IP      : %s\n", requestLog.getClientIp()));
-        
-        // Authentication (if available)
-        if (requestLog.getHeaders() != null && requestLog.getHeaders().containsKey("Authorization")) {
-            String auth = requestLog.getHeaders().get("Authorization");
-            builder.append(String.format("Authentication : %s\n", maskSensitiveData(auth)));
-        }
-        
-        builder.append(String.format("Trace ID       : %s\n", requestLog.getTraceId()));
-
-        // Headers
-        if (properties.isLogHeaders() && requestLog.getHeaders() != null && !requestLog.getHeaders().isEmpty()) {
-            builder.append("Headers        :\n");
-            formatHeaders(builder, requestLog.getHeaders());
-        }
-        
-        // Query Parameters
-        if (requestLog.getQueryString() != null && !requestLog.getQueryString().isEmpty()) {
-            builder.append("\nQuery Params   :\n");
-            formatQueryParams(builder, requestLog.getQueryString());
-        }
-        
-        // Request Body
-        if (properties.isLogRequestBody() && requestLog.getRequestBody() != null) {
-            builder.append("\nRequest Body   : \n");
-            builder.append(formatJson(requestLog.getRequestBody()));
-        }
-        
-        // Service Instance
-        builder.append("\nService Instance:\n");
-        builder.append(String.format("  - Instance ID: %s\n", getInstanceId()));
-        builder.append(String.format("  - Host       : %s\n", getHostInfo()));
-        
-        // Separator
-        //builder.append("###################");
-        builder.append(this.properties.getSeparator());
-
-        return ColorProcessorFactory.processColor(requestStartColor, builder.toString());
+        return format(LogEventType.REQUEST_START, requestLog).toString();
     }
 
     public String logRequestComplete(RequestLog requestLog) {
-        StringBuilder builder = new StringBuilder();
-        
-        // Separator
-        //builder.append("###################\n");
-        builder.append(properties.getSeparator()).append("\n");
-
-        // Request End Flag
-        builder.append(properties.getRequestEndFlag()).append("\n");
-        
-        // Basic Info
-        builder.append(String.format("Timestamp      : %s\n", LocalDateTime.now().format(timestampFormatter)));
-        builder.append(String.format("HTTP Status    : %d\n", requestLog.getStatus()));
-        builder.append(String.format("Response Time  : %dms\n", requestLog.getProcessingTime()));
-        builder.append(String.format("Trace ID       : %s\n", requestLog.getTraceId()));
-        builder.append("\n");
-        
-        // Headers
-        if (properties.isLogHeaders() && requestLog.getHeaders() != null) {
-            builder.append("Headers        :\n");
-            formatHeaders(builder, requestLog.getHeaders());
-        }
-        
-        // Response Body
-        if (properties.isLogResponse() && requestLog.getResponseBody() != null) {
-            builder.append("\nResponse Body  :\n");
-            builder.append(formatJson(requestLog.getResponseBody()));
-        }
-        
-        builder.append("\nError Details  : None");
-        
-        // Separator
-        builder.append("\n").append(properties.getSeparator());
-
-        return ColorProcessorFactory.processColor(requestEndColor, builder.toString());
+        return format(LogEventType.REQUEST_COMPLETE, requestLog).toString();
     }
 
     public String logRequestError(RequestLog requestLog) {
-        StringBuilder builder = new StringBuilder();
-        
-        // Separator
-        builder.append(properties.getSeparator()).append("\n");
-
-        // Error Flag
-        builder.append(properties.getRequestErrorFlag()).append("\n");
-        
-        // Basic Info
-        builder.append(String.format("Timestamp      : %s\n", LocalDateTime.now().format(timestampFormatter)));
-        builder.append(String.format("HTTP Status    : %d\n", requestLog.getStatus()));
-        builder.append(String.format("Response Time  : %dms\n", requestLog.getProcessingTime()));
-        builder.append(String.format("Trace ID       : %s\n", requestLog.getTraceId()));
-        builder.append("\n");
-        
-        // Headers
-        if (properties.isLogHeaders() && requestLog.getHeaders() != null) {
-            builder.append("Headers        :\n");
-            formatHeaders(builder, requestLog.getHeaders());
-            builder.append("\n");
-        }
-        
-        // Error Details
-        builder.append("Error Details  :\n");
-        if (requestLog.getException() != null) {
-            builder.append(String.format("  - Error Type   : %s\n", requestLog.getException()));
-            builder.append(String.format("  - Error Message: %s\n", requestLog.getExceptionMessage()));
-            builder.append("  - Stack Trace  : \n");
-            // 添加堆栈跟踪信息的格式化
-            if (requestLog.getStackTrace() != null) {
-                String[] stackTraceLines = requestLog.getStackTrace().split("\n");
-                for (String line : stackTraceLines) {
-                    builder.append("        ").append(line.trim()).append("\n");
-                }
-            }
-        }
-        
-        // Error Context
-        builder.append("\nError Context  :\n");
-        builder.append("  - Request Context:\n");
-        builder.append(String.format("      - Endpoint     : %s\n", requestLog.getUri()));
-        if (requestLog.getQueryString() != null) {
-            builder.append(String.format("      - Query Params : %s\n", requestLog.getQueryString()));
-        }
-        
-        // System Context
-        appendSystemContext(builder);
-        
-        // Separator
-        builder.append("\n").append(properties.getSeparator());
-
-        return ColorProcessorFactory.processColor(errorColor, builder.toString());
-    }
-
-    private void formatHeaders(StringBuilder builder, Map<String, String> headers) {
-        headers.forEach((key, value) -> {
-            String maskedValue = shouldMaskHeader(key) ? maskSensitiveData(value) : value;
-            builder.append(String.format("  - %-10s : %s\n", key, maskedValue));
-        });
-    }
-
-    private void formatQueryParams(StringBuilder builder, String queryString) {
-        String[] params = queryString.split("&");
-        for (String param : params) {
-            String[] keyValue = param.split("=");
-            if (keyValue.length == 2) {
-                builder.append(String.format("  - %-10s : %s\n", keyValue[0], keyValue[1]));
-            }
-        }
-    }
-
-    private String formatJson(Object obj) {
-        if (obj == null) {
-            return "";
-        }
-
-        if (!properties.isPrettyPrint()) {
-            return obj.toString();
-        }
-
-        try {
-            return JSON.toJSONString(obj, 
-                JSONWriter.Feature.PrettyFormat,
-                JSONWriter.Feature.WriteMapNullValue,
-                JSONWriter.Feature.WriteNullListAsEmpty)
-                .replaceAll("(?m)^(\\s+)", String.join("", Collections.nCopies(properties.getJsonIndent(), " ")));
-        } catch (Exception e) {
-            return obj.toString();
-        }
-    }
-
-    private String buildFullUrl(RequestLog requestLog) {
-        StringBuilder url = new StringBuilder();
-        url.append("https://").append(getHostInfo());
-        url.append(requestLog.getUri());
-        if (requestLog.getQueryString() != null && !requestLog.getQueryString().isEmpty()) {
-            url.append("?").append(requestLog.getQueryString());
-        }
-        return url.toString();
-    }
-
-    private boolean shouldMaskHeader(String headerName) {
-        return headerName.toLowerCase().contains("authorization") || 
-               headerName.toLowerCase().contains("cookie") ||
-               headerName.toLowerCase().contains("token");
-    }
-
-    private String maskSensitiveData(String data) {
-        if (data == null || data.length() < 8) {
-            return "*****";
-        }
-        return data.substring(0, 3) + "...***";
+        return format(LogEventType.REQUEST_ERROR, requestLog).toString();
     }
 
-    private String getInstanceId() {
-        return SystemMetricsCollector.getInstanceId();
+    public String logExchange(RequestLog requestLog) {
+        return format(LogEventType.EXCHANGE, requestLog).toString();
     }
 
-    private String getHostInfo() {
-        return SystemMetricsCollector.getHostName();
+    /**
+     * 将日志格式化为UTF-8字节
+     * 返回的是当前线程复用的缓冲区，再次调用本方法前必须使用完毕
+     *
+     * @param type 事件类型
+     * @param requestLog 请求日志对象
+     * @return 线程私有的缓冲区
+     */
+    public Utf8Buffer format(LogEventType type, RequestLog requestLog) {
+        Utf8Buffer buffer = buffers.get();
+        buffer.reset(MAX_RETAINED_BUFFER_SIZE);
+        layoutOf(type).write(requestLog, buffer);
+        return buffer;
     }
 
-    private void appendSystemContext(StringBuilder builder) {
-        builder.append("  - System Context:\n");
-        builder.append(String.format("      - CPU Load     : %.1f%%\n", SystemMetricsCollector.getCpuLoad()));
-        builder.append(String.format("      - Memory Usage : %.1fGB / %.1fGB\n", 
-            SystemMetricsCollector.getUsedMemory(), 
-            SystemMetricsCollector.getTotalMemory()));
-        builder.append(String.format("      - Thread Count : %d\n", Thread.activeCount()));
-        builder.append(String.format("      - Environment  : %s\n", SystemMetricsCollector.getEnvironment()));
+    private LogLayout layoutOf(LogEventType type) {
+        return switch (type) {
+            case REQUEST_START -> requestStartLayout;
+            case REQUEST_COMPLETE -> requestCompleteLayout;
+            case REQUEST_ERROR -> requestErrorLayout;
+            case EXCHANGE -> exchangeLayout;
+        };
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package ltd.weiyiyi.requestlogging.infrastructure.formatter;
+
+/**
+ * 日志输出格式
+ *
+ * @author weihan
+ */
+public enum OutputFormat {
+    /**
+     * 多行文本，面向人工阅读
+     */
+    TEXT,
+
+    /**
+     * JSON Lines，一条记录一行
+     */
+    JSON,
+
+    /**
+     * 二进制格式，见 {@link ltd.weiyiyi.requestlogging.infrastructure.binary.BinaryLogEncoder}
+     */
+    BINARY;
+
+    /**
+     * 根据配置名称解析输出格式
+     *
+     * @param name 格式名称
+     * @return 输出格式，无法识别时返回 TEXT
+     */
+    public static OutputFormat of(String name) {
+        if (name == null) {
+            return TEXT;
+        }
+        return switch (name.trim().toLowerCase()) {
+            case "json", "jsonl", "ndjson" -> JSON;
+            case "binary", "rlb" -> BINARY;
+            default -> TEXT;
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package ltd.weiyiyi.requestlogging.infrastructure.formatter;
+
+/**
+ * 敏感数据掩码工具类
+ *
+ * @author weihan
+ */
+public final class SensitiveData {
+    private static final String[] SENSITIVE_HEADER_KEYWORDS = {"authorization", "cookie", "token"};
+    private static final String MASK = "*****";
+    private static final String MASK_SUFFIX = "...***";
+
+    private SensitiveData() {
+    }
+
+    /**
+     * 判断请求头是否需要掩码，忽略大小写且不产生新的字符串
+     *
+     * @param headerName 请求头名称
+     * @return 是否为敏感请求头
+     */
+    public static boolean isSensitiveHeader(String headerName) {
+        for (String keyword : SENSITIVE_HEADER_KEYWORDS) {
+            int max = headerName.length() - keyword.length();
+            for (int i = 0; i <= max; i++) {
+                if (headerName.regionMatches(true, i, keyword, 0, keyword.length())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 掩码敏感数据，只保留前3个字符
+     *
+     * @param data 原始数据
+     * @return 掩码后的数据
+     */
+    public static String mask(String data) {
+        if (data == null || data.length() < 8) {
+            return MASK;
+        }
+        return data.substring(0, 3) + MASK_SUFFIX;
+    }
+}
@@ -0,0 +1,122 @@
+package ltd.weiyiyi.requestlogging.infrastructure.header;
+
+import ltd.weiyiyi.requestlogging.infrastructure.compatibility.ServletAdapter;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.SensitiveData;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 请求头捕获策略
+ * 启动时把配置的捕获、排除、掩码列表编译为按忽略大小写排序的数组，查找时二分且不产生新字符串：
+ * <ul>
+ *     <li>配置了 captureHeaders 时只按名称逐个读取这些请求头，不遍历请求中的全部请求头</li>
+ *     <li>否则遍历全部请求头并跳过 excludeHeaders</li>
+ *     <li>maskHeaders 中的请求头以及名称包含 authorization/cookie/token 的请求头在捕获时即被掩码</li>
+ * </ul>
+ * 结果保存为 {@link CapturedHeaders}
+ *
+ * @author weihan
+ */
+public final class HeaderPolicy {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final String[] captureNames;
+    private final String[] excludeNames;
+    private final String[] maskNames;
+
+    public HeaderPolicy(RequestLoggingProperties properties) {
+        this(properties.getCaptureHeaders(),
+                properties.getExcludeHeaders() != null ? Arrays.asList(properties.getExcludeHeaders()) : null,
+                properties.getMaskHeaders());
+    }
+
+    /**
+     * @param captureNames 需要捕获的请求头，为空时捕获全部
+     * @param excludeNames 不捕获的请求头
+     * @param maskNames 需要掩码的请求头
+     */
+    public HeaderPolicy(Collection<String> captureNames, Collection<String> excludeNames, Collection<String> maskNames) {
+        this.excludeNames = compile(excludeNames);
+        this.maskNames = compile(maskNames);
+        // 捕获列表中被排除的名称直接去掉
+        this.captureNames = Arrays.stream(compile(captureNames)).filter(name -> !isExcluded(name)).toArray(String[]::new);
+    }
+
+    /**
+     * 按策略捕获请求头
+     *
+     * @param request 请求适配器
+     * @return 捕获到的请求头
+     */
+    public Map<String, String> capture(ServletAdapter request) {
+        if (captureNames.length > 0) {
+            String[] entries = new String[captureNames.length * 2];
+            int size = 0;
+            for (String name : captureNames) {
+                String value = request.getHeader(name);
+                if (value != null) {
+                    entries[size * 2] = name;
+                    entries[size * 2 + 1] = isMasked(name) ? SensitiveData.mask(value) : value;
+                    size++;
+                }
+            }
+            return new CapturedHeaders(entries, size);
+        }
+
+        Enumeration<String> headerNames = request.getHeaderNames();
+        if (headerNames == null) {
+            return CapturedHeaders.empty();
+        }
+        String[] entries = new String[INITIAL_CAPACITY * 2];
+        int size = 0;
+        while (headerNames.hasMoreElements()) {
+            String name = headerNames.nextElement();
+            if (isExcluded(name)) {
+                continue;
+            }
+            if (size * 2 == entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            String value = request.getHeader(name);
+            entries[size * 2] = name;
+            entries[size * 2 + 1] = isMasked(name) ? SensitiveData.mask(value) : value;
+            size++;
+        }
+        return new CapturedHeaders(entries, size);
+    }
+
+    /**
+     * 请求头是否被排除，忽略大小写
+     */
+    public boolean isExcluded(String name) {
+        return excludeNames.length > 0 && Arrays.binarySearch(excludeNames, name, String.CASE_INSENSITIVE_ORDER) >= 0;
+    }
+
+    /**
+     * 请求头的值是否需要掩码，忽略大小写
+     */
+    public boolean isMasked(String name) {
+        return maskNames.length > 0 && Arrays.binarySearch(maskNames, name, String.CASE_INSENSITIVE_ORDER) >= 0
+                || SensitiveData.isSensitiveHeader(name);
+    }
+
+    /**
+     * 去重并按忽略大小写排序
+     */
+    private static String[] compile(Collection<String> names) {
+        TreeSet<String> sorted = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if (names != null) {
+            for (String name : names) {
+                if (name != null && !name.isBlank()) {
+                    sorted.add(name.trim());
+                }
+            }
+        }
+        return sorted.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,20 @@
+package ltd.weiyiyi.requestlogging.infrastructure.layout;
+
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+
+/**
+ * 字段写入器
+ * 布局在启动时被编译为一组字段写入器，格式化时依次调用
+ *
+ * @author weihan
+ */
+@FunctionalInterface
+public interface FieldWriter {
+    /**
+     * 将字段写入缓冲区
+     *
+     * @param log 请求日志对象
+     * @param out 输出缓冲区
+     */
+    void write(RequestLog log, Utf8Buffer out);
+}
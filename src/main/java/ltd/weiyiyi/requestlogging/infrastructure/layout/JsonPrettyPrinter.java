@@ -0,0 +1,111 @@
+package ltd.weiyiyi.requestlogging.infrastructure.layout;
+
+/**
+ * 单遍JSON缩进器
+ * 只根据结构字符重新排版，不解析成对象树，截断后的JSON也能按已有内容输出；
+ * 不以 { 或 [ 开头的内容原样输出
+ *
+ * @author weihan
+ */
+public final class JsonPrettyPrinter {
+
+    private JsonPrettyPrinter() {
+    }
+
+    /**
+     * 写入缩进后的JSON
+     *
+     * @param json JSON文本
+     * @param indent 每级缩进的空格数
+     * @param out 输出缓冲区
+     */
+    public static void write(CharSequence json, int indent, Utf8Buffer out) {
+        int length = json.length();
+        int start = 0;
+        while (start < length && json.charAt(start) <= ' ') {
+            start++;
+        }
+        if (start == length || (json.charAt(start) != '{' && json.charAt(start) != '[')) {
+            out.append(json);
+            return;
+        }
+
+        int level = 0;
+        int runStart = -1;
+        boolean inString = false;
+        boolean escaped = false;
+        for (int i = start; i < length; i++) {
+            char c = json.charAt(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> {
+                    if (runStart < 0) {
+                        runStart = i;
+                    }
+                    inString = true;
+                }
+                case '{', '[' -> {
+                    runStart = flush(json, runStart, i, out);
+                    out.appendAscii(c);
+                    int next = skipWhitespace(json, i + 1);
+                    if (next < length && (json.charAt(next) == '}' || json.charAt(next) == ']')) {
+                        out.appendAscii(json.charAt(next));
+                        i = next;
+                    } else {
+                        level++;
+                        newLine(out, level, indent);
+                    }
+                }
+                case '}', ']' -> {
+                    runStart = flush(json, runStart, i, out);
+                    level = Math.max(0, level - 1);
+                    newLine(out, level, indent);
+                    out.appendAscii(c);
+                }
+                case ',' -> {
+                    runStart = flush(json, runStart, i, out);
+                    out.appendAscii(',');
+                    newLine(out, level, indent);
+                }
+                case ':' -> {
+                    runStart = flush(json, runStart, i, out);
+                    out.appendAscii(':').appendAscii(' ');
+                }
+                case ' ', '\t', '\r', '\n' -> runStart = flush(json, runStart, i, out);
+                default -> {
+                    if (runStart < 0) {
+                        runStart = i;
+                    }
+                }
+            }
+        }
+        flush(json, runStart, length, out);
+    }
+
+    private static int flush(CharSequence json, int runStart, int end, Utf8Buffer out) {
+        if (runStart >= 0) {
+            out.append(json, runStart, end);
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(CharSequence json, int index) {
+        while (index < json.length() && json.charAt(index) <= ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private static void newLine(Utf8Buffer out, int level, int indent) {
+        out.appendAscii('\n').appendSpaces(level * indent);
+    }
+}
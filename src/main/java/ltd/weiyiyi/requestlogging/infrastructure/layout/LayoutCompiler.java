@@ -0,0 +1,450 @@
+package ltd.weiyiyi.requestlogging.infrastructure.layout;
+
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.color.ColorPair;
+import ltd.weiyiyi.requestlogging.infrastructure.color.ColorProcessorFactory;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.util.SystemMetricsCollector;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 布局编译器
+ * 启动时根据配置（标记、分隔符、开关）或自定义模式把布局编译为字段写入器序列，
+ * 相邻的固定文本会被合并并预先编码为UTF-8字节
+ *
+ * <p>自定义模式支持以下转换符：{@code %timestamp}、{@code %timestamp{pattern}}、{@code %flag}、
+ * {@code %separator}、{@code %method}、{@code %uri}、{@code %route}、{@code %url}、{@code %query}、{@code %clientIp}、
+ * {@code %traceId}、{@code %status}、{@code %duration}、{@code %headers}、{@code %requestBody}、
+ * {@code %responseBody}、{@code %exception}、{@code %exceptionMessage}、{@code %stackTrace}、
+ * {@code %instanceId}、{@code %host}、{@code %n}、{@code %%}。
+ * 转换符后紧跟字母时可用空选项 {@code {}} 结束，例如 {@code %duration{}ms}。
+ * 交换日志中 {@code %flag} 按是否有异常输出结束标记或错误标记</p>
+ *
+ * @author weihan
+ */
+public final class LayoutCompiler {
+    private static final String HEADER_LINE_PREFIX = "  - ";
+    private static final int HEADER_NAME_WIDTH = 10;
+
+    private final RequestLoggingProperties properties;
+    private final String instanceId;
+    private final String host;
+
+    public LayoutCompiler(RequestLoggingProperties properties) {
+        this.properties = properties;
+        this.instanceId = SystemMetricsCollector.getInstanceId();
+        this.host = SystemMetricsCollector.getHostName();
+    }
+
+    /**
+     * 编译指定事件的布局，配置了自定义模式时使用自定义模式
+     *
+     * @param type 事件类型
+     * @return 编译后的布局
+     */
+    public LogLayout compile(LogEventType type) {
+        String pattern = properties.getLogPattern();
+        LayoutBuilder builder = new LayoutBuilder();
+        String color = colorOf(type);
+        if (type == LogEventType.EXCHANGE && color != null) {
+            // 交换日志按是否有异常选择颜色
+            String errorColor = properties.getErrorColor();
+            builder.when(log -> log.getException() != null, s -> s.colorStart(errorColor))
+                .when(log -> log.getException() == null, s -> s.colorStart(color));
+        } else {
+            builder.colorStart(color);
+        }
+        if (pattern != null && !pattern.isEmpty()) {
+            compilePattern(builder, pattern, type);
+        } else {
+            switch (type) {
+                case REQUEST_START -> requestStart(builder);
+                case REQUEST_COMPLETE -> requestComplete(builder, type);
+                case REQUEST_ERROR -> requestError(builder, type);
+                case EXCHANGE -> exchange(builder);
+                default -> throw new IllegalArgumentException("Unsupported log event type: " + type);
+            }
+        }
+        builder.colorEnd(color);
+        return builder.build();
+    }
+
+    private void requestStart(LayoutBuilder b) {
+        b.text(properties.getSeparator()).text("\n")
+            .text(properties.getRequestStartFlag()).text("\n")
+            .text("Timestamp      : ").field(new TimestampWriter(properties.getTimestampFormat(), LogEventType.REQUEST_START)).text("\n")
+            .text("HTTP Method    : ").field((log, out) -> out.append(log.getMethod())).text("\n")
+            .text("Endpoint       : ").field((log, out) -> out.append(log.getUri())).text("\n")
+            .text("Full URL       : ").field(this::writeFullUrl).text("\n")
+            .text("Client IP      : ").field((log, out) -> out.append(log.getClientIp())).text("\n")
+            .when(log -> log.getHeaders() != null && log.getHeaders().containsKey("Authorization"), s -> s
+                .text("Authentication : ")
+                .field((log, out) -> out.append(log.getHeaders().get("Authorization"))).text("\n"))
+            .text("Trace ID       : ").field((log, out) -> out.append(log.getTraceId())).text("\n");
+
+        if (properties.isLogHeaders()) {
+            b.when(log -> log.getHeaders() != null && !log.getHeaders().isEmpty(), s -> s
+                .text("Headers        :\n").field(LayoutCompiler::writeHeaderLines));
+        }
+        b.when(log -> log.getQueryString() != null && !log.getQueryString().isEmpty(), s -> s
+            .text("\nQuery Params   :\n").field((log, out) -> writeQueryParams(log.getQueryString(), out)));
+        if (properties.isLogRequestBody()) {
+            b.when(log -> log.getRequestBody() != null, s -> s
+                .text("\nRequest Body   : \n").field(bodyWriter(RequestLog::getRequestBody)));
+        }
+        b.text("\nService Instance:\n")
+            .text("  - Instance ID: ").text(String.valueOf(instanceId)).text("\n")
+            .text("  - Host       : ").text(String.valueOf(host)).text("\n")
+            .text(properties.getSeparator());
+    }
+
+    private void requestComplete(LayoutBuilder b, LogEventType type) {
+        b.text(properties.getSeparator()).text("\n")
+            .text(properties.getRequestEndFlag()).text("\n");
+        appendResponseSummary(b, type);
+        b.text("\n");
+        if (properties.isLogHeaders()) {
+            b.when(log -> log.getHeaders() != null, s -> s
+                .text("Headers        :\n").field(LayoutCompiler::writeHeaderLines));
+        }
+        if (properties.isLogResponse()) {
+            b.when(log -> log.getResponseBody() != null, s -> s
+                .text("\nResponse Body  :\n").field(bodyWriter(RequestLog::getResponseBody)));
+        }
+        b.text("\nError Details  : None")
+            .text("\n").text(properties.getSeparator());
+    }
+
+    private void requestError(LayoutBuilder b, LogEventType type) {
+        b.text(properties.getSeparator()).text("\n")
+            .text(properties.getRequestErrorFlag()).text("\n");
+        appendResponseSummary(b, type);
+        b.text("\n");
+        if (properties.isLogHeaders()) {
+            b.when(log -> log.getHeaders() != null, s -> s
+                .text("Headers        :\n").field(LayoutCompiler::writeHeaderLines).text("\n"));
+        }
+        b.text("Error Details  :\n")
+            .when(log -> log.getException() != null, s -> s
+                .text("  - Error Type   : ").field((log, out) -> out.append(log.getException())).text("\n")
+                .text("  - Error Message: ").field((log, out) -> out.append(log.getExceptionMessage())).text("\n")
+                .text("  - Stack Trace  : \n").field((log, out) -> writeStackTrace(log.getStackTrace(), out)))
+            .text("\nError Context  :\n")
+            .text("  - Request Context:\n")
+            .text("      - Endpoint     : ").field((log, out) -> out.append(log.getUri())).text("\n")
+            .when(log -> log.getQueryString() != null, s -> s
+                .text("      - Query Params : ").field((log, out) -> out.append(log.getQueryString())).text("\n"))
+            .text("  - System Context:\n")
+            .field(LayoutCompiler::writeSystemContext)
+            .text("\n").text(properties.getSeparator());
+    }
+
+    private void exchange(LayoutBuilder b) {
+        b.text(properties.getSeparator()).text("\n")
+            .field(this::writeExchangeFlag).text("\n")
+            .text("Timestamp      : ").field(new TimestampWriter(properties.getTimestampFormat(), LogEventType.EXCHANGE)).text("\n")
+            .text("HTTP Method    : ").field((log, out) -> out.append(log.getMethod())).text("\n")
+            .text("Endpoint       : ").field((log, out) -> out.append(log.getUri())).text("\n")
+            .text("Full URL       : ").field(this::writeFullUrl).text("\n")
+            .text("Client IP      : ").field((log, out) -> out.append(log.getClientIp())).text("\n")
+            .text("HTTP Status    : ").field((log, out) -> out.append(log.getStatus())).text("\n")
+            .text("Response Time  : ").field((log, out) -> out.append(log.getProcessingTime())).text("ms\n")
+            .text("Trace ID       : ").field((log, out) -> out.append(log.getTraceId())).text("\n");
+
+        if (properties.isLogHeaders()) {
+            b.when(log -> log.getHeaders() != null && !log.getHeaders().isEmpty(), s -> s
+                .text("Headers        :\n").field(LayoutCompiler::writeHeaderLines));
+        }
+        b.when(log -> log.getQueryString() != null && !log.getQueryString().isEmpty(), s -> s
+            .text("\nQuery Params   :\n").field((log, out) -> writeQueryParams(log.getQueryString(), out)));
+        if (properties.isLogRequestBody()) {
+            b.when(log -> log.getRequestBody() != null, s -> s
+                .text("\nRequest Body   : \n").field(bodyWriter(RequestLog::getRequestBody)));
+        }
+        if (properties.isLogResponse()) {
+            b.when(log -> log.getResponseBody() != null, s -> s
+                .text("\nResponse Body  :\n").field(bodyWriter(RequestLog::getResponseBody)));
+        }
+        b.when(log -> log.getException() == null, s -> s.text("\nError Details  : None\n"))
+            .when(log -> log.getException() != null, s -> s
+                .text("\nError Details  :\n")
+                .text("  - Error Type   : ").field((log, out) -> out.append(log.getException())).text("\n")
+                .text("  - Error Message: ").field((log, out) -> out.append(log.getExceptionMessage())).text("\n")
+                .text("  - Stack Trace  : \n").field((log, out) -> writeStackTrace(log.getStackTrace(), out)))
+            .text(properties.getSeparator());
+    }
+
+    private void writeExchangeFlag(RequestLog log, Utf8Buffer out) {
+        out.append(log.getException() != null ? properties.getRequestErrorFlag() : properties.getRequestEndFlag());
+    }
+
+    private void appendResponseSummary(LayoutBuilder b, LogEventType type) {
+        b.text("Timestamp      : ").field(new TimestampWriter(properties.getTimestampFormat(), type)).text("\n")
+            .text("HTTP Status    : ").field((log, out) -> out.append(log.getStatus())).text("\n")
+            .text("Response Time  : ").field((log, out) -> out.append(log.getProcessingTime())).text("ms\n")
+            .text("Trace ID       : ").field((log, out) -> out.append(log.getTraceId())).text("\n");
+    }
+
+    /**
+     * 编译自定义模式
+     */
+    private void compilePattern(LayoutBuilder b, String pattern, LogEventType type) {
+        int i = 0;
+        int length = pattern.length();
+        while (i < length) {
+            char c = pattern.charAt(i);
+            if (c != '%') {
+                int next = pattern.indexOf('%', i);
+                int end = next < 0 ? length : next;
+                b.text(pattern.substring(i, end));
+                i = end;
+                continue;
+            }
+            if (i + 1 >= length) {
+                throw new IllegalArgumentException("Dangling '%' at end of log pattern: " + pattern);
+            }
+            if (pattern.charAt(i + 1) == '%') {
+                b.text("%");
+                i += 2;
+                continue;
+            }
+            int nameStart = i + 1;
+            int nameEnd = nameStart;
+            while (nameEnd < length && Character.isLetter(pattern.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            String name = pattern.substring(nameStart, nameEnd);
+            String option = null;
+            i = nameEnd;
+            if (i < length && pattern.charAt(i) == '{') {
+                int close = pattern.indexOf('}', i);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed '{' in log pattern: " + pattern);
+                }
+                option = pattern.substring(i + 1, close);
+                i = close + 1;
+            }
+            conversion(b, name, option, type);
+        }
+    }
+
+    private void conversion(LayoutBuilder b, String name, String option, LogEventType type) {
+        switch (name) {
+            case "n" -> b.text("\n");
+            case "timestamp" -> b.field(new TimestampWriter(option != null && !option.isEmpty()
+                ? option : properties.getTimestampFormat(), type));
+            case "flag" -> {
+                if (type == LogEventType.EXCHANGE) {
+                    b.field(this::writeExchangeFlag);
+                } else {
+                    b.text(flagOf(type));
+                }
+            }
+            case "separator" -> b.text(properties.getSeparator());
+            case "method" -> b.field((log, out) -> out.append(log.getMethod()));
+            case "uri" -> b.field((log, out) -> out.append(log.getUri()));
+            case "route" -> b.field((log, out) -> out.append(log.getRoute()));
+            case "url" -> b.field(this::writeFullUrl);
+            case "query" -> b.field((log, out) -> out.append(log.getQueryString()));
+            case "clientIp" -> b.field((log, out) -> out.append(log.getClientIp()));
+            case "traceId" -> b.field((log, out) -> out.append(log.getTraceId()));
+            case "status" -> b.field((log, out) -> out.append(log.getStatus()));
+            case "duration" -> b.field((log, out) -> out.append(log.getProcessingTime()));
+            case "headers" -> b.field(LayoutCompiler::writeInlineHeaders);
+            case "requestBody" -> b.field((log, out) -> out.append(log.getRequestBody()));
+            case "responseBody" -> b.field((log, out) -> out.append(log.getResponseBody()));
+            case "exception" -> b.field((log, out) -> out.append(log.getException()));
+            case "exceptionMessage" -> b.field((log, out) -> out.append(log.getExceptionMessage()));
+            case "stackTrace" -> b.field((log, out) -> writeStackTrace(log.getStackTrace(), out));
+            case "instanceId" -> b.text(String.valueOf(instanceId));
+            case "host" -> b.text(String.valueOf(host));
+            default -> throw new IllegalArgumentException("Unknown conversion '%" + name + "' in log pattern");
+        }
+    }
+
+    private String flagOf(LogEventType type) {
+        return switch (type) {
+            case REQUEST_START -> properties.getRequestStartFlag();
+            case REQUEST_COMPLETE -> properties.getRequestEndFlag();
+            case REQUEST_ERROR -> properties.getRequestErrorFlag();
+            case EXCHANGE -> properties.getRequestEndFlag();
+        };
+    }
+
+    private String colorOf(LogEventType type) {
+        if (!properties.isEnableColorOutput()) {
+            return null;
+        }
+        return switch (type) {
+            case REQUEST_START -> properties.getRequestStartColor();
+            case REQUEST_COMPLETE -> properties.getRequestEndColor();
+            case REQUEST_ERROR -> properties.getErrorColor();
+            case EXCHANGE -> properties.getRequestEndColor();
+        };
+    }
+
+    private FieldWriter bodyWriter(java.util.function.Function<RequestLog, String> body) {
+        if (!properties.isPrettyPrint()) {
+            return (log, out) -> out.append(body.apply(log));
+        }
+        int indent = properties.getJsonIndent();
+        return (log, out) -> JsonPrettyPrinter.write(body.apply(log), indent, out);
+    }
+
+    private void writeFullUrl(RequestLog log, Utf8Buffer out) {
+        out.append("https://").append(host).append(log.getUri());
+        String query = log.getQueryString();
+        if (query != null && !query.isEmpty()) {
+            out.appendAscii('?').append(query);
+        }
+    }
+
+    private static void writeHeaderLines(RequestLog log, Utf8Buffer out) {
+        for (Map.Entry<String, String> header : log.getHeaders().entrySet()) {
+            String name = header.getKey();
+            out.append(HEADER_LINE_PREFIX).append(name).appendSpaces(HEADER_NAME_WIDTH - name.length()).append(" : ");
+            out.append(header.getValue()).appendAscii('\n');
+        }
+    }
+
+    private static void writeInlineHeaders(RequestLog log, Utf8Buffer out) {
+        Map<String, String> headers = log.getHeaders();
+        if (headers == null) {
+            return;
+        }
+        boolean first = true;
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (!first) {
+                out.appendAscii(',').appendAscii(' ');
+            }
+            first = false;
+            out.append(header.getKey()).appendAscii(':').appendAscii(' ').append(header.getValue());
+        }
+    }
+
+    /**
+     * 单遍解析查询字符串，与 split("&") / split("=") 的结果保持一致：
+     * 去掉末尾的 '=' 后恰好包含一个 '=' 的参数才会输出
+     */
+    private static void writeQueryParams(String query, Utf8Buffer out) {
+        int length = query.length();
+        int start = 0;
+        while (start < length) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+            int valueEnd = end;
+            while (valueEnd > start && query.charAt(valueEnd - 1) == '=') {
+                valueEnd--;
+            }
+            int eq = query.indexOf('=', start);
+            if (eq >= 0 && eq < valueEnd) {
+                int second = query.indexOf('=', eq + 1);
+                if (second < 0 || second >= valueEnd) {
+                    out.append(HEADER_LINE_PREFIX).append(query, start, eq).appendSpaces(HEADER_NAME_WIDTH - (eq - start))
+                        .append(" : ").append(query, eq + 1, valueEnd).appendAscii('\n');
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    private static void writeStackTrace(String stackTrace, Utf8Buffer out) {
+        if (stackTrace == null) {
+            return;
+        }
+        int length = stackTrace.length();
+        // 与 split("\n") 一致，忽略末尾的空行
+        while (length > 0 && stackTrace.charAt(length - 1) == '\n') {
+            length--;
+        }
+        int start = 0;
+        while (start < length) {
+            int end = stackTrace.indexOf('\n', start);
+            if (end < 0 || end > length) {
+                end = length;
+            }
+            int lineStart = start;
+            int lineEnd = end;
+            while (lineStart < lineEnd && stackTrace.charAt(lineStart) <= ' ') {
+                lineStart++;
+            }
+            while (lineEnd > lineStart && stackTrace.charAt(lineEnd - 1) <= ' ') {
+                lineEnd--;
+            }
+            out.appendSpaces(8).append(stackTrace, lineStart, lineEnd).appendAscii('\n');
+            start = end + 1;
+        }
+    }
+
+    private static void writeSystemContext(RequestLog log, Utf8Buffer out) {
+        out.append("      - CPU Load     : ").appendOneDecimal(SystemMetricsCollector.getCpuLoad()).append("%\n");
+        out.append("      - Memory Usage : ").appendOneDecimal(SystemMetricsCollector.getUsedMemory()).append("GB / ")
+            .appendOneDecimal(SystemMetricsCollector.getTotalMemory()).append("GB\n");
+        out.append("      - Thread Count : ").append(Thread.activeCount()).appendAscii('\n');
+        out.append("      - Environment  : ").append(SystemMetricsCollector.getEnvironment()).appendAscii('\n');
+    }
+
+    /**
+     * 布局构建器，合并相邻的固定文本
+     */
+    private static final class LayoutBuilder {
+        private final List<FieldWriter> writers = new ArrayList<>();
+        private final StringBuilder literal = new StringBuilder();
+
+        LayoutBuilder text(String text) {
+            literal.append(text);
+            return this;
+        }
+
+        LayoutBuilder field(FieldWriter writer) {
+            flushLiteral();
+            writers.add(writer);
+            return this;
+        }
+
+        LayoutBuilder when(Predicate<RequestLog> condition, Consumer<LayoutBuilder> section) {
+            LayoutBuilder nested = new LayoutBuilder();
+            section.accept(nested);
+            LogLayout layout = nested.build();
+            return field((log, out) -> {
+                if (condition.test(log)) {
+                    layout.write(log, out);
+                }
+            });
+        }
+
+        void colorStart(String color) {
+            if (color != null) {
+                text(ColorProcessorFactory.getAnsiCode(new ColorPair(color, null)));
+            }
+        }
+
+        void colorEnd(String color) {
+            if (color != null) {
+                text(ColorProcessorFactory.getResetCode());
+            }
+        }
+
+        LogLayout build() {
+            flushLiteral();
+            return new LogLayout(writers.toArray(new FieldWriter[0]));
+        }
+
+        private void flushLiteral() {
+            if (literal.length() > 0) {
+                byte[] bytes = literal.toString().getBytes(StandardCharsets.UTF_8);
+                writers.add((log, out) -> out.append(bytes));
+                literal.setLength(0);
+            }
+        }
+    }
+}
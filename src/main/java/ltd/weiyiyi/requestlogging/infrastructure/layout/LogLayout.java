@@ -0,0 +1,23 @@
+package ltd.weiyiyi.requestlogging.infrastructure.layout;
+
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+
+/**
+ * 编译后的日志布局
+ *
+ * @author weihan
+ */
+public final class LogLayout implements FieldWriter {
+    private final FieldWriter[] writers;
+
+    LogLayout(FieldWriter[] writers) {
+        this.writers = writers;
+    }
+
+    @Override
+    public void write(RequestLog log, Utf8Buffer out) {
+        for (FieldWriter writer : writers) {
+            writer.write(log, out);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ltd.weiyiyi.requestlogging.infrastructure.layout;
+
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.util.LogTimestamps;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 时间戳写入器
+ * 输出日志记录自身的时间（见 {@link LogTimestamps#recordTimestamp(LogEventType, RequestLog)}），
+ * 而不是格式化时的当前时间，异步消费、延迟输出以及二进制日志转换时时间保持不变。
+ * 与上一条日志处于同一毫秒时复用上一次格式化得到的字节，避免每条日志都进行日期格式化
+ *
+ * @author weihan
+ */
+final class TimestampWriter implements FieldWriter {
+    private final DateTimeFormatter formatter;
+    private final LogEventType type;
+    private volatile Cached cached = new Cached(Long.MIN_VALUE, new byte[0]);
+
+    /**
+     * @param pattern 时间格式
+     * @param type 布局对应的事件类型，决定取请求时间还是响应时间
+     */
+    TimestampWriter(String pattern, LogEventType type) {
+        this.formatter = DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.systemDefault());
+        this.type = type;
+    }
+
+    @Override
+    public void write(RequestLog log, Utf8Buffer out) {
+        long millis = LogTimestamps.recordTimestamp(type, log);
+        Cached current = cached;
+        if (current.millis != millis) {
+            current = new Cached(millis, formatter.format(Instant.ofEpochMilli(millis)).getBytes(StandardCharsets.UTF_8));
+            cached = current;
+        }
+        out.append(current.bytes);
+    }
+
+    private static final class Cached {
+        private final long millis;
+        private final byte[] bytes;
+
+        private Cached(long millis, byte[] bytes) {
+            this.millis = millis;
+            this.bytes = bytes;
+        }
+    }
+}
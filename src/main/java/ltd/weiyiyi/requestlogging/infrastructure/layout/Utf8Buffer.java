@@ -0,0 +1,234 @@
+package ltd.weiyiyi.requestlogging.infrastructure.layout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 可复用的UTF-8字节缓冲区
+ * 字符直接编码为UTF-8字节追加到内部数组，数字直接写入十进制字符，
+ * 格式化过程中不产生中间字符串
+ *
+ * @author weihan
+ */
+public final class Utf8Buffer {
+    private static final byte[] NULL_BYTES = {'n', 'u', 'l', 'l'};
+    private static final byte[] MIN_LONG_BYTES = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private final int initialCapacity;
+    private byte[] bytes;
+    private int length;
+    private OutputStream outputStream;
+
+    public Utf8Buffer(int initialCapacity) {
+        this.initialCapacity = Math.max(16, initialCapacity);
+        this.bytes = new byte[this.initialCapacity];
+    }
+
+    /**
+     * 清空缓冲区，容量超过上限时释放多余空间
+     *
+     * @param maxRetainedCapacity 保留的最大容量
+     */
+    public void reset(int maxRetainedCapacity) {
+        length = 0;
+        if (bytes.length > maxRetainedCapacity) {
+            bytes = new byte[initialCapacity];
+        }
+    }
+
+    public void reset() {
+        length = 0;
+    }
+
+    public Utf8Buffer append(byte[] src) {
+        return append(src, 0, src.length);
+    }
+
+    public Utf8Buffer append(byte[] src, int offset, int len) {
+        ensureCapacity(len);
+        System.arraycopy(src, offset, bytes, length, len);
+        length += len;
+        return this;
+    }
+
+    /**
+     * 追加字符串，null 写为 "null"
+     */
+    public Utf8Buffer append(CharSequence text) {
+        if (text == null) {
+            return append(NULL_BYTES);
+        }
+        return append(text, 0, text.length());
+    }
+
+    /**
+     * 追加字符串的 [start, end) 区间
+     */
+    public Utf8Buffer append(CharSequence text, int start, int end) {
+        ensureCapacity(end - start);
+        int i = start;
+        // ASCII 快速路径
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            bytes[length++] = (byte) c;
+            i++;
+        }
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                ensureCapacity(1);
+                bytes[length++] = (byte) c;
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                bytes[length++] = (byte) (0xC0 | (c >> 6));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                ensureCapacity(4);
+                bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                ensureCapacity(1);
+                bytes[length++] = '?';
+            } else {
+                ensureCapacity(3);
+                bytes[length++] = (byte) (0xE0 | (c >> 12));
+                bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+            i++;
+        }
+        return this;
+    }
+
+    /**
+     * 追加ASCII字符
+     */
+    public Utf8Buffer appendAscii(char c) {
+        ensureCapacity(1);
+        bytes[length++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * 追加单个字节，供二进制编码使用
+     */
+    public Utf8Buffer appendByte(int b) {
+        ensureCapacity(1);
+        bytes[length++] = (byte) b;
+        return this;
+    }
+
+    /**
+     * 追加十进制整数
+     */
+    public Utf8Buffer append(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append(MIN_LONG_BYTES);
+        }
+        if (value < 0) {
+            appendAscii('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        int pos = length + digits;
+        do {
+            bytes[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        length += digits;
+        return this;
+    }
+
+    /**
+     * 追加保留一位小数的数值，四舍五入
+     */
+    public Utf8Buffer appendOneDecimal(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return append(Double.toString(value));
+        }
+        long scaled = Math.round(Math.abs(value) * 10);
+        if (value < 0 && scaled != 0) {
+            appendAscii('-');
+        }
+        append(scaled / 10);
+        appendAscii('.');
+        return appendAscii((char) ('0' + scaled % 10));
+    }
+
+    /**
+     * 追加若干空格
+     */
+    public Utf8Buffer appendSpaces(int count) {
+        if (count <= 0) {
+            return this;
+        }
+        ensureCapacity(count);
+        Arrays.fill(bytes, length, length + count, (byte) ' ');
+        length += count;
+        return this;
+    }
+
+    private void ensureCapacity(int extra) {
+        int required = length + extra;
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length << 1));
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 获取内部数组，有效内容为 [0, length())
+     */
+    public byte[] array() {
+        return bytes;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * 获取写入本缓冲区的输出流视图，供需要 {@link OutputStream} 的编码器直接写入
+     */
+    public OutputStream asOutputStream() {
+        if (outputStream == null) {
+            outputStream = new OutputStream() {
+                @Override
+                public void write(int b) {
+                    ensureCapacity(1);
+                    bytes[length++] = (byte) b;
+                }
+
+                @Override
+                public void write(byte[] src, int offset, int len) {
+                    append(src, offset, len);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
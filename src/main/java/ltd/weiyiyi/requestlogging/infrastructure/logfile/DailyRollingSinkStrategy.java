@@ -0,0 +1,37 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogSink;
+
+import java.io.File;
+
+/**
+ * 按日期滚动的日志写入策略
+ * 每天一个文件 {@code request-yyyy-MM-dd.log}，写入器每个批次只比较一次当前时间与窗口结束时间
+ *
+ * @author weihan
+ */
+public class DailyRollingSinkStrategy extends RollingSinkStrategy {
+    private static final String STRATEGY_NAME = "daily";
+    private static final String FILE_PREFIX = "request-";
+    private static final String FILE_SUFFIX = ".log";
+
+    private final RollingPeriod period = RollingPeriod.daily();
+    private long windowEnd;
+
+    @Override
+    public String getStrategyName() {
+        return STRATEGY_NAME;
+    }
+
+    @Override
+    protected boolean shouldRoll(LogSink sink, long now) {
+        return now >= windowEnd;
+    }
+
+    @Override
+    protected File nextFile(File previous, long now) {
+        long windowStart = period.windowStart(now);
+        windowEnd = period.windowEnd(windowStart);
+        return new File(getBaseDir(), FILE_PREFIX + period.label(windowStart) + FILE_SUFFIX);
+    }
+}
@@ -1,36 +1,26 @@
 package ltd.weiyiyi.requestlogging.infrastructure.logfile;
 
-import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
-import ltd.weiyiyi.requestlogging.infrastructure.spi.LogFileStrategy;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.concurrent.locks.ReentrantLock;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Comparator;
 
 /**
  * 按日期滚动的日志文件策略
- * 每天创建一个新的日志文件
+ * 每天创建一个新的日志文件，跨天检查使用 {@link TimeBasedRollingStrategy} 的无锁窗口切换
  *
  * @author weihan
+ * @deprecated 已由 {@link DailyRollingSinkStrategy} 取代，保留用于直接引用该类的旧代码
  */
-public class DailyRollingStrategy implements LogFileStrategy {
+@Deprecated
+public class DailyRollingStrategy extends TimeBasedRollingStrategy {
     private static final Logger logger = LoggerFactory.getLogger(DailyRollingStrategy.class);
     private static final String STRATEGY_NAME = "daily";
-    private static final String DATE_PATTERN = "yyyy-MM-dd";
-    private static final String FILE_SUFFIX = ".log";
-    
-    private File baseDir;
-    private final ReentrantLock lock = new ReentrantLock();
-    private final ThreadLocal<SimpleDateFormat> dateFormat = 
-        ThreadLocal.withInitial(() -> new SimpleDateFormat(DATE_PATTERN));
-    private volatile File currentFile;
-    private volatile String currentDate;
+
     private final int maxDays;
 
     /**
@@ -41,6 +31,7 @@ public class DailyRollingStrategy implements LogFileStrategy {
     }
 
     public DailyRollingStrategy(int maxDays) {
+        super(Duration.ofDays(1));
         this.maxDays = maxDays;
     }
 
@@ -49,75 +40,23 @@ public class DailyRollingStrategy implements LogFileStrategy {
         return STRATEGY_NAME;
     }
 
+    /**
+     * 固定按天滚动，忽略 rolling-period
+     */
     @Override
-    public void init(File baseDir) {
-        if (!baseDir.exists() && !baseDir.mkdirs()) {
-            logger.error("Failed to create base directory: {}", baseDir);
-            throw new RuntimeException("Failed to create base directory: " + baseDir);
-        }
-        this.baseDir = baseDir;
-        initializeCurrentFile();
-    }
-
-    @Override
-    public File getLogFile(RequestLog log) {
-        try {
-            lock.lock();
-            String date = dateFormat.get().format(new Date());
-            if (currentFile == null || !date.equals(currentDate)) {
-                rollOver(date);
-            }
-            return currentFile;
-        } catch (Exception e) {
-            logger.error("Error getting log file", e);
-            return null;
-        } finally {
-            lock.unlock();
-        }
-    }
-
-    private void initializeCurrentFile() {
-        try {
-            lock.lock();
-            String date = dateFormat.get().format(new Date());
-            rollOver(date);
-        } catch (Exception e) {
-            logger.error("Error initializing current file", e);
-        } finally {
-            lock.unlock();
-        }
-    }
-
-    private void rollOver(String date) {
-        try {
-            String fileName = String.format("request-%s%s", date, FILE_SUFFIX);
-            File newFile = new File(baseDir, fileName);
-            if (!newFile.exists()) {
-                try {
-                    if (!newFile.createNewFile()) {
-                        logger.error("Failed to create new log file: {}", newFile);
-                        throw new IOException("Failed to create new log file: " + newFile);
-                    }
-                } catch (IOException e) {
-                    logger.error("Error creating log file", e);
-                    throw e;
-                }
-            }
-            currentFile = newFile;
-            currentDate = date;
-        } catch (Exception e) {
-            logger.error("Error rolling over log file", e);
-            throw new RuntimeException("Error rolling over log file", e);
-        }
+    public void init(File baseDir, RequestLoggingProperties properties) {
+        init(baseDir);
     }
 
     @Override
     public void cleanup() {
+        File baseDir = getBaseDir();
         if (baseDir == null || !baseDir.exists()) {
             return;
         }
 
-        File[] files = baseDir.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        // 压缩后的日志文件同样计入保留数量
+        File[] files = baseDir.listFiles((dir, name) -> SegmentCompressor.isLogFile(name));
         if (files == null || files.length <= maxDays) {
             return;
         }
@@ -130,4 +69,4 @@ public class DailyRollingStrategy implements LogFileStrategy {
             }
         }
     }
-} 
\ No newline at end of file
+}
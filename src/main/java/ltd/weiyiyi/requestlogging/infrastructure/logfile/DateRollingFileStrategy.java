@@ -62,7 +62,8 @@ public class DateRollingFileStrategy implements LogFileStrategy {
             return;
         }
 
-        File[] files = baseDir.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        // 压缩后的日志文件同样计入保留数量
+        File[] files = baseDir.listFiles((dir, name) -> SegmentCompressor.isLogFile(name));
         if (files == null || files.length <= maxDays) {
             return;
         }
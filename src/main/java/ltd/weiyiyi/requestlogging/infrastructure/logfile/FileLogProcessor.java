@@ -1,33 +1,50 @@
 package ltd.weiyiyi.requestlogging.infrastructure.logfile;
 
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
 import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.binary.BinaryLogEncoder;
 import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.JsonLinesEncoder;
 import ltd.weiyiyi.requestlogging.infrastructure.formatter.LogFormatter;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.OutputFormat;
+import ltd.weiyiyi.requestlogging.infrastructure.layout.Utf8Buffer;
 import ltd.weiyiyi.requestlogging.infrastructure.spi.LogFileStrategy;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogSinkStrategy;
 import ltd.weiyiyi.requestlogging.infrastructure.spi.RequestLogProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 文件日志处理器
- * 负责将日志写入文件
+ * 负责将日志写入文件，写入策略优先从 {@link LogSinkStrategy} 中查找，
+ * 同名的旧版 {@link LogFileStrategy} 通过 {@link LegacyStrategyAdapter} 适配。
+ * 配置了多个分片时每个分片在各自的子目录中拥有独立的策略实例与写入器，写入线程首次写入时按轮询固定到一个分片，
+ * 分片之间没有锁竞争，可以用 {@link ShardedLogMerger} 按时间合并。
+ * 开启异步日志时写入线程是异步消费线程，分片数不超过消费线程数
  *
  * @author weihan
  */
 public class FileLogProcessor implements RequestLogProcessor {
     private static final Logger logger = LoggerFactory.getLogger(FileLogProcessor.class);
+    static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
     private RequestLoggingProperties properties;
     private LogFormatter logFormatter;
     private LogFormatter plainLogFormatter;
-    private final ConcurrentHashMap<String, LogFileStrategy> strategyCache = new ConcurrentHashMap<>();
+    private final JsonLinesEncoder jsonEncoder = new JsonLinesEncoder();
+    private OutputFormat outputFormat = OutputFormat.TEXT;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final ThreadLocal<Shard> threadShard = ThreadLocal.withInitial(this::assignShard);
+    private Shard[] shards;
+    private LogFileMaintenance maintenance;
 
     public FileLogProcessor() {
         // 无参构造函数，用于SPI加载
@@ -38,16 +55,81 @@ public class FileLogProcessor implements RequestLogProcessor {
         this.properties = properties;
         this.logFormatter = new LogFormatter(properties);
         
-        // 创建一个禁用颜色输出的配置副本
+        this.plainLogFormatter = new LogFormatter(plainProperties(properties));
+        this.outputFormat = OutputFormat.of(properties.getFileOutputFormat());
+
+        if (!isEnabled()) {
+            return;
+        }
+        int shardCount = properties.getFileShards() > 0
+            ? properties.getFileShards() : Runtime.getRuntime().availableProcessors();
+        if (shardCount > 1 && outputFormat == OutputFormat.TEXT) {
+            // 多行文本无法可靠地切分记录，ShardedLogMerger 不能合并
+            logger.warn("Text output format cannot be merged across file shards, falling back to a single shard");
+            shardCount = 1;
+        }
+        int consumers = Math.max(1, properties.getAsyncConsumerThreads());
+        if (properties.isAsyncLogging() && shardCount > consumers) {
+            // 异步模式下只有消费线程写入文件，每个消费线程固定一个分片，多出的分片永远不会被写入
+            logger.info("Async logging has {} consumer threads, limiting file shards from {} to {}",
+                consumers, shardCount, consumers);
+            shardCount = consumers;
+        }
+        File logFileBaseDir = getLogFileBaseDir(properties);
+        Shard[] created = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            LogSinkStrategy strategy = loadLogSinkStrategy();
+            if (strategy == null) {
+                logger.error("No log file strategy found for: {}", properties.getLogFileStrategy());
+                return;
+            }
+            File baseDir = shardCount == 1 ? logFileBaseDir
+                : new File(logFileBaseDir, String.format("%s%02d", ShardedLogMerger.SHARD_DIR_PREFIX, i));
+            created[i] = new Shard(strategy, baseDir);
+        }
+        // 所有分片共用后台压缩与保留清理，max-log-files、max-total-size 作用于各分片的合计
+        List<File> baseDirs = new ArrayList<>(shardCount);
+        for (Shard shard : created) {
+            baseDirs.add(shard.baseDir);
+        }
+        LogFileMaintenance sharedMaintenance = new LogFileMaintenance(properties, baseDirs, () -> activeFiles(created));
+        for (Shard shard : created) {
+            // 策略滚动后把旧文件交给后台压缩与保留清理
+            shard.strategy.onSinkClosed(sharedMaintenance::fileClosed);
+        }
+        this.maintenance = sharedMaintenance;
+        this.shards = created;
+    }
+
+    private static List<File> activeFiles(Shard[] shards) {
+        List<File> files = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            File file = shard.strategy.getActiveFile();
+            if (file != null) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private Shard assignShard() {
+        return shards[Math.floorMod(nextShard.getAndIncrement(), shards.length)];
+    }
+
+    /**
+     * 创建一个禁用颜色输出的配置副本
+     *
+     * @param properties 原始配置
+     * @return 配置副本
+     */
+    static RequestLoggingProperties plainProperties(RequestLoggingProperties properties) {
         RequestLoggingProperties plainProperties = new RequestLoggingProperties();
         copyProperties(properties, plainProperties);
         plainProperties.setEnableColorOutput(false);
-        this.plainLogFormatter = new LogFormatter(plainProperties);
-        
-        initLogFileStrategy();
+        return plainProperties;
     }
 
-    private void copyProperties(RequestLoggingProperties source, RequestLoggingProperties target) {
+    private static void copyProperties(RequestLoggingProperties source, RequestLoggingProperties target) {
         target.setEnabled(source.isEnabled());
         target.setLogLevel(source.getLogLevel());
         target.setLogHeaders(source.isLogHeaders());
@@ -70,29 +152,22 @@ public class FileLogProcessor implements RequestLogProcessor {
         target.setRequestBodyMaxLength(source.getRequestBodyMaxLength());
         target.setResponseMaxLength(source.getResponseMaxLength());
         target.setSeparator(source.getSeparator());
+        target.setPrettyPrint(source.isPrettyPrint());
+        target.setJsonIndent(source.getJsonIndent());
+        target.setTimestampFormat(source.getTimestampFormat());
+        target.setRequestErrorFlag(source.getRequestErrorFlag());
+        target.setLogPattern(source.getLogPattern());
+        target.setFileOutputFormat(source.getFileOutputFormat());
     }
 
     @Override
     public void processRequestStart(RequestLog log) {
-        if (properties == null || !properties.isEnableFileLogging()) {
-            return;
-        }
-
-        LogFileStrategy strategy = getLogFileStrategy();
-        if (strategy == null) {
-            logger.error("No log file strategy found for: {}", properties.getLogFileStrategy());
+        if (!isEnabled()) {
             return;
         }
 
         try {
-            File logFile = strategy.getLogFile(log);
-            if (logFile == null) {
-                logger.error("Failed to get log file");
-                return;
-            }
-
-            String logContent = plainLogFormatter.logRequestStart(log);
-            writeToFile(logFile, logContent);
+            writeToFile(LogEventType.REQUEST_START, log);
         } catch (Exception e) {
             logger.error("Error writing request start log to file", e);
         }
@@ -100,25 +175,12 @@ public class FileLogProcessor implements RequestLogProcessor {
 
     @Override
     public void processRequestComplete(RequestLog log) {
-        if (properties == null || !properties.isEnableFileLogging()) {
-            return;
-        }
-
-        LogFileStrategy strategy = getLogFileStrategy();
-        if (strategy == null) {
-            logger.error("No log file strategy found for: {}", properties.getLogFileStrategy());
+        if (!isEnabled()) {
             return;
         }
 
         try {
-            File logFile = strategy.getLogFile(log);
-            if (logFile == null) {
-                logger.error("Failed to get log file");
-                return;
-            }
-
-            String logContent = plainLogFormatter.logRequestComplete(log);
-            writeToFile(logFile, logContent);
+            writeToFile(LogEventType.REQUEST_COMPLETE, log);
         } catch (Exception e) {
             logger.error("Error writing request complete log to file", e);
         }
@@ -126,43 +188,61 @@ public class FileLogProcessor implements RequestLogProcessor {
 
     @Override
     public void processRequestError(RequestLog log) {
-        if (properties == null || !properties.isEnableFileLogging()) {
+        if (!isEnabled()) {
             return;
         }
         
         try {
-            File logFile = getLogFileStrategy().getLogFile(log);
-            String logMessage = plainLogFormatter.logRequestError(log);
-            writeToFile(logFile, logMessage);
+            writeToFile(LogEventType.REQUEST_ERROR, log);
         } catch (Exception e) {
             logger.error("Error writing request error log to file", e);
         }
     }
 
-    private void initLogFileStrategy() {
-        ServiceLoader<LogFileStrategy> strategies = ServiceLoader.load(LogFileStrategy.class);
-        for (LogFileStrategy strategy : strategies) {
-            strategyCache.put(strategy.getStrategyName(), strategy);
-            strategy.init(getLogFileBaseDir());
+    @Override
+    public void processExchange(RequestLog log) {
+        if (!isEnabled()) {
+            return;
         }
 
-        // 如果没有找到策略，使用默认的按日期分割策略
-        if (strategyCache.isEmpty()) {
-            LogFileStrategy defaultStrategy = new DailyRollingStrategy();
-            defaultStrategy.init(getLogFileBaseDir());
-            strategyCache.put(defaultStrategy.getStrategyName(), defaultStrategy);
+        try {
+            writeToFile(LogEventType.EXCHANGE, log);
+        } catch (Exception e) {
+            logger.error("Error writing exchange log to file", e);
         }
     }
 
-    private LogFileStrategy getLogFileStrategy() {
-        if (properties == null) {
-            return null;
+    private boolean isEnabled() {
+        // mmap 策略由 MappedFileLogProcessor 处理
+        return properties != null && properties.isEnableFileLogging()
+            && !MappedSegmentStrategy.STRATEGY_NAME.equals(properties.getLogFileStrategy());
+    }
+
+    /**
+     * 查找配置的写入策略，没有注册任何策略时使用按日期滚动的策略
+     */
+    private LogSinkStrategy loadLogSinkStrategy() {
+        Map<String, LogSinkStrategy> strategies = new HashMap<>();
+        for (LogSinkStrategy sinkStrategy : ServiceLoader.load(LogSinkStrategy.class)) {
+            strategies.putIfAbsent(sinkStrategy.getStrategyName(), sinkStrategy);
+        }
+        for (LogFileStrategy fileStrategy : ServiceLoader.load(LogFileStrategy.class)) {
+            strategies.putIfAbsent(fileStrategy.getStrategyName(), new LegacyStrategyAdapter(fileStrategy));
         }
-        String strategyName = properties.getLogFileStrategy();
-        return strategyCache.get(strategyName);
+
+        if (strategies.isEmpty()) {
+            return new DailyRollingSinkStrategy();
+        }
+        return strategies.get(properties.getLogFileStrategy());
     }
 
-    private File getLogFileBaseDir() {
+    /**
+     * 解析日志目录，未配置或为空白时使用工作目录下的 logs
+     *
+     * @param properties 配置
+     * @return 日志目录
+     */
+    static File getLogFileBaseDir(RequestLoggingProperties properties) {
         String baseDir = properties != null ? properties.getLogFileBaseDir() : null;
         if (baseDir == null || baseDir.trim().isEmpty()) {
             baseDir = System.getProperty("user.dir") + File.separator + "logs";
@@ -170,33 +250,61 @@ public class FileLogProcessor implements RequestLogProcessor {
         return new File(baseDir);
     }
 
-    private void writeToFile(File file, String content) {
-        if (file == null) {
-            logger.error("Log file is null");
+    private void writeToFile(LogEventType type, RequestLog log) {
+        if (shards == null) {
             return;
         }
 
-        if (!file.getParentFile().exists()) {
-            file.getParentFile().mkdirs();
-        }
-
-        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
-             FileChannel channel = randomAccessFile.getChannel()) {
-            
-            FileLock lock = null;
-            try {
-                lock = channel.tryLock();
-                if (lock != null) {
-                    randomAccessFile.seek(randomAccessFile.length());
-                    randomAccessFile.write((content + System.lineSeparator()).getBytes());
-                }
-            } finally {
-                if (lock != null) {
-                    lock.release();
-                }
+        GroupCommitFileWriter fileWriter = shards.length == 1 ? shards[0].writer : threadShard.get().writer;
+        if (outputFormat == OutputFormat.BINARY) {
+            fileWriter.append(type, log);
+        } else {
+            fileWriter.append(log, encode(type, log).toByteArray());
+        }
+    }
+
+    /**
+     * 按配置的输出格式编码日志，结果包含记录分隔符
+     */
+    private Utf8Buffer encode(LogEventType type, RequestLog log) {
+        if (outputFormat == OutputFormat.JSON) {
+            return jsonEncoder.encode(type, log).appendAscii('\n');
+        }
+        return plainLogFormatter.format(type, log).append(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void close() {
+        if (shards != null) {
+            for (Shard shard : shards) {
+                shard.close();
             }
-        } catch (IOException e) {
-            logger.error("Error writing to log file: " + file.getAbsolutePath(), e);
+        }
+        if (maintenance != null) {
+            maintenance.close();
+        }
+    }
+
+    /**
+     * 一个分片的目录、写入策略与写入器
+     */
+    private final class Shard {
+        private final File baseDir;
+        private final LogSinkStrategy strategy;
+        private final GroupCommitFileWriter writer;
+
+        private Shard(LogSinkStrategy strategy, File baseDir) {
+            strategy.init(baseDir, properties);
+            this.baseDir = baseDir;
+            this.strategy = strategy;
+            // 二进制格式的符号表依赖写入顺序，由写入器在写锁内编码
+            this.writer = outputFormat == OutputFormat.BINARY
+                ? new GroupCommitFileWriter(strategy, new BinaryLogEncoder()) : new GroupCommitFileWriter(strategy);
+        }
+
+        private void close() {
+            writer.close();
+            strategy.close();
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 以追加方式打开的文件写入目标
+ * 打开时读取一次文件大小，之后由写入器回报的字节数累加，不再查询文件大小
+ *
+ * @author weihan
+ */
+public class FileSink implements LogSink, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(FileSink.class);
+
+    private final File file;
+    private final FileChannel channel;
+    private volatile long bytesWritten;
+
+    /**
+     * 打开文件，父目录不存在时自动创建
+     *
+     * @param file 日志文件
+     * @throws IOException 打开失败
+     */
+    public FileSink(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            logger.warn("Failed to create log directory: {}", parent);
+        }
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.bytesWritten = channel.size();
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * 累加写入的字节数，仅由写入器在写锁内调用
+     *
+     * @param bytes 字节数
+     */
+    void addBytesWritten(long bytes) {
+        bytesWritten += bytes;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Error closing log file: {}", file, e);
+        }
+    }
+}
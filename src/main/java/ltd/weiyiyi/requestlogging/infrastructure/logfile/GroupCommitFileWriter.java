@@ -0,0 +1,213 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.layout.Utf8Buffer;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogSink;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogSinkStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 组提交文件写入器
+ * 多个线程提交的日志先进入队列，由获得写锁的线程一次性取出并通过一次聚集写入（gathering write）落盘；
+ * 其他线程拿到锁时发现自己的日志已被写入即直接返回。
+ * 每个批次向 {@link LogSinkStrategy} 获取一次写入目标，写入后回报字节数，文件的打开、滚动与关闭都由策略负责。
+ * 配置了 {@link RecordEncoder} 时，日志由获得写锁的线程按落盘顺序编码，写入目标每次变化都会开始一个新的段
+ *
+ * @author weihan
+ */
+public class GroupCommitFileWriter implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitFileWriter.class);
+    private static final int MAX_BATCH_RECORDS = 1024;
+    private static final int MAX_RETAINED_ENCODE_BUFFER_SIZE = 1024 * 1024;
+
+    private final ConcurrentLinkedQueue<PendingRecord> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ByteBuffer[] batch = new ByteBuffer[MAX_BATCH_RECORDS];
+    private final PendingRecord[] batchRecords = new PendingRecord[MAX_BATCH_RECORDS];
+    private final LogSinkStrategy strategy;
+    private final RecordEncoder encoder;
+    private final Utf8Buffer encodeBuffer;
+    private LogSink currentSink;
+    private boolean segmentStarted;
+    private boolean closed;
+
+    public GroupCommitFileWriter(LogSinkStrategy strategy) {
+        this(strategy, null);
+    }
+
+    /**
+     * @param strategy 写入策略，由调用方负责初始化与关闭
+     * @param encoder 记录编码器，为null时只能追加已编码的内容
+     */
+    public GroupCommitFileWriter(LogSinkStrategy strategy, RecordEncoder encoder) {
+        this.strategy = strategy;
+        this.encoder = encoder;
+        this.encodeBuffer = encoder != null ? new Utf8Buffer(64 * 1024) : null;
+    }
+
+    /**
+     * 追加一条日志，返回时该日志已写入文件（或写入失败并已记录错误）
+     *
+     * @param log 请求日志对象，用于选择写入目标
+     * @param record 编码后的日志内容
+     */
+    public void append(RequestLog log, byte[] record) {
+        if (encoder != null) {
+            throw new IllegalStateException("Writer with record encoder only accepts log records");
+        }
+        submit(new PendingRecord(record, null, log));
+    }
+
+    /**
+     * 追加一条由 {@link RecordEncoder} 编码的日志，返回时该日志已写入文件（或写入失败并已记录错误）。
+     * 返回前不得修改日志对象
+     *
+     * @param type 事件类型
+     * @param log 请求日志对象
+     */
+    public void append(LogEventType type, RequestLog log) {
+        if (encoder == null) {
+            throw new IllegalStateException("No record encoder configured");
+        }
+        submit(new PendingRecord(null, type, log));
+    }
+
+    private void submit(PendingRecord pendingRecord) {
+        pending.offer(pendingRecord);
+        writeLock.lock();
+        try {
+            // 在等待锁期间可能已被其他线程批量写入
+            while (!pendingRecord.done) {
+                writeBatch();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void writeBatch() {
+        int count = 0;
+        PendingRecord record;
+        while (count < MAX_BATCH_RECORDS && (record = pending.poll()) != null) {
+            batchRecords[count] = record;
+            if (record.content != null) {
+                batch[count] = ByteBuffer.wrap(record.content);
+            }
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        LogSink sink = null;
+        try {
+            sink = acquire(batchRecords[0].log);
+            FileChannel fileChannel = sink.getChannel();
+            if (encoder != null) {
+                strategy.onBytesWritten(sink, writeEncoded(fileChannel, count));
+                return;
+            }
+            long total = 0;
+            for (int i = 0; i < count; i++) {
+                total += batch[i].remaining();
+            }
+            long remaining = total;
+            while (remaining > 0) {
+                remaining -= fileChannel.write(batch, 0, count);
+            }
+            strategy.onBytesWritten(sink, total);
+        } catch (IOException e) {
+            logger.error("Error writing {} log records to file: {}", count, sink != null ? sink.getFile() : null, e);
+            if (sink != null) {
+                currentSink = null;
+                strategy.onWriteError(sink, e);
+            }
+        } finally {
+            for (int i = 0; i < count; i++) {
+                batchRecords[i].done = true;
+                batchRecords[i] = null;
+                batch[i] = null;
+            }
+        }
+    }
+
+    private LogSink acquire(RequestLog log) throws IOException {
+        if (closed) {
+            throw new IOException("Writer is closed");
+        }
+        LogSink sink = strategy.acquire(log);
+        if (sink != currentSink) {
+            currentSink = sink;
+            segmentStarted = false;
+        }
+        return sink;
+    }
+
+    /**
+     * 将批次内的日志编码到同一缓冲区后一次写入
+     *
+     * @return 写入的字节数
+     */
+    private int writeEncoded(FileChannel fileChannel, int count) throws IOException {
+        encodeBuffer.reset(MAX_RETAINED_ENCODE_BUFFER_SIZE);
+        if (!segmentStarted) {
+            encoder.beginSegment(encodeBuffer);
+            segmentStarted = true;
+        }
+        for (int i = 0; i < count; i++) {
+            PendingRecord record = batchRecords[i];
+            try {
+                encoder.encode(record.type, record.log, encodeBuffer);
+            } catch (RuntimeException e) {
+                logger.error("Error encoding log record: {}", record.log.getTraceId(), e);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(encodeBuffer.array(), 0, encodeBuffer.length());
+        while (buffer.hasRemaining()) {
+            fileChannel.write(buffer);
+        }
+        return encodeBuffer.length();
+    }
+
+    /**
+     * 写入剩余日志，写入目标由策略关闭
+     */
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            while (!pending.isEmpty()) {
+                writeBatch();
+            }
+            currentSink = null;
+            closed = true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static final class PendingRecord {
+        private final byte[] content;
+        private final LogEventType type;
+        private final RequestLog log;
+        /**
+         * 仅在持有写锁时读写
+         */
+        private boolean done;
+
+        private PendingRecord(byte[] content, LogEventType type, RequestLog log) {
+            this.content = content;
+            this.type = type;
+            this.log = log;
+        }
+    }
+}
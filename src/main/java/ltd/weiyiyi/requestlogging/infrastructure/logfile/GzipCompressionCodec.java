@@ -0,0 +1,32 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.infrastructure.spi.CompressionCodec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip 压缩编解码器
+ *
+ * @author weihan
+ */
+public class GzipCompressionCodec implements CompressionCodec {
+    public static final String CODEC_NAME = "gzip";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public String getName() {
+        return CODEC_NAME;
+    }
+
+    @Override
+    public String getFileExtension() {
+        return ".gz";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,107 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogFileStrategy;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogSink;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogSinkStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * 旧版日志文件策略适配器
+ * 将 {@link LogFileStrategy} 包装为 {@link LogSinkStrategy}：每个批次以第一条日志调用一次
+ * {@link LogFileStrategy#getLogFile(RequestLog)}，返回的文件发生变化时才关闭旧文件并打开新文件。
+ * 旧版策略的 getLogFile 可能带有滚动等副作用，因此只在初始化与写入时调用，
+ * {@link #getActiveFile()} 返回缓存的当前文件
+ *
+ * @author weihan
+ */
+public class LegacyStrategyAdapter implements LogSinkStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(LegacyStrategyAdapter.class);
+
+    private final LogFileStrategy delegate;
+    private volatile FileSink current;
+    private volatile File activeFile;
+    private volatile Consumer<File> sinkClosedListener;
+
+    public LegacyStrategyAdapter(LogFileStrategy delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getStrategyName() {
+        return delegate.getStrategyName();
+    }
+
+    @Override
+    public void init(File baseDir, RequestLoggingProperties properties) {
+        delegate.init(baseDir, properties);
+        // 在后台任务启动前确定当前文件，避免启动时的补压处理到即将续写的文件
+        this.activeFile = delegate.getLogFile(null);
+    }
+
+    @Override
+    public LogSink acquire(RequestLog log) throws IOException {
+        File file = delegate.getLogFile(log);
+        if (file == null) {
+            throw new IOException("Strategy " + delegate.getStrategyName() + " returned no log file");
+        }
+        FileSink sink = current;
+        if (sink != null && file.equals(sink.getFile())) {
+            return sink;
+        }
+        FileSink opened = new FileSink(file);
+        current = opened;
+        activeFile = file;
+        if (sink != null) {
+            sink.close();
+            Consumer<File> listener = sinkClosedListener;
+            if (listener != null) {
+                try {
+                    listener.accept(sink.getFile());
+                } catch (RuntimeException e) {
+                    logger.warn("Error notifying closed log file: {}", sink.getFile(), e);
+                }
+            }
+        }
+        return opened;
+    }
+
+    @Override
+    public void onBytesWritten(LogSink sink, long bytes) {
+        ((FileSink) sink).addBytesWritten(bytes);
+        delegate.onBytesWritten(sink.getFile(), bytes);
+    }
+
+    @Override
+    public void onWriteError(LogSink sink, IOException error) {
+        if (sink == current) {
+            current = null;
+        }
+        ((FileSink) sink).close();
+    }
+
+    @Override
+    public File getActiveFile() {
+        return activeFile;
+    }
+
+    @Override
+    public void onSinkClosed(Consumer<File> listener) {
+        this.sinkClosedListener = listener;
+    }
+
+    @Override
+    public void close() {
+        FileSink sink = current;
+        current = null;
+        if (sink != null) {
+            sink.close();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.unit.DataSize;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 日志目录的后台维护
+ * 组合 {@link SegmentCompressor} 与 {@link RetentionManager}，由文件日志处理器在文件滚动时调用
+ * {@link #fileClosed(File)}，该方法只入队后台任务，不阻塞写入线程。
+ * 多个分片共用一个实例，保留限制作用于所有分片目录的合计
+ *
+ * @author weihan
+ */
+public class LogFileMaintenance implements Closeable {
+    private final SegmentCompressor compressor;
+    private final RetentionManager retentionManager;
+
+    /**
+     * 按配置创建并启动后台维护
+     *
+     * @param properties 配置
+     * @param baseDir 日志目录
+     * @param activeFile 返回当前正在写入的文件，可以返回null
+     */
+    public LogFileMaintenance(RequestLoggingProperties properties, File baseDir, Supplier<File> activeFile) {
+        this(properties, List.of(baseDir), () -> {
+            File file = activeFile.get();
+            return file != null ? List.of(file) : List.of();
+        });
+    }
+
+    /**
+     * 按配置创建并启动多个目录共用的后台维护
+     *
+     * @param properties 配置
+     * @param baseDirs 日志目录
+     * @param activeFiles 返回各目录当前正在写入的文件
+     */
+    public LogFileMaintenance(RequestLoggingProperties properties, List<File> baseDirs,
+                              Supplier<? extends Collection<File>> activeFiles) {
+        RetentionManager retention = new RetentionManager(baseDirs,
+                properties.getMaxHistory() > 0 ? TimeUnit.DAYS.toMillis(properties.getMaxHistory()) : 0,
+                properties.getMaxLogFiles(),
+                DataSize.parse(properties.getMaxTotalSize()).toBytes(),
+                activeFiles);
+        if (retention.isLimited()) {
+            this.retentionManager = retention;
+        } else {
+            retention.close();
+            this.retentionManager = null;
+        }
+        if (properties.isCompressRolledFiles()) {
+            this.compressor = new SegmentCompressor(SegmentCompressor.loadCodec(properties.getCompressionCodec()),
+                    properties.getCompressionThreads(), activeFiles);
+            if (retentionManager != null) {
+                compressor.onCompressed(retentionManager::segmentReplaced);
+            }
+            for (File baseDir : baseDirs) {
+                compressor.submitClosedSegments(baseDir);
+            }
+        } else {
+            this.compressor = null;
+        }
+        if (retentionManager != null) {
+            retentionManager.start(DurationStyle.detectAndParse(properties.getRetentionCheckInterval()).toMillis());
+        }
+    }
+
+    /**
+     * 通知一个日志文件已关闭，立即返回
+     *
+     * @param file 日志文件
+     */
+    public void fileClosed(File file) {
+        if (retentionManager != null) {
+            retentionManager.segmentClosed(file);
+        }
+        if (compressor != null) {
+            compressor.submit(file);
+        }
+    }
+
+    /**
+     * 停止后台线程
+     */
+    @Override
+    public void close() {
+        if (compressor != null) {
+            compressor.close();
+        }
+        if (retentionManager != null) {
+            retentionManager.close();
+        }
+    }
+}
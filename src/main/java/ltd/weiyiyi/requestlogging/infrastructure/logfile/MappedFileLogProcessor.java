@@ -0,0 +1,151 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.JsonLinesEncoder;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.LogFormatter;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.OutputFormat;
+import ltd.weiyiyi.requestlogging.infrastructure.layout.Utf8Buffer;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.RequestLogProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存映射文件日志处理器
+ * 当 log-file-strategy 为 mmap 时生效，每条日志只需一次CAS预留区域和一次内存拷贝，
+ * 适合记录完整请求/响应体的高流量接口
+ *
+ * @author weihan
+ */
+public class MappedFileLogProcessor implements RequestLogProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileLogProcessor.class);
+    private RequestLoggingProperties properties;
+    private LogFormatter plainLogFormatter;
+    private final JsonLinesEncoder jsonEncoder = new JsonLinesEncoder();
+    private OutputFormat outputFormat = OutputFormat.TEXT;
+    private MappedSegmentStrategy strategy;
+    private LogFileMaintenance maintenance;
+    private final LongAdder droppedCount = new LongAdder();
+
+    public MappedFileLogProcessor() {
+        // 无参构造函数，用于SPI加载
+    }
+
+    @Override
+    public void init(RequestLoggingProperties properties) {
+        this.properties = properties;
+        if (!isEnabled()) {
+            return;
+        }
+        this.plainLogFormatter = new LogFormatter(FileLogProcessor.plainProperties(properties));
+        this.outputFormat = OutputFormat.of(properties.getFileOutputFormat());
+        if (outputFormat == OutputFormat.BINARY) {
+            logger.warn("Binary output format is not supported by mmap strategy, falling back to text");
+            this.outputFormat = OutputFormat.TEXT;
+        }
+        long segmentSize = DataSize.parse(properties.getMappedSegmentSize()).toBytes();
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("mapped-segment-size must be between 1B and 2GB: "
+                + properties.getMappedSegmentSize());
+        }
+        this.strategy = new MappedSegmentStrategy((int) segmentSize, properties.getMaxHistory());
+        File baseDir = FileLogProcessor.getLogFileBaseDir(properties);
+        strategy.init(baseDir);
+        MappedSegmentStrategy segmentStrategy = strategy;
+        this.maintenance = new LogFileMaintenance(properties, baseDir,
+            () -> segmentStrategy.getLogFile(null));
+        strategy.onSegmentSealed(maintenance::fileClosed);
+    }
+
+    @Override
+    public void processRequestStart(RequestLog log) {
+        if (strategy != null) {
+            append(encode(LogEventType.REQUEST_START, log));
+        }
+    }
+
+    @Override
+    public void processRequestComplete(RequestLog log) {
+        if (strategy != null) {
+            append(encode(LogEventType.REQUEST_COMPLETE, log));
+        }
+    }
+
+    @Override
+    public void processRequestError(RequestLog log) {
+        if (strategy != null) {
+            append(encode(LogEventType.REQUEST_ERROR, log));
+        }
+    }
+
+    @Override
+    public void processExchange(RequestLog log) {
+        if (strategy != null) {
+            append(encode(LogEventType.EXCHANGE, log));
+        }
+    }
+
+    private boolean isEnabled() {
+        return properties.isEnableFileLogging()
+            && MappedSegmentStrategy.STRATEGY_NAME.equals(properties.getLogFileStrategy());
+    }
+
+    private Utf8Buffer encode(LogEventType type, RequestLog log) {
+        if (outputFormat == OutputFormat.JSON) {
+            return jsonEncoder.encode(type, log).appendAscii('\n');
+        }
+        return plainLogFormatter.format(type, log).append(FileLogProcessor.LINE_SEPARATOR);
+    }
+
+    private void append(Utf8Buffer content) {
+        int length = content.length();
+        for (;;) {
+            MappedSegment segment = strategy.currentSegment();
+            if (segment == null) {
+                // 初始化时创建段失败，重试一次
+                if (!strategy.rollOver(null)) {
+                    droppedCount.increment();
+                    return;
+                }
+                continue;
+            }
+            if (length > segment.getCapacity()) {
+                logger.error("Log record of {} bytes exceeds mapped segment size {}", length, segment.getCapacity());
+                droppedCount.increment();
+                return;
+            }
+            int offset = segment.reserve(length);
+            if (offset >= 0) {
+                segment.write(offset, content.array(), length);
+                return;
+            }
+            // 无法创建新段时丢弃该日志，不在请求线程中反复重试
+            if (!strategy.rollOver(segment)) {
+                droppedCount.increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 因日志过大或无法创建日志段而丢弃的日志数量
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    @Override
+    public void close() {
+        if (strategy != null) {
+            strategy.close();
+        }
+        if (maintenance != null) {
+            maintenance.close();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存映射日志段
+ * 文件创建时即预分配为固定大小并整体映射，写入线程通过CAS推进写入游标预留各自的区域，
+ * 随后直接拷贝到映射内存中，刷盘交给操作系统。段写满后被封存，最后一个写入完成的线程
+ * 负责将文件截断到实际长度并关闭。
+ * 封存通过CAS在写入游标上置封存标记完成，与预留互斥：封存之后的预留必然失败，
+ * 封存时刻的游标即为段的最终长度，所有在此之前预留的区域写入完成后才会截断
+ *
+ * @author weihan
+ */
+public class MappedSegment {
+    private static final Logger logger = LoggerFactory.getLogger(MappedSegment.class);
+    /**
+     * 写入游标上的封存标记，低位仍保存封存时的游标
+     */
+    private static final long SEALED = 1L << 62;
+
+    private final File file;
+    private final int capacity;
+    private final long expiresAt;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    /**
+     * 创建并映射日志段
+     *
+     * @param file 段文件
+     * @param capacity 段大小（字节）
+     * @param expiresAt 段过期时间（毫秒时间戳），超过该时间后不再写入
+     * @throws IOException 创建或映射失败
+     */
+    public MappedSegment(File file, int capacity, long expiresAt) throws IOException {
+        this.file = file;
+        this.capacity = capacity;
+        this.expiresAt = expiresAt;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(capacity);
+            this.channel = randomAccessFile.getChannel();
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 预留写入区域
+     *
+     * @param length 需要的字节数
+     * @return 区域起始偏移，段已满时返回-1并封存该段
+     */
+    public int reserve(int length) {
+        for (;;) {
+            long position = cursor.get();
+            if ((position & SEALED) != 0) {
+                return -1;
+            }
+            if (position + length > capacity) {
+                seal();
+                return -1;
+            }
+            if (cursor.compareAndSet(position, position + length)) {
+                return (int) position;
+            }
+        }
+    }
+
+    /**
+     * 将内容写入已预留的区域
+     *
+     * @param offset {@link #reserve(int)} 返回的偏移
+     * @param content 日志内容
+     * @param length 内容长度，与预留的长度一致
+     */
+    public void write(int offset, byte[] content, int length) {
+        buffer.put(offset, content, 0, length);
+        completed.addAndGet(length);
+        if (isSealed()) {
+            tryFinish();
+        }
+    }
+
+    /**
+     * 封存该段，不再接受新的写入
+     */
+    public void seal() {
+        for (;;) {
+            long position = cursor.get();
+            if ((position & SEALED) != 0 || cursor.compareAndSet(position, position | SEALED)) {
+                break;
+            }
+        }
+        tryFinish();
+    }
+
+    /**
+     * 段已封存且封存前预留的区域都已写入时，由最后一个线程截断并关闭文件
+     */
+    private void tryFinish() {
+        long position = cursor.get();
+        if ((position & SEALED) == 0) {
+            return;
+        }
+        long length = position & ~SEALED;
+        if (completed.get() != length || !finished.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buffer.force();
+            // 截断预分配的空白区域；部分平台不允许截断已映射的文件，此时保留空白区域
+            channel.truncate(length);
+        } catch (IOException e) {
+            logger.debug("Unable to truncate mapped segment {} to {} bytes", file, length, e);
+        } finally {
+            try {
+                randomAccessFile.close();
+            } catch (IOException e) {
+                logger.warn("Error closing mapped segment: {}", file, e);
+            }
+        }
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    public boolean isSealed() {
+        return (cursor.get() & SEALED) != 0;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,198 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogFileStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 内存映射日志段策略
+ * 按固定大小预分配日志段文件，段写满或跨天时滚动到下一个段，
+ * 由 {@link MappedFileLogProcessor} 直接写入当前段的映射内存
+ *
+ * @author weihan
+ */
+public class MappedSegmentStrategy implements LogFileStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(MappedSegmentStrategy.class);
+    public static final String STRATEGY_NAME = "mmap";
+    private static final String FILE_PREFIX = "request-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024; // 64MB
+    private static final int DEFAULT_MAX_FILES = 30;
+
+    private final int segmentSize;
+    private final int maxFiles;
+    private final ReentrantLock rollLock = new ReentrantLock();
+    private File baseDir;
+    private volatile MappedSegment currentSegment;
+    private LocalDate currentDate;
+    private int currentIndex;
+    private boolean rollFailing;
+    private volatile Consumer<File> segmentSealedListener;
+
+    public MappedSegmentStrategy() {
+        this(DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_FILES);
+    }
+
+    public MappedSegmentStrategy(int segmentSize, int maxFiles) {
+        this.segmentSize = segmentSize;
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public String getStrategyName() {
+        return STRATEGY_NAME;
+    }
+
+    @Override
+    public void init(File baseDir) {
+        if (!baseDir.exists() && !baseDir.mkdirs()) {
+            logger.error("Failed to create base directory: {}", baseDir);
+            throw new RuntimeException("Failed to create base directory: " + baseDir);
+        }
+        this.baseDir = baseDir;
+        rollOver(null);
+    }
+
+    @Override
+    public File getLogFile(RequestLog log) {
+        MappedSegment segment = currentSegment();
+        return segment != null ? segment.getFile() : null;
+    }
+
+    /**
+     * 获取当前可写入的日志段，跨天时自动滚动
+     *
+     * @return 当前日志段
+     */
+    public MappedSegment currentSegment() {
+        MappedSegment segment = currentSegment;
+        if (segment != null && segment.isExpired(System.currentTimeMillis())) {
+            rollOver(segment);
+            segment = currentSegment;
+        }
+        return segment;
+    }
+
+    /**
+     * 滚动到下一个日志段；若当前段已被其他线程滚动则直接返回
+     *
+     * @param full 调用方认为已写满的段
+     * @return 当前段已不是 full 时返回true，创建新段失败时返回false
+     */
+    public boolean rollOver(MappedSegment full) {
+        rollLock.lock();
+        try {
+            if (currentSegment != full) {
+                return true;
+            }
+            LocalDate today = LocalDate.now();
+            if (!today.equals(currentDate)) {
+                currentDate = today;
+                currentIndex = findLastIndex(today);
+            }
+            long expiresAt = today.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            int index = currentIndex + 1;
+            File file = new File(baseDir, String.format("%s%s-%03d%s", FILE_PREFIX, today, index, FILE_SUFFIX));
+            currentSegment = new MappedSegment(file, segmentSize, expiresAt);
+            // 创建成功后才占用序号，失败重试时沿用同一个文件名
+            currentIndex = index;
+            if (rollFailing) {
+                rollFailing = false;
+                logger.info("Mapped log segment created after previous failures: {}", file);
+            }
+            if (full != null) {
+                full.seal();
+                Consumer<File> listener = segmentSealedListener;
+                if (listener != null) {
+                    listener.accept(full.getFile());
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            // 持续失败（例如磁盘已满）时只记录第一次，避免每条日志都输出错误
+            if (!rollFailing) {
+                rollFailing = true;
+                logger.error("Error creating mapped log segment, log records are dropped until it succeeds", e);
+            } else {
+                logger.debug("Error creating mapped log segment", e);
+            }
+            return false;
+        } finally {
+            rollLock.unlock();
+        }
+    }
+
+    /**
+     * 设置段封存监听器，滚动后以旧段文件为参数调用，监听器不得阻塞
+     *
+     * @param listener 监听器，为null时不通知
+     */
+    public void onSegmentSealed(Consumer<File> listener) {
+        this.segmentSealedListener = listener;
+    }
+
+    private int findLastIndex(LocalDate date) {
+        String prefix = FILE_PREFIX + date + "-";
+        File[] files = baseDir.listFiles((dir, name) -> name.startsWith(prefix) && SegmentCompressor.isLogFile(name));
+        int lastIndex = 0;
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                try {
+                    int index = Integer.parseInt(name.substring(prefix.length(), name.indexOf(FILE_SUFFIX, prefix.length())));
+                    lastIndex = Math.max(lastIndex, index);
+                } catch (NumberFormatException e) {
+                    // 非本策略生成的文件
+                }
+            }
+        }
+        return lastIndex;
+    }
+
+    /**
+     * 封存当前日志段并释放映射
+     */
+    public void close() {
+        rollLock.lock();
+        try {
+            MappedSegment segment = currentSegment;
+            if (segment != null) {
+                segment.seal();
+            }
+        } finally {
+            rollLock.unlock();
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        if (baseDir == null || !baseDir.exists()) {
+            return;
+        }
+
+        // 压缩后的日志文件同样计入保留数量
+        File[] files = baseDir.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && SegmentCompressor.isLogFile(name));
+        if (files == null || files.length <= maxFiles) {
+            return;
+        }
+
+        // 按修改时间排序，保留最新的maxFiles个文件
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        File active = getLogFile(null);
+        for (int i = maxFiles; i < files.length; i++) {
+            if (!files[i].equals(active) && !files[i].delete()) {
+                logger.warn("Failed to delete old log file: {}", files[i]);
+            }
+        }
+    }
+}
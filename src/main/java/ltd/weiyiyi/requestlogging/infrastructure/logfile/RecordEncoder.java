@@ -0,0 +1,32 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.layout.Utf8Buffer;
+
+/**
+ * 有状态的日志记录编码器
+ * 由 {@link GroupCommitFileWriter} 在持有写锁时按落盘顺序调用，
+ * 适用于编码结果依赖文件中已写入内容的格式（如带符号表的二进制格式）
+ *
+ * @author weihan
+ */
+public interface RecordEncoder {
+
+    /**
+     * 开始一个新的段，文件通道（重新）打开时调用
+     * 实现需重置内部状态并写入段头
+     *
+     * @param out 输出缓冲区
+     */
+    void beginSegment(Utf8Buffer out);
+
+    /**
+     * 编码一条日志并追加到输出缓冲区
+     *
+     * @param type 事件类型
+     * @param log 请求日志对象
+     * @param out 输出缓冲区
+     */
+    void encode(LogEventType type, RequestLog log, Utf8Buffer out);
+}
@@ -0,0 +1,278 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 日志保留管理器
+ * 在独立的低优先级线程上按固定间隔执行清理，同时限制保留时长、文件数量与总字节数，
+ * 任一限制被突破时从最旧的文件开始删除，当前正在写入的文件永远不会被删除。
+ * 可以同时管理多个目录（例如各个分片），限制作用于所有目录的合计
+ *
+ * <p>已关闭文件的大小与修改时间在内存索引中维护，启动时扫描一次目录，之后由写入器的滚动事件和
+ * 压缩完成事件增量更新，事件只入队不加锁，由清理线程统一处理；每小时重新扫描一次目录用于纠正外部改动</p>
+ *
+ * @author weihan
+ */
+public class RetentionManager implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(RetentionManager.class);
+    private static final String FILE_PREFIX = "request";
+    private static final long RESCAN_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final List<File> baseDirs;
+    private final long maxAgeMillis;
+    private final int maxFiles;
+    private final long maxTotalBytes;
+    private final Supplier<? extends Collection<File>> activeFiles;
+    private final ConcurrentLinkedQueue<FileEvent> events = new ConcurrentLinkedQueue<>();
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * 以下字段仅在清理线程中访问
+     */
+    private final TreeSet<Segment> segments = new TreeSet<>(
+            Comparator.comparingLong((Segment segment) -> segment.lastModified).thenComparing(segment -> segment.file));
+    private final Map<File, Segment> segmentsByFile = new HashMap<>();
+    private long indexedBytes;
+    private long lastScanMillis;
+
+    /**
+     * @param baseDirs 日志目录
+     * @param maxAgeMillis 最长保留时间（毫秒），不大于0表示不限制
+     * @param maxFiles 所有目录合计最多保留的文件数（包括当前文件），不大于0表示不限制
+     * @param maxTotalBytes 所有目录中日志文件的总字节数上限，不大于0表示不限制
+     * @param activeFiles 返回各目录当前正在写入的文件
+     */
+    public RetentionManager(List<File> baseDirs, long maxAgeMillis, int maxFiles, long maxTotalBytes,
+                            Supplier<? extends Collection<File>> activeFiles) {
+        this.baseDirs = List.copyOf(baseDirs);
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxFiles = maxFiles;
+        this.maxTotalBytes = maxTotalBytes;
+        this.activeFiles = activeFiles;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "request-logging-retention");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * 是否配置了任一限制
+     */
+    public boolean isLimited() {
+        return maxAgeMillis > 0 || maxFiles > 0 || maxTotalBytes > 0;
+    }
+
+    /**
+     * 开始按固定间隔清理，首次清理立即执行
+     *
+     * @param intervalMillis 清理间隔（毫秒）
+     */
+    public void start(long intervalMillis) {
+        executor.scheduleWithFixedDelay(this::runSafely, 0, Math.max(1, intervalMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 通知一个日志文件已关闭，立即返回
+     *
+     * @param file 日志文件
+     */
+    public void segmentClosed(File file) {
+        if (file != null) {
+            events.offer(new FileEvent(file, null));
+        }
+    }
+
+    /**
+     * 通知一个日志文件已被替换（例如压缩完成），立即返回
+     *
+     * @param original 原文件
+     * @param replacement 替换后的文件
+     */
+    public void segmentReplaced(File original, File replacement) {
+        events.offer(new FileEvent(original, replacement));
+    }
+
+    private void runSafely() {
+        try {
+            enforce(System.currentTimeMillis());
+        } catch (Exception e) {
+            logger.error("Error enforcing log retention in {}", baseDirs, e);
+        }
+    }
+
+    /**
+     * 执行一次清理，只能在清理线程中调用
+     *
+     * @param now 当前时间（毫秒时间戳）
+     * @return 删除的文件数
+     */
+    int enforce(long now) {
+        if (lastScanMillis == 0 || now - lastScanMillis >= RESCAN_INTERVAL_MILLIS) {
+            rescan();
+            lastScanMillis = now;
+        } else {
+            applyEvents();
+        }
+
+        Collection<File> active = activeFiles.get();
+        int count = segments.size();
+        long totalBytes = indexedBytes;
+        for (File file : active) {
+            if (!file.exists()) {
+                continue;
+            }
+            // 当前文件一直在增长，每次只读取当前文件的大小
+            long activeBytes = file.length();
+            Segment activeSegment = segmentsByFile.get(file);
+            if (activeSegment == null) {
+                count++;
+                totalBytes += activeBytes;
+            } else {
+                totalBytes += activeBytes - activeSegment.size;
+            }
+        }
+
+        int deleted = 0;
+        long expiredBefore = maxAgeMillis > 0 ? now - maxAgeMillis : Long.MIN_VALUE;
+        Iterator<Segment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            if (active.contains(segment.file)) {
+                continue;
+            }
+            boolean expired = segment.lastModified < expiredBefore;
+            boolean tooMany = maxFiles > 0 && count > maxFiles;
+            boolean tooLarge = maxTotalBytes > 0 && totalBytes > maxTotalBytes;
+            if (!expired && !tooMany && !tooLarge) {
+                // 按修改时间升序遍历，之后的文件都更新
+                break;
+            }
+            if (!segment.file.delete() && segment.file.exists()) {
+                logger.warn("Failed to delete old log file: {}", segment.file);
+                continue;
+            }
+            iterator.remove();
+            segmentsByFile.remove(segment.file);
+            indexedBytes -= segment.size;
+            count--;
+            totalBytes -= segment.size;
+            deleted++;
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} old log files in {}, {} files and {} bytes retained", deleted, baseDirs, count, totalBytes);
+        }
+        return deleted;
+    }
+
+    private void applyEvents() {
+        FileEvent event;
+        while ((event = events.poll()) != null) {
+            remove(event.file);
+            File file = event.replacement != null ? event.replacement : event.file;
+            if (file.exists()) {
+                add(file);
+            }
+        }
+    }
+
+    private void rescan() {
+        events.clear();
+        segments.clear();
+        segmentsByFile.clear();
+        indexedBytes = 0;
+        for (File baseDir : baseDirs) {
+            File[] files = baseDir.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && SegmentCompressor.isLogFile(name));
+            if (files != null) {
+                for (File file : files) {
+                    add(file);
+                }
+            }
+        }
+    }
+
+    private void add(File file) {
+        Segment segment = new Segment(file, file.length(), file.lastModified());
+        segments.add(segment);
+        segmentsByFile.put(file, segment);
+        indexedBytes += segment.size;
+    }
+
+    private void remove(File file) {
+        Segment segment = segmentsByFile.remove(file);
+        if (segment != null) {
+            segments.remove(segment);
+            indexedBytes -= segment.size;
+        }
+    }
+
+    /**
+     * 已索引的文件数
+     */
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 已索引文件的总字节数
+     */
+    long getIndexedBytes() {
+        return indexedBytes;
+    }
+
+    /**
+     * 停止清理线程，正在进行的清理最多等待5秒
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Segment {
+        private final File file;
+        private final long size;
+        private final long lastModified;
+
+        private Segment(File file, long size, long lastModified) {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static final class FileEvent {
+        private final File file;
+        private final File replacement;
+
+        private FileEvent(File file, File replacement) {
+            this.file = file;
+            this.replacement = replacement;
+        }
+    }
+}
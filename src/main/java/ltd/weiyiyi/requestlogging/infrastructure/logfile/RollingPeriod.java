@@ -0,0 +1,104 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 滚动周期
+ * 以本地时间的零点为起点把一天切分为等长的时间窗口，周期不能整除一天时最后一个窗口在次日零点截止。
+ * 周期为一天时文件名标签为 {@code yyyy-MM-dd}，为整小时时为 {@code yyyy-MM-dd-HH}，否则为 {@code yyyy-MM-dd-HH-mm}
+ *
+ * @author weihan
+ */
+public final class RollingPeriod {
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    private final long periodMillis;
+    private final ZoneId zone;
+    private final DateTimeFormatter formatter;
+
+    private RollingPeriod(long periodMillis, ZoneId zone) {
+        this.periodMillis = periodMillis;
+        this.zone = zone;
+        String pattern = periodMillis == DAY_MILLIS ? "yyyy-MM-dd"
+                : periodMillis % HOUR_MILLIS == 0 ? "yyyy-MM-dd-HH" : "yyyy-MM-dd-HH-mm";
+        this.formatter = DateTimeFormatter.ofPattern(pattern).withZone(zone);
+    }
+
+    /**
+     * 创建滚动周期
+     *
+     * @param period 周期，必须是整分钟且在1分钟到1天之间
+     * @return 滚动周期
+     * @throws IllegalArgumentException 周期不合法
+     */
+    public static RollingPeriod of(Duration period) {
+        return of(period, ZoneId.systemDefault());
+    }
+
+    static RollingPeriod of(Duration period, ZoneId zone) {
+        long millis = period.toMillis();
+        if (millis < MINUTE_MILLIS || millis > DAY_MILLIS || millis % MINUTE_MILLIS != 0) {
+            throw new IllegalArgumentException("Rolling period must be whole minutes between 1m and 1d: " + period);
+        }
+        return new RollingPeriod(millis, zone);
+    }
+
+    /**
+     * 每天一个窗口
+     */
+    public static RollingPeriod daily() {
+        return of(Duration.ofDays(1));
+    }
+
+    /**
+     * 获取包含指定时间的窗口的起始时间
+     *
+     * @param millis 毫秒时间戳
+     * @return 窗口起始时间（毫秒时间戳）
+     */
+    public long windowStart(long millis) {
+        long dayStart = startOfDay(millis);
+        return dayStart + (millis - dayStart) / periodMillis * periodMillis;
+    }
+
+    /**
+     * 获取窗口的结束时间（不包含）
+     *
+     * @param windowStart 窗口起始时间
+     * @return 下一个窗口的起始时间（毫秒时间戳）
+     */
+    public long windowEnd(long windowStart) {
+        long nextDay = startOfNextDay(windowStart);
+        return Math.min(windowStart + periodMillis, nextDay);
+    }
+
+    /**
+     * 获取窗口的文件名标签
+     *
+     * @param windowStart 窗口起始时间
+     * @return 文件名标签
+     */
+    public String label(long windowStart) {
+        return formatter.format(Instant.ofEpochMilli(windowStart));
+    }
+
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    private long startOfDay(long millis) {
+        LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+        return date.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private long startOfNextDay(long millis) {
+        LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+        return date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+}
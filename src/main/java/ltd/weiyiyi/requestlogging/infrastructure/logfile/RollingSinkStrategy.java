@@ -0,0 +1,133 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogSink;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogSinkStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * 滚动写入策略基类
+ * 持有当前的 {@link FileSink}，每批日志写入前由子类判断是否需要滚动，滚动时关闭旧文件并通知监听器。
+ * 当前文件在初始化时即已确定，尚未打开时后台压缩与保留清理同样会跳过它
+ *
+ * @author weihan
+ */
+public abstract class RollingSinkStrategy implements LogSinkStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(RollingSinkStrategy.class);
+
+    private File baseDir;
+    private volatile FileSink current;
+    private volatile File activeFile;
+    private volatile Consumer<File> sinkClosedListener;
+
+    @Override
+    public void init(File baseDir, RequestLoggingProperties properties) {
+        if (!baseDir.exists() && !baseDir.mkdirs()) {
+            logger.error("Failed to create base directory: {}", baseDir);
+            throw new RuntimeException("Failed to create base directory: " + baseDir);
+        }
+        this.baseDir = baseDir;
+        configure(properties);
+        this.activeFile = nextFile(null, System.currentTimeMillis());
+    }
+
+    @Override
+    public LogSink acquire(RequestLog log) throws IOException {
+        FileSink sink = current;
+        if (sink == null) {
+            // 首次写入或写入失败后重新打开当前文件
+            sink = new FileSink(activeFile);
+            current = sink;
+        }
+        long now = System.currentTimeMillis();
+        if (!shouldRoll(sink, now)) {
+            return sink;
+        }
+        File next = nextFile(sink.getFile(), now);
+        if (next.equals(sink.getFile())) {
+            return sink;
+        }
+        FileSink opened = new FileSink(next);
+        current = opened;
+        activeFile = next;
+        sink.close();
+        Consumer<File> listener = sinkClosedListener;
+        if (listener != null) {
+            try {
+                listener.accept(sink.getFile());
+            } catch (RuntimeException e) {
+                logger.warn("Error notifying closed log file: {}", sink.getFile(), e);
+            }
+        }
+        return opened;
+    }
+
+    @Override
+    public void onBytesWritten(LogSink sink, long bytes) {
+        ((FileSink) sink).addBytesWritten(bytes);
+    }
+
+    @Override
+    public void onWriteError(LogSink sink, IOException error) {
+        if (sink == current) {
+            current = null;
+        }
+        ((FileSink) sink).close();
+    }
+
+    @Override
+    public File getActiveFile() {
+        return activeFile;
+    }
+
+    @Override
+    public void onSinkClosed(Consumer<File> listener) {
+        this.sinkClosedListener = listener;
+    }
+
+    @Override
+    public void close() {
+        FileSink sink = current;
+        current = null;
+        if (sink != null) {
+            sink.close();
+        }
+    }
+
+    protected File getBaseDir() {
+        return baseDir;
+    }
+
+    /**
+     * 读取配置，在 {@link #nextFile(File, long)} 首次调用前执行
+     *
+     * @param properties 配置
+     */
+    protected void configure(RequestLoggingProperties properties) {
+    }
+
+    /**
+     * 判断当前文件是否需要滚动
+     *
+     * @param sink 当前写入目标
+     * @param now 当前时间（毫秒时间戳）
+     * @return 是否需要滚动
+     */
+    protected abstract boolean shouldRoll(LogSink sink, long now);
+
+    /**
+     * 计算下一个文件，返回与当前文件相同的文件时不滚动。
+     * 初始化时以null调用一次，用于恢复上次运行的当前文件
+     *
+     * @param previous 当前文件，初始化时为null
+     * @param now 当前时间（毫秒时间戳）
+     * @return 下一个文件
+     */
+    protected abstract File nextFile(File previous, long now);
+}
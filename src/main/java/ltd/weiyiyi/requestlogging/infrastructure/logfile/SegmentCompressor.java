@@ -0,0 +1,260 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.infrastructure.spi.CompressionCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 已滚动日志段的后台压缩器
+ * 写入器切换到新文件后提交旧文件，由低优先级的守护线程池并行压缩，请求线程只负责提交任务。
+ * 压缩结果先写入临时文件，完成后原子重命名为 {@code 原文件名 + 扩展名} 并删除原文件，保留原文件的修改时间，
+ * 以便按时间保留的清理逻辑继续生效
+ *
+ * <p>提交后延迟一段时间再压缩：滚动瞬间仍可能有少量日志写入旧文件，延迟期间被修改过的文件会重新排期，
+ * 策略当前正在写入的文件永远不会被压缩</p>
+ *
+ * @author weihan
+ */
+public class SegmentCompressor implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(SegmentCompressor.class);
+    private static final String LOG_SUFFIX = ".log";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long DEFAULT_DELAY_MILLIS = 10_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final AtomicInteger POOL_SEQUENCE = new AtomicInteger();
+
+    private final CompressionCodec codec;
+    private final Supplier<? extends Collection<File>> activeFiles;
+    private final long delayMillis;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Set<File> scheduled = ConcurrentHashMap.newKeySet();
+    private volatile BiConsumer<File, File> compressedListener;
+
+    /**
+     * @param codec 压缩编解码器
+     * @param threads 压缩线程数
+     * @param activeFiles 返回当前正在写入的文件
+     */
+    public SegmentCompressor(CompressionCodec codec, int threads, Supplier<? extends Collection<File>> activeFiles) {
+        this(codec, threads, activeFiles, DEFAULT_DELAY_MILLIS);
+    }
+
+    SegmentCompressor(CompressionCodec codec, int threads, Supplier<? extends Collection<File>> activeFiles, long delayMillis) {
+        this.codec = codec;
+        this.activeFiles = activeFiles;
+        this.delayMillis = delayMillis;
+        int pool = POOL_SEQUENCE.incrementAndGet();
+        AtomicInteger threadSequence = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "request-logging-compress-" + pool + "-" + threadSequence.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        // 关闭时丢弃尚未开始的任务，剩余文件在下次启动时由 submitClosedSegments 补压
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * 按名称加载压缩编解码器，先查找 SPI 实现，找不到时使用内置的 gzip
+     *
+     * @param name 编解码器名称
+     * @return 编解码器
+     * @throws IllegalArgumentException 没有对应名称的编解码器
+     */
+    public static CompressionCodec loadCodec(String name) {
+        for (CompressionCodec codec : ServiceLoader.load(CompressionCodec.class)) {
+            if (codec.getName().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        if (name == null || GzipCompressionCodec.CODEC_NAME.equalsIgnoreCase(name)) {
+            return new GzipCompressionCodec();
+        }
+        throw new IllegalArgumentException("Unknown compression codec: " + name);
+    }
+
+    /**
+     * 判断文件名是否为日志文件，包括压缩后的日志文件，不包括压缩过程中的临时文件
+     *
+     * @param name 文件名
+     * @return 是否为日志文件
+     */
+    public static boolean isLogFile(String name) {
+        return name.endsWith(LOG_SUFFIX) || name.contains(LOG_SUFFIX + ".") && !name.endsWith(TEMP_SUFFIX);
+    }
+
+    /**
+     * 判断文件名是否为压缩后的日志文件
+     *
+     * @param name 文件名
+     * @return 是否已压缩
+     */
+    public static boolean isCompressed(String name) {
+        return !name.endsWith(LOG_SUFFIX) && isLogFile(name);
+    }
+
+    /**
+     * 设置压缩完成监听器，在压缩线程中以原文件和压缩后的文件为参数调用
+     *
+     * @param listener 监听器，为null时不通知
+     */
+    public void onCompressed(BiConsumer<File, File> listener) {
+        this.compressedListener = listener;
+    }
+
+    /**
+     * 提交一个已关闭的日志文件，立即返回
+     *
+     * @param file 日志文件
+     */
+    public void submit(File file) {
+        if (file == null || !file.getName().endsWith(LOG_SUFFIX) || executor.isShutdown() || !scheduled.add(file)) {
+            return;
+        }
+        try {
+            executor.schedule(() -> compress(file), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            scheduled.remove(file);
+            logger.warn("Failed to schedule compression of log file: {}", file, e);
+        }
+    }
+
+    /**
+     * 提交目录中除当前文件外所有未压缩的日志文件，并删除上次中断留下的临时文件，用于启动时补压
+     *
+     * @param baseDir 日志目录
+     */
+    public void submitClosedSegments(File baseDir) {
+        File[] files = baseDir.listFiles((dir, name) -> name.endsWith(LOG_SUFFIX)
+                || name.contains(LOG_SUFFIX + ".") && name.endsWith(TEMP_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Collection<File> active = activeFiles.get();
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                if (!file.delete()) {
+                    logger.warn("Failed to delete temporary file: {}", file);
+                }
+            } else if (!active.contains(file)) {
+                submit(file);
+            }
+        }
+    }
+
+    private void compress(File file) {
+        boolean rescheduled = false;
+        try {
+            if (!file.exists() || activeFiles.get().contains(file)) {
+                return;
+            }
+            long lastModified = file.lastModified();
+            long idle = System.currentTimeMillis() - lastModified;
+            if (idle < delayMillis && !executor.isShutdown()) {
+                // 延迟期间仍有写入，等文件安静下来再压缩
+                executor.schedule(() -> compress(file), delayMillis - idle, TimeUnit.MILLISECONDS);
+                rescheduled = true;
+                return;
+            }
+
+            File target = targetOf(file);
+            File temp = new File(target.getPath() + TEMP_SUFFIX);
+            long start = System.nanoTime();
+            try (InputStream in = new FileInputStream(file);
+                 OutputStream out = codec.compress(new FileOutputStream(temp))) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                if (!temp.delete()) {
+                    logger.warn("Failed to delete temporary file: {}", temp);
+                }
+                throw e;
+            }
+            if (!file.exists()) {
+                // 压缩期间已被保留策略删除
+                Files.deleteIfExists(temp.toPath());
+                return;
+            }
+            if (file.lastModified() != lastModified) {
+                // 压缩期间又有写入，丢弃结果稍后重试
+                Files.deleteIfExists(temp.toPath());
+                if (executor.isShutdown()) {
+                    return;
+                }
+                executor.schedule(() -> compress(file), delayMillis, TimeUnit.MILLISECONDS);
+                rescheduled = true;
+                return;
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            if (!target.setLastModified(lastModified)) {
+                logger.debug("Failed to preserve modification time of {}", target);
+            }
+            long originalSize = file.length();
+            if (!file.delete()) {
+                logger.warn("Failed to delete compressed log file: {}", file);
+            }
+            BiConsumer<File, File> listener = compressedListener;
+            if (listener != null) {
+                listener.accept(file, target);
+            }
+            logger.debug("Compressed {} ({} bytes) to {} ({} bytes) in {} ms", file.getName(), originalSize,
+                    target.getName(), target.length(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            logger.error("Error compressing log file: {}", file, e);
+        } finally {
+            if (!rescheduled) {
+                scheduled.remove(file);
+            }
+        }
+    }
+
+    /**
+     * 压缩文件名，同名压缩文件已存在时（例如压缩后旧文件又被写入）追加序号
+     */
+    private File targetOf(File file) {
+        File target = new File(file.getPath() + codec.getFileExtension());
+        for (int i = 1; target.exists(); i++) {
+            target = new File(file.getPath() + "." + i + codec.getFileExtension());
+        }
+        return target;
+    }
+
+    /**
+     * 停止压缩线程，正在进行的压缩最多等待5秒
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
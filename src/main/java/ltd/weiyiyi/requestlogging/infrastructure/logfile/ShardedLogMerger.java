@@ -0,0 +1,352 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import com.alibaba.fastjson2.JSONReader;
+import ltd.weiyiyi.requestlogging.infrastructure.binary.BinaryLogEntry;
+import ltd.weiyiyi.requestlogging.infrastructure.binary.BinaryLogReader;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.JsonLinesEncoder;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.LogFormatter;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.OutputFormat;
+import ltd.weiyiyi.requestlogging.infrastructure.util.LogTimestamps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 分片日志合并工具，将多个分片按时间戳做k路归并，输出为一个按时间排序的流
+ * <pre>
+ * java -cp request-logging.jar ltd.weiyiyi.requestlogging.infrastructure.logfile.ShardedLogMerger [--format text|json] [--window N] &lt;dir|file&gt;...
+ * </pre>
+ * 参数为包含 {@code shard-NN} 子目录的日志目录时每个子目录是一个分片，否则每个目录或文件是一个分片。
+ * 分片内的文件按修改时间顺序首尾相接读取，以 .gz 结尾的文件按 gzip 解压。
+ * 支持 JSON Lines（按 {@code ts} 字段排序，原样输出）与二进制格式（按记录时间排序，还原为文本或JSON Lines），
+ * 多行文本格式无法可靠地切分记录，不支持合并。
+ * 分片内的日志按写入顺序排列，记录的时间戳是请求或响应时间，与写入顺序只有局部的差异，
+ * 因此每个分片先经过一个最多保留 {@code --window} 条记录（默认1024）的重排窗口，再参与k路归并，
+ * 内存占用为分片数乘以窗口大小
+ *
+ * @author weihan
+ */
+public final class ShardedLogMerger {
+    static final String SHARD_DIR_PREFIX = "shard-";
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final int BINARY_MAGIC = 'R';
+    private static final int DEFAULT_WINDOW = 1024;
+
+    private ShardedLogMerger() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        OutputFormat format = OutputFormat.TEXT;
+        int window = DEFAULT_WINDOW;
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--format".equals(args[i]) && i + 1 < args.length) {
+                format = OutputFormat.of(args[++i]);
+            } else if (args[i].startsWith("--format=")) {
+                format = OutputFormat.of(args[i].substring("--format=".length()));
+            } else if ("--window".equals(args[i]) && i + 1 < args.length) {
+                window = Integer.parseInt(args[++i]);
+            } else if (args[i].startsWith("--window=")) {
+                window = Integer.parseInt(args[i].substring("--window=".length()));
+            } else {
+                inputs.add(new File(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: ShardedLogMerger [--format text|json] [--window N] <dir|file>...");
+            System.exit(2);
+            return;
+        }
+
+        OutputStream out = new BufferedOutputStream(System.out, 64 * 1024);
+        merge(shardsOf(inputs), format, window, out);
+        out.flush();
+    }
+
+    /**
+     * 展开命令行参数为分片列表
+     *
+     * @param inputs 日志目录、分片目录或单个文件
+     * @return 每个分片按读取顺序排列的文件
+     */
+    static List<List<File>> shardsOf(List<File> inputs) {
+        List<List<File>> shards = new ArrayList<>();
+        for (File input : inputs) {
+            File[] shardDirs = input.listFiles(file -> file.isDirectory() && file.getName().startsWith(SHARD_DIR_PREFIX));
+            if (shardDirs != null && shardDirs.length > 0) {
+                Arrays.sort(shardDirs);
+                for (File shardDir : shardDirs) {
+                    shards.add(logFilesOf(shardDir));
+                }
+            } else if (input.isDirectory()) {
+                shards.add(logFilesOf(input));
+            } else {
+                shards.add(List.of(input));
+            }
+        }
+        return shards;
+    }
+
+    private static List<File> logFilesOf(File dir) {
+        File[] files = dir.listFiles((d, name) -> SegmentCompressor.isLogFile(name));
+        if (files == null) {
+            return List.of();
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).thenComparing(File::getName));
+        return Arrays.asList(files);
+    }
+
+    /**
+     * 归并多个分片并写入输出流
+     *
+     * @param shards 每个分片按读取顺序排列的文件
+     * @param format 二进制记录的输出格式，JSON Lines记录总是原样输出
+     * @param window 每个分片的重排窗口大小，为1时要求分片内的记录已按时间排序
+     * @param out 输出流
+     * @throws IOException 读取或写入失败
+     */
+    public static void merge(List<List<File>> shards, OutputFormat format, int window, OutputStream out) throws IOException {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+        RecordWriter writer = new RecordWriter(format);
+        PriorityQueue<ShardCursor> queue = new PriorityQueue<>(Math.max(1, shards.size()),
+                Comparator.comparingLong((ShardCursor cursor) -> cursor.head.timestamp).thenComparingInt(cursor -> cursor.shard));
+        List<ShardCursor> cursors = new ArrayList<>();
+        try {
+            for (int i = 0; i < shards.size(); i++) {
+                ShardCursor cursor = new ShardCursor(i, shards.get(i), window);
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+            ShardCursor cursor;
+            while ((cursor = queue.poll()) != null) {
+                writer.write(cursor.head, out);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        } finally {
+            for (ShardCursor shardCursor : cursors) {
+                shardCursor.close();
+            }
+        }
+    }
+
+    private static InputStream open(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        return new BufferedInputStream(in, 64 * 1024);
+    }
+
+    /**
+     * 记录的输出方式，JSON Lines原样输出，二进制记录按格式还原
+     */
+    private static final class RecordWriter {
+        private final LogFormatter formatter;
+        private final JsonLinesEncoder jsonEncoder;
+
+        private RecordWriter(OutputFormat format) {
+            if (format == OutputFormat.JSON) {
+                this.formatter = null;
+                this.jsonEncoder = new JsonLinesEncoder();
+            } else {
+                RequestLoggingProperties properties = new RequestLoggingProperties();
+                properties.setEnableColorOutput(false);
+                properties.setLogHeaders(true);
+                properties.setLogRequestBody(true);
+                properties.setLogResponse(true);
+                this.formatter = new LogFormatter(properties);
+                this.jsonEncoder = null;
+            }
+        }
+
+        private void write(Record record, OutputStream out) throws IOException {
+            if (record.line != null) {
+                out.write(record.line);
+                out.write('\n');
+                return;
+            }
+            BinaryLogEntry entry = record.entry;
+            if (jsonEncoder != null) {
+                jsonEncoder.encode(entry.getType(), entry.getLog()).writeTo(out);
+                out.write('\n');
+            } else {
+                formatter.format(entry.getType(), entry.getLog()).writeTo(out);
+                out.write(LINE_SEPARATOR);
+            }
+        }
+    }
+
+    /**
+     * 一条待输出的记录，JSON Lines保存原始行，二进制格式保存解码后的日志
+     */
+    private static final class Record {
+        private final long timestamp;
+        private final long sequence;
+        private final byte[] line;
+        private final BinaryLogEntry entry;
+
+        private Record(long timestamp, long sequence, byte[] line, BinaryLogEntry entry) {
+            this.timestamp = timestamp;
+            this.sequence = sequence;
+            this.line = line;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * 一个分片的读取位置与重排窗口，{@link #head} 是窗口中时间戳最小的记录
+     */
+    private static final class ShardCursor implements Closeable {
+        private final int shard;
+        private final List<File> files;
+        private final int window;
+        private final PriorityQueue<Record> buffer;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(1024);
+        private int nextFile;
+        private File file;
+        private InputStream in;
+        private BinaryLogReader binaryReader;
+        private long sequence;
+        private Record head;
+
+        private ShardCursor(int shard, List<File> files, int window) {
+            this.shard = shard;
+            this.files = files;
+            this.window = window;
+            this.buffer = new PriorityQueue<>(window,
+                    Comparator.comparingLong((Record record) -> record.timestamp).thenComparingLong(record -> record.sequence));
+        }
+
+        /**
+         * 填满重排窗口并取出下一条记录，分片已读完时返回false
+         */
+        private boolean advance() throws IOException {
+            Record record;
+            while (buffer.size() < window && (record = read()) != null) {
+                buffer.add(record);
+            }
+            head = buffer.poll();
+            return head != null;
+        }
+
+        private Record read() throws IOException {
+            for (;;) {
+                if (in == null && !openNext()) {
+                    return null;
+                }
+                Record record = binaryReader != null ? nextBinary() : nextJsonLine();
+                if (record != null) {
+                    return record;
+                }
+                closeCurrent();
+            }
+        }
+        private boolean openNext() throws IOException {
+            if (nextFile >= files.size()) {
+                return false;
+            }
+            file = files.get(nextFile++);
+            in = open(file);
+            in.mark(1);
+            int first = in.read();
+            in.reset();
+            if (first == BINARY_MAGIC) {
+                binaryReader = new BinaryLogReader(in);
+            } else if (first >= 0 && first != '{') {
+                closeCurrent();
+                throw new IOException("Only JSON Lines and binary log files can be merged: " + file);
+            }
+            return true;
+        }
+
+        private Record nextBinary() throws IOException {
+            BinaryLogEntry entry = binaryReader.next();
+            if (entry == null) {
+                if (binaryReader.getSkippedBytes() > 0) {
+                    System.err.println(file + ": skipped " + binaryReader.getSkippedBytes() + " corrupted bytes");
+                }
+                return null;
+            }
+            return new Record(LogTimestamps.recordTimestamp(entry.getType(), entry.getLog()), sequence++, null, entry);
+        }
+
+        /**
+         * 读取下一行JSON，跳过无法解析 {@code ts} 的行（例如写入中的最后一行）
+         */
+        private Record nextJsonLine() throws IOException {
+            for (;;) {
+                line.reset();
+                int b;
+                while ((b = in.read()) >= 0 && b != '\n') {
+                    line.write(b);
+                }
+                if (b < 0) {
+                    // 没有换行符的最后一行可能尚未写完
+                    return null;
+                }
+                if (line.size() > 0) {
+                    byte[] bytes = line.toByteArray();
+                    long timestamp = readTimestamp(bytes);
+                    if (timestamp >= 0) {
+                        return new Record(timestamp, sequence++, bytes, null);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 读取 {@code ts} 字段，无法解析时返回-1
+         */
+        private long readTimestamp(byte[] bytes) {
+            try (JSONReader reader = JSONReader.of(bytes, 0, bytes.length, StandardCharsets.UTF_8)) {
+                if (!reader.nextIfObjectStart()) {
+                    return -1;
+                }
+                while (!reader.nextIfObjectEnd()) {
+                    if ("ts".equals(reader.readFieldName())) {
+                        return reader.readInt64Value();
+                    }
+                    reader.skipValue();
+                }
+            } catch (RuntimeException e) {
+                System.err.println(file + ": skipped malformed line");
+            }
+            return -1;
+        }
+
+        private void closeCurrent() throws IOException {
+            InputStream current = in;
+            in = null;
+            binaryReader = null;
+            if (current != null) {
+                current.close();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeCurrent();
+        }
+    }
+}
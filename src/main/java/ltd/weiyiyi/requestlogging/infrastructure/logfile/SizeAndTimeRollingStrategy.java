@@ -0,0 +1,180 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogFileStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 按大小与时间滚动的日志文件策略
+ * 文件写满 max-file-size 或越过 rolling-period 的窗口边界时滚动，以先到者为准，
+ * 文件名为 {@code request-<窗口标签>-<序号>.log}，例如 {@code request-2024-01-01-13-002.log}
+ *
+ * <p>已写入的字节数由写入器通过 {@link #onBytesWritten(File, long)} 回报并累加到当前文件的 {@link AtomicLong}，
+ * 每条日志只需一次 volatile 读取和两次比较，不查询文件大小也不加锁，滚动时通过 CAS 切换。
+ * 写入器按批次回报字节数，文件大小可能略微超过上限。启动时扫描一次目录，恢复当前窗口的最大序号与已写入的大小</p>
+ *
+ * @author weihan
+ */
+public class SizeAndTimeRollingStrategy implements LogFileStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(SizeAndTimeRollingStrategy.class);
+    private static final String STRATEGY_NAME = "size-time";
+    private static final String FILE_PREFIX = "request-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final Duration DEFAULT_PERIOD = Duration.ofDays(1);
+    private static final long DEFAULT_MAX_FILE_SIZE = 100 * 1024 * 1024; // 100MB
+
+    private final AtomicReference<Segment> current = new AtomicReference<>();
+    private RollingPeriod period;
+    private long maxFileSize;
+    private int maxHistoryDays = 30;
+    private File baseDir;
+
+    public SizeAndTimeRollingStrategy() {
+        this(DEFAULT_PERIOD, DEFAULT_MAX_FILE_SIZE);
+    }
+
+    public SizeAndTimeRollingStrategy(Duration period, long maxFileSize) {
+        this.period = RollingPeriod.of(period);
+        this.maxFileSize = maxFileSize;
+    }
+
+    @Override
+    public String getStrategyName() {
+        return STRATEGY_NAME;
+    }
+
+    @Override
+    public void init(File baseDir, RequestLoggingProperties properties) {
+        String rollingPeriod = properties.getRollingPeriod();
+        if (rollingPeriod != null && !rollingPeriod.isBlank()) {
+            this.period = RollingPeriod.of(DurationStyle.detectAndParse(rollingPeriod));
+        }
+        String maxSize = properties.getMaxFileSize();
+        if (maxSize != null && !maxSize.isBlank()) {
+            this.maxFileSize = DataSize.parse(maxSize).toBytes();
+        }
+        this.maxHistoryDays = properties.getMaxHistory();
+        init(baseDir);
+    }
+
+    @Override
+    public void init(File baseDir) {
+        if (!baseDir.exists() && !baseDir.mkdirs()) {
+            logger.error("Failed to create base directory: {}", baseDir);
+            throw new RuntimeException("Failed to create base directory: " + baseDir);
+        }
+        if (maxFileSize <= 0) {
+            throw new IllegalArgumentException("max-file-size must be positive: " + maxFileSize);
+        }
+        this.baseDir = baseDir;
+        current.set(recover(System.currentTimeMillis()));
+    }
+
+    @Override
+    public File getLogFile(RequestLog log) {
+        Segment segment = current.get();
+        if (segment == null) {
+            logger.error("Strategy {} is not initialized", STRATEGY_NAME);
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now < segment.end && segment.bytes.get() < maxFileSize) {
+            return segment.file;
+        }
+        Segment next = now < segment.end
+                ? newSegment(segment.windowStart, segment.end, segment.label, segment.index + 1, 0)
+                : newWindow(now, 1, 0);
+        if (current.compareAndSet(segment, next)) {
+            return next.file;
+        }
+        return current.get().file;
+    }
+
+    @Override
+    public void onBytesWritten(File file, long bytes) {
+        Segment segment = current.get();
+        // 滚动瞬间写入旧文件的字节不再计入
+        if (segment != null && segment.file.equals(file)) {
+            segment.bytes.addAndGet(bytes);
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        Segment segment = current.get();
+        TimeBasedRollingStrategy.deleteExpired(baseDir, FILE_PREFIX, maxHistoryDays, segment != null ? segment.file : null);
+    }
+
+    /**
+     * 扫描一次目录，找到当前窗口的最大序号：未压缩时继续写入并以文件长度作为已写入的大小，已压缩时从下一个序号开始
+     */
+    private Segment recover(long now) {
+        long windowStart = period.windowStart(now);
+        String prefix = FILE_PREFIX + period.label(windowStart) + "-";
+        File[] files = baseDir.listFiles((dir, name) -> name.startsWith(prefix) && SegmentCompressor.isLogFile(name));
+        int lastIndex = 0;
+        File last = null;
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                int end = name.indexOf(FILE_SUFFIX, prefix.length());
+                try {
+                    int index = Integer.parseInt(name.substring(prefix.length(), end));
+                    if (index > lastIndex || index == lastIndex && !SegmentCompressor.isCompressed(name)) {
+                        lastIndex = index;
+                        last = file;
+                    }
+                } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                    // 非本策略生成的文件
+                }
+            }
+        }
+        if (last == null) {
+            return newWindow(now, 1, 0);
+        }
+        if (SegmentCompressor.isCompressed(last.getName()) || last.length() >= maxFileSize) {
+            return newWindow(now, lastIndex + 1, 0);
+        }
+        return newWindow(now, lastIndex, last.length());
+    }
+
+    private Segment newWindow(long now, int index, long bytes) {
+        long windowStart = period.windowStart(now);
+        return newSegment(windowStart, period.windowEnd(windowStart), period.label(windowStart), index, bytes);
+    }
+
+    private Segment newSegment(long windowStart, long end, String label, int index, long bytes) {
+        File file = new File(baseDir, String.format("%s%s-%03d%s", FILE_PREFIX, label, index, FILE_SUFFIX));
+        return new Segment(file, windowStart, end, label, index, bytes);
+    }
+
+    /**
+     * 当前文件的不可变描述与已写入字节数
+     */
+    private static final class Segment {
+        private final File file;
+        private final long windowStart;
+        private final long end;
+        private final String label;
+        private final int index;
+        private final AtomicLong bytes;
+
+        private Segment(File file, long windowStart, long end, String label, int index, long bytes) {
+            this.file = file;
+            this.windowStart = windowStart;
+            this.end = end;
+            this.label = label;
+            this.index = index;
+            this.bytes = new AtomicLong(bytes);
+        }
+    }
+}
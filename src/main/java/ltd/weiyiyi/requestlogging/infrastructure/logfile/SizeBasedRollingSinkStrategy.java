@@ -0,0 +1,98 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogSink;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+
+/**
+ * 基于大小滚动的日志写入策略
+ * 当前文件的字节数达到 max-file-size 时滚动到 {@code request-yyyy-MM-dd-NNN.log}，序号全局递增。
+ * 字节数在打开文件时读取一次，之后由写入器回报累加，不查询文件大小
+ *
+ * @author weihan
+ */
+public class SizeBasedRollingSinkStrategy extends RollingSinkStrategy {
+    private static final String STRATEGY_NAME = "size";
+    private static final String FILE_PREFIX = "request-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final long DEFAULT_MAX_FILE_SIZE = 100 * 1024 * 1024; // 100MB
+
+    private final RollingPeriod period = RollingPeriod.daily();
+    private long maxFileSize;
+    private int index;
+
+    public SizeBasedRollingSinkStrategy() {
+        this(DEFAULT_MAX_FILE_SIZE);
+    }
+
+    public SizeBasedRollingSinkStrategy(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    @Override
+    public String getStrategyName() {
+        return STRATEGY_NAME;
+    }
+
+    @Override
+    protected void configure(RequestLoggingProperties properties) {
+        String maxSize = properties.getMaxFileSize();
+        if (maxSize != null && !maxSize.isBlank()) {
+            this.maxFileSize = DataSize.parse(maxSize).toBytes();
+        }
+        if (maxFileSize <= 0) {
+            throw new IllegalArgumentException("max-file-size must be positive: " + maxFileSize);
+        }
+    }
+
+    @Override
+    protected boolean shouldRoll(LogSink sink, long now) {
+        return sink.getBytesWritten() >= maxFileSize;
+    }
+
+    @Override
+    protected File nextFile(File previous, long now) {
+        if (previous == null) {
+            File last = recover();
+            if (last != null) {
+                return last;
+            }
+        }
+        index++;
+        String date = period.label(period.windowStart(now));
+        return new File(getBaseDir(), String.format("%s%s-%03d%s", FILE_PREFIX, date, index, FILE_SUFFIX));
+    }
+
+    /**
+     * 找到修改时间最新的文件并恢复序号，该文件未压缩且未写满时继续写入
+     */
+    private File recover() {
+        File[] files = getBaseDir().listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && SegmentCompressor.isLogFile(name));
+        if (files == null || files.length == 0) {
+            return null;
+        }
+        File last = files[0];
+        for (File file : files) {
+            if (file.lastModified() > last.lastModified()) {
+                last = file;
+            }
+        }
+        index = extractIndex(last.getName());
+        if (SegmentCompressor.isCompressed(last.getName()) || last.length() >= maxFileSize) {
+            return null;
+        }
+        return last;
+    }
+
+    private static int extractIndex(String fileName) {
+        try {
+            int end = fileName.indexOf(FILE_SUFFIX);
+            int start = fileName.lastIndexOf('-', end) + 1;
+            return Integer.parseInt(fileName.substring(start, end));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
@@ -18,7 +18,9 @@ import java.util.Comparator;
  * 当日志文件达到指定大小时创建新文件
  *
  * @author weihan
+ * @deprecated 已由 {@link SizeBasedRollingSinkStrategy} 取代，保留用于直接引用该类的旧代码
  */
+@Deprecated
 public class SizeBasedRollingStrategy implements LogFileStrategy {
     private static final Logger logger = LoggerFactory.getLogger(SizeBasedRollingStrategy.class);
     private static final String STRATEGY_NAME = "size";
@@ -86,7 +88,8 @@ public class SizeBasedRollingStrategy implements LogFileStrategy {
             return;
         }
 
-        File[] files = baseDir.listFiles((dir, name) -> name.startsWith("request-") && name.endsWith(FILE_SUFFIX));
+        // 压缩后的日志文件同样计入保留数量
+        File[] files = baseDir.listFiles((dir, name) -> name.startsWith("request-") && SegmentCompressor.isLogFile(name));
         if (files == null || files.length <= maxFiles) {
             return;
         }
@@ -103,13 +106,16 @@ public class SizeBasedRollingStrategy implements LogFileStrategy {
     }
 
     private void initializeCurrentFile() {
-        File[] files = baseDir.listFiles((dir, name) -> name.startsWith("request-") && name.endsWith(FILE_SUFFIX));
+        File[] files = baseDir.listFiles((dir, name) -> name.startsWith("request-") && SegmentCompressor.isLogFile(name));
         if (files != null && files.length > 0) {
             Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
-            currentFile = files[0];
-            String fileName = currentFile.getName();
-            int index = extractIndex(fileName);
-            currentFileIndex.set(index);
+            currentFileIndex.set(extractIndex(files[0].getName()));
+            // 最新的文件已被压缩时从下一个序号开始
+            if (SegmentCompressor.isCompressed(files[0].getName())) {
+                rollOver();
+            } else {
+                currentFile = files[0];
+            }
         } else {
             rollOver();
         }
@@ -128,8 +134,8 @@ public class SizeBasedRollingStrategy implements LogFileStrategy {
 
     private int extractIndex(String fileName) {
         try {
-            int start = fileName.lastIndexOf('-') + 1;
-            int end = fileName.lastIndexOf('.');
+            int end = fileName.indexOf(FILE_SUFFIX);
+            int start = fileName.lastIndexOf('-', end) + 1;
             return Integer.parseInt(fileName.substring(start, end));
         } catch (Exception e) {
             return 0;
@@ -0,0 +1,152 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.LogFileStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 按时间滚动的日志文件策略
+ * 支持按天、按小时、按N分钟滚动（配置项 rolling-period）。当前窗口的文件与结束时间保存在一个不可变对象中，
+ * 每条日志只需一次 volatile 读取并与当前时间比较，越过边界时才计算下一个窗口并通过 CAS 切换，
+ * 不加锁，也不格式化日期
+ *
+ * @author weihan
+ */
+public class TimeBasedRollingStrategy implements LogFileStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(TimeBasedRollingStrategy.class);
+    private static final String STRATEGY_NAME = "time";
+    private static final String FILE_PREFIX = "request-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final Duration DEFAULT_PERIOD = Duration.ofHours(1);
+
+    private final AtomicReference<Window> current = new AtomicReference<>();
+    private RollingPeriod period;
+    private int maxHistoryDays = 30;
+    private File baseDir;
+
+    public TimeBasedRollingStrategy() {
+        this(DEFAULT_PERIOD);
+    }
+
+    public TimeBasedRollingStrategy(Duration period) {
+        this.period = RollingPeriod.of(period);
+    }
+
+    @Override
+    public String getStrategyName() {
+        return STRATEGY_NAME;
+    }
+
+    @Override
+    public void init(File baseDir, RequestLoggingProperties properties) {
+        String rollingPeriod = properties.getRollingPeriod();
+        if (rollingPeriod != null && !rollingPeriod.isBlank()) {
+            this.period = RollingPeriod.of(DurationStyle.detectAndParse(rollingPeriod));
+        }
+        this.maxHistoryDays = properties.getMaxHistory();
+        init(baseDir);
+    }
+
+    @Override
+    public void init(File baseDir) {
+        if (!baseDir.exists() && !baseDir.mkdirs()) {
+            logger.error("Failed to create base directory: {}", baseDir);
+            throw new RuntimeException("Failed to create base directory: " + baseDir);
+        }
+        this.baseDir = baseDir;
+        current.set(windowAt(System.currentTimeMillis()));
+    }
+
+    @Override
+    public File getLogFile(RequestLog log) {
+        Window window = current.get();
+        long now = System.currentTimeMillis();
+        if (window != null && now < window.end) {
+            return window.file;
+        }
+        return roll(window, now);
+    }
+
+    /**
+     * 越过窗口边界时切换到新窗口，多个线程同时越过边界时只有一个线程的 CAS 成功
+     */
+    private File roll(Window expected, long now) {
+        if (baseDir == null) {
+            logger.error("Strategy {} is not initialized", STRATEGY_NAME);
+            return null;
+        }
+        Window next = windowAt(now);
+        if (current.compareAndSet(expected, next)) {
+            return next.file;
+        }
+        return current.get().file;
+    }
+
+    private Window windowAt(long now) {
+        long start = period.windowStart(now);
+        File file = new File(baseDir, fileName(period.label(start)));
+        return new Window(file, period.windowEnd(start));
+    }
+
+    /**
+     * 窗口的文件名
+     *
+     * @param label 窗口标签
+     * @return 文件名
+     */
+    protected String fileName(String label) {
+        return FILE_PREFIX + label + FILE_SUFFIX;
+    }
+
+    protected File getBaseDir() {
+        return baseDir;
+    }
+
+    @Override
+    public void cleanup() {
+        deleteExpired(baseDir, FILE_PREFIX, maxHistoryDays, getLogFile(null));
+    }
+
+    /**
+     * 删除修改时间早于保留天数的日志文件（包括压缩后的文件），当前文件除外
+     *
+     * @param baseDir 日志目录
+     * @param prefix 文件名前缀
+     * @param maxHistoryDays 保留天数，不大于0时不删除
+     * @param active 当前文件，可以为null
+     */
+    static void deleteExpired(File baseDir, String prefix, int maxHistoryDays, File active) {
+        if (baseDir == null || !baseDir.exists() || maxHistoryDays <= 0) {
+            return;
+        }
+
+        long expiredBefore = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(maxHistoryDays);
+        File[] files = baseDir.listFiles((dir, name) -> name.startsWith(prefix) && SegmentCompressor.isLogFile(name));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.equals(active) && file.lastModified() < expiredBefore && !file.delete()) {
+                logger.warn("Failed to delete old log file: {}", file);
+            }
+        }
+    }
+
+    private static final class Window {
+        private final File file;
+        private final long end;
+
+        private Window(File file, long end) {
+            this.file = file;
+            this.end = end;
+        }
+    }
+}
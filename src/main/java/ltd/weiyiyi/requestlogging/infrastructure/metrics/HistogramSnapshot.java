@@ -0,0 +1,54 @@
+package ltd.weiyiyi.requestlogging.infrastructure.metrics;
+
+/**
+ * 直方图快照
+ *
+ * @author weihan
+ */
+public final class HistogramSnapshot {
+    private final long[] counts;
+    private final long totalCount;
+    private final long max;
+    private final long sum;
+
+    HistogramSnapshot(long[] counts, long totalCount, long max, long sum) {
+        this.counts = counts;
+        this.totalCount = totalCount;
+        this.max = max;
+        this.sum = sum;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * 获取百分位数对应的值，返回所在桶可表示的最大值（不超过记录到的最大值）
+     *
+     * @param percentile 百分位，0-100
+     * @return 数值，没有记录时返回0
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double clamped = Math.min(Math.max(percentile, 0), 100);
+        long target = Math.max(1, (long) Math.ceil(clamped / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(LatencyHistogram.highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,130 @@
+package ltd.weiyiyi.requestlogging.infrastructure.metrics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * 对数线性延迟直方图
+ * 与 HdrHistogram 相同的分桶方式：每个2的幂区间再线性划分为 {@value #SUB_BUCKET_COUNT} 个子桶，
+ * 相对误差不超过 1/{@value #SUB_BUCKET_COUNT}。计数保存在按线程分片的 long[] 中，
+ * 分片在首次使用时分配，记录时只有一次原子加法，没有锁
+ *
+ * @author weihan
+ */
+public final class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * 可记录的最大值为 2^32-1（以微秒计约71分钟），更大的值计入最后一个桶
+     */
+    static final int MAX_VALUE_BITS = 32;
+    static final long MAX_TRACKABLE_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT * (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1);
+
+    /**
+     * 每个分片在计数之后额外保存最大值与总和
+     */
+    private static final int MAX_SLOT = BUCKET_COUNT;
+    private static final int SUM_SLOT = BUCKET_COUNT + 1;
+    private static final int STRIPE_LENGTH = BUCKET_COUNT + 2;
+    private static final int STRIPE_COUNT = stripeCount();
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle STRIPES = MethodHandles.arrayElementVarHandle(long[][].class);
+
+    private final long[][] stripes = new long[STRIPE_COUNT][];
+
+    /**
+     * 记录一个值
+     *
+     * @param value 数值，负数按0处理
+     */
+    public void record(long value) {
+        long clamped = Math.min(Math.max(value, 0), MAX_TRACKABLE_VALUE);
+        long[] stripe = stripe();
+        LONGS.getAndAdd(stripe, bucketIndex(clamped), 1L);
+        LONGS.getAndAdd(stripe, SUM_SLOT, clamped);
+        long max;
+        while (clamped > (max = (long) LONGS.getVolatile(stripe, MAX_SLOT))) {
+            if (LONGS.compareAndSet(stripe, MAX_SLOT, max, clamped)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 合并各分片得到快照，与并发写入之间不保证原子性
+     *
+     * @return 快照
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        long max = 0;
+        long sum = 0;
+        for (int s = 0; s < STRIPE_COUNT; s++) {
+            long[] stripe = (long[]) STRIPES.getVolatile(stripes, s);
+            if (stripe == null) {
+                continue;
+            }
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long count = (long) LONGS.getVolatile(stripe, i);
+                counts[i] += count;
+                total += count;
+            }
+            max = Math.max(max, (long) LONGS.getVolatile(stripe, MAX_SLOT));
+            sum += (long) LONGS.getVolatile(stripe, SUM_SLOT);
+        }
+        return new HistogramSnapshot(counts, total, max, sum);
+    }
+
+    /**
+     * 清空计数以便复用，已分配的分片保留。
+     * 调用方需保证此时没有并发写入，并通过volatile写发布重置后的直方图
+     */
+    public void reset() {
+        for (int s = 0; s < STRIPE_COUNT; s++) {
+            long[] stripe = (long[]) STRIPES.getVolatile(stripes, s);
+            if (stripe != null) {
+                Arrays.fill(stripe, 0L);
+            }
+        }
+    }
+
+    private long[] stripe() {
+        int index = (int) Thread.currentThread().getId() & (STRIPE_COUNT - 1);
+        long[] stripe = (long[]) STRIPES.getAcquire(stripes, index);
+        if (stripe != null) {
+            return stripe;
+        }
+        long[] created = new long[STRIPE_LENGTH];
+        long[] existing = (long[]) STRIPES.compareAndExchange(stripes, index, null, created);
+        return existing != null ? existing : created;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * 桶内可表示的最大值
+     */
+    static long highestValueOf(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKET_COUNT) {
+            return bucketIndex;
+        }
+        int shift = (bucketIndex >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = SUB_BUCKET_COUNT + (bucketIndex & (SUB_BUCKET_COUNT - 1));
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static int stripeCount() {
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+        return Integer.highestOneBit(Math.max(1, processors - 1) << 1);
+    }
+}
@@ -0,0 +1,191 @@
+package ltd.weiyiyi.requestlogging.infrastructure.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按接口（请求方法 + 路由）统计的延迟直方图注册表
+ * 统计按固定时间窗口滚动：窗口结束后第一次访问时切换到新窗口，上一个窗口的数据保留一个窗口期供查询。
+ * 每个接口只持有两个直方图，切换窗口时重置两个窗口前的直方图作为新窗口复用，不随窗口分配。
+ * 接口数量有上限，超出后的请求统一计入 {@link #OVERFLOW_ROUTE}
+ *
+ * @author weihan
+ */
+public class LatencyRegistry {
+    /**
+     * 接口数量超过上限后使用的路由名
+     */
+    public static final String OVERFLOW_ROUTE = "OTHER";
+
+    private final ConcurrentHashMap<String, EndpointLatency> endpoints = new ConcurrentHashMap<>();
+    private final int maxEndpoints;
+    private final long windowMillis;
+
+    /**
+     * @param maxEndpoints 最多单独统计的接口数
+     * @param windowMillis 统计窗口长度（毫秒）
+     */
+    public LatencyRegistry(int maxEndpoints, long windowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Latency window must be positive: " + windowMillis);
+        }
+        this.maxEndpoints = Math.max(1, maxEndpoints);
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * 记录一次请求耗时
+     *
+     * @param method 请求方法
+     * @param route 路由
+     * @param durationNanos 耗时（纳秒）
+     */
+    public void record(String method, String route, long durationNanos) {
+        endpoint(method, route).record(System.currentTimeMillis(), durationNanos / 1000);
+    }
+
+    /**
+     * 获取各接口最近一个已结束窗口的统计
+     *
+     * @return 统计列表，没有已结束窗口的接口不包含在内
+     */
+    public List<LatencySummary> getSummaries() {
+        long now = System.currentTimeMillis();
+        List<LatencySummary> summaries = new ArrayList<>();
+        for (EndpointLatency endpoint : endpoints.values()) {
+            LatencySummary summary = endpoint.completed(now);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * 获取各接口当前（尚未结束）窗口的统计
+     *
+     * @return 统计列表
+     */
+    public List<LatencySummary> getCurrentSummaries() {
+        long now = System.currentTimeMillis();
+        List<LatencySummary> summaries = new ArrayList<>();
+        for (EndpointLatency endpoint : endpoints.values()) {
+            summaries.add(endpoint.summarize(endpoint.current(now)));
+        }
+        return summaries;
+    }
+
+    /**
+     * 获取指定接口最近一个已结束窗口的统计
+     *
+     * @param method 请求方法
+     * @param route 路由
+     * @return 统计，没有数据时返回null
+     */
+    public LatencySummary getSummary(String method, String route) {
+        EndpointLatency endpoint = endpoints.get(key(method, route));
+        if (endpoint == null) {
+            return null;
+        }
+        return endpoint.completed(System.currentTimeMillis());
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    private EndpointLatency endpoint(String method, String route) {
+        String key = key(method, route);
+        EndpointLatency endpoint = endpoints.get(key);
+        if (endpoint != null) {
+            return endpoint;
+        }
+        if (endpoints.size() >= maxEndpoints) {
+            String overflowKey = key(method, OVERFLOW_ROUTE);
+            endpoint = endpoints.get(overflowKey);
+            if (endpoint != null) {
+                return endpoint;
+            }
+            return endpoints.computeIfAbsent(overflowKey, k -> new EndpointLatency(method, OVERFLOW_ROUTE));
+        }
+        return endpoints.computeIfAbsent(key, k -> new EndpointLatency(method, route));
+    }
+
+    private static String key(String method, String route) {
+        return method + ' ' + route;
+    }
+
+    private final class EndpointLatency {
+        private final String method;
+        private final String route;
+        private volatile Window current;
+        private volatile Window previous;
+        /**
+         * 下一个窗口复用的直方图，即 {@link #previous} 的直方图或空窗口时闲置的直方图
+         */
+        private LatencyHistogram spare = new LatencyHistogram();
+
+        private EndpointLatency(String method, String route) {
+            this.method = method;
+            this.route = route;
+            this.current = newWindow(System.currentTimeMillis(), new LatencyHistogram());
+        }
+
+        void record(long now, long micros) {
+            current(now).histogram.record(micros);
+        }
+
+        Window current(long now) {
+            Window window = current;
+            if (now < window.end) {
+                return window;
+            }
+            synchronized (this) {
+                window = current;
+                if (now >= window.end) {
+                    // 被复用的直方图属于两个窗口前，只有滞后超过一个窗口的写入才会与重置并发
+                    LatencyHistogram histogram = spare;
+                    histogram.reset();
+                    Window next = newWindow(now, histogram);
+                    spare = window.histogram;
+                    // 中间有空窗口时，上一个窗口没有数据
+                    previous = window.end == next.start ? window : null;
+                    current = next;
+                    window = next;
+                }
+                return window;
+            }
+        }
+
+        /**
+         * 在锁内汇总上一个窗口，避免与切换窗口时的重置并发
+         */
+        synchronized LatencySummary completed(long now) {
+            current(now);
+            Window window = previous;
+            return window != null ? summarize(window) : null;
+        }
+
+        LatencySummary summarize(Window window) {
+            return new LatencySummary(method, route, window.start, window.end, window.histogram.snapshot());
+        }
+
+        private Window newWindow(long now, LatencyHistogram histogram) {
+            long start = now - now % windowMillis;
+            return new Window(start, start + windowMillis, histogram);
+        }
+    }
+
+    private static final class Window {
+        private final long start;
+        private final long end;
+        private final LatencyHistogram histogram;
+
+        private Window(long start, long end, LatencyHistogram histogram) {
+            this.start = start;
+            this.end = end;
+            this.histogram = histogram;
+        }
+    }
+}
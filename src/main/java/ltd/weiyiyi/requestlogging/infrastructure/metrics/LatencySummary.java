@@ -0,0 +1,86 @@
+package ltd.weiyiyi.requestlogging.infrastructure.metrics;
+
+/**
+ * 单个接口在一个统计窗口内的延迟汇总，耗时单位为毫秒
+ *
+ * @author weihan
+ */
+public final class LatencySummary {
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final String method;
+    private final String route;
+    private final long windowStart;
+    private final long windowEnd;
+    private final long count;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double max;
+    private final double mean;
+
+    LatencySummary(String method, String route, long windowStart, long windowEnd, HistogramSnapshot snapshot) {
+        this.method = method;
+        this.route = route;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.count = snapshot.getTotalCount();
+        this.p50 = snapshot.getValueAtPercentile(50) / MICROS_PER_MILLI;
+        this.p90 = snapshot.getValueAtPercentile(90) / MICROS_PER_MILLI;
+        this.p99 = snapshot.getValueAtPercentile(99) / MICROS_PER_MILLI;
+        this.p999 = snapshot.getValueAtPercentile(99.9) / MICROS_PER_MILLI;
+        this.max = snapshot.getMax() / MICROS_PER_MILLI;
+        this.mean = snapshot.getMean() / MICROS_PER_MILLI;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * 窗口开始时间（毫秒时间戳）
+     */
+    public long getWindowStart() {
+        return windowStart;
+    }
+
+    /**
+     * 窗口结束时间（毫秒时间戳，不含）
+     */
+    public long getWindowEnd() {
+        return windowEnd;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getP999() {
+        return p999;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+}
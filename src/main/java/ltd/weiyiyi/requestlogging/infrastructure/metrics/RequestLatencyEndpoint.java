@@ -0,0 +1,34 @@
+package ltd.weiyiyi.requestlogging.infrastructure.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 接口延迟统计的 Actuator 端点，路径为 /actuator/requestlatency
+ * 需要引入 spring-boot-actuator 并通过 management.endpoints.web.exposure.include 暴露
+ *
+ * @author weihan
+ */
+@Endpoint(id = "requestlatency")
+public class RequestLatencyEndpoint {
+    private final LatencyRegistry latencyRegistry;
+
+    public RequestLatencyEndpoint(LatencyRegistry latencyRegistry) {
+        this.latencyRegistry = latencyRegistry;
+    }
+
+    /**
+     * 返回统计窗口长度、各接口最近一个已结束窗口与当前窗口的统计
+     */
+    @ReadOperation
+    public Map<String, Object> latency() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("windowMillis", latencyRegistry.getWindowMillis());
+        result.put("completed", latencyRegistry.getSummaries());
+        result.put("current", latencyRegistry.getCurrentSummaries());
+        return result;
+    }
+}
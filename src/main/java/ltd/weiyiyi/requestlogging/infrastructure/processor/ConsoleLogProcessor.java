@@ -1,8 +1,11 @@
 package ltd.weiyiyi.requestlogging.infrastructure.processor;
 
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
 import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
 import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.JsonLinesEncoder;
 import ltd.weiyiyi.requestlogging.infrastructure.formatter.LogFormatter;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.OutputFormat;
 import ltd.weiyiyi.requestlogging.infrastructure.spi.RequestLogProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,31 +17,55 @@ public class ConsoleLogProcessor implements RequestLogProcessor {
     private static final Logger log = LoggerFactory.getLogger(ConsoleLogProcessor.class);
     private RequestLoggingProperties properties;
     private LogFormatter logFormatter;
+    private JsonLinesEncoder jsonEncoder;
 
     @Override
     public void init(RequestLoggingProperties properties) {
         this.properties = properties;
         this.logFormatter = new LogFormatter(properties);
+        if (OutputFormat.of(properties.getConsoleOutputFormat()) == OutputFormat.JSON) {
+            this.jsonEncoder = new JsonLinesEncoder();
+        }
     }
 
     @Override
     public void processRequestStart(RequestLog requestLog) {
         if (properties.isEnableConsoleLogging()) {
-            log.info(logFormatter.logRequestStart(requestLog));
+            log.info(jsonEncoder != null ? encodeJson(LogEventType.REQUEST_START, requestLog)
+                : logFormatter.logRequestStart(requestLog));
         }
     }
 
     @Override
     public void processRequestComplete(RequestLog requestLog) {
         if (properties.isEnableConsoleLogging()) {
-            log.info(logFormatter.logRequestComplete(requestLog));
+            log.info(jsonEncoder != null ? encodeJson(LogEventType.REQUEST_COMPLETE, requestLog)
+                : logFormatter.logRequestComplete(requestLog));
         }
     }
 
     @Override
     public void processRequestError(RequestLog requestLog) {
         if (properties.isEnableConsoleLogging()) {
-            log.error(logFormatter.logRequestError(requestLog));
+            log.error(jsonEncoder != null ? encodeJson(LogEventType.REQUEST_ERROR, requestLog)
+                : logFormatter.logRequestError(requestLog));
+        }
+    }
+
+    @Override
+    public void processExchange(RequestLog requestLog) {
+        if (properties.isEnableConsoleLogging()) {
+            String message = jsonEncoder != null ? encodeJson(LogEventType.EXCHANGE, requestLog)
+                : logFormatter.logExchange(requestLog);
+            if (requestLog.getException() != null) {
+                log.error(message);
+            } else {
+                log.info(message);
+            }
         }
     }
-} 
\ No newline at end of file
+
+    private String encodeJson(LogEventType type, RequestLog requestLog) {
+        return jsonEncoder.encode(type, requestLog).toString();
+    }
+}
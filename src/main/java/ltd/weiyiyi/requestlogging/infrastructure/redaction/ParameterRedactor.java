@@ -0,0 +1,308 @@
+package ltd.weiyiyi.requestlogging.infrastructure.redaction;
+
+import com.alibaba.fastjson2.JSONException;
+import com.alibaba.fastjson2.JSONReader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * 请求参数脱敏器
+ * 把配置的参数名（忽略大小写）对应的值替换为掩码，适用于：
+ * <ul>
+ *     <li>JSON 请求体/响应体：用 fastjson2 的 {@link JSONReader} 流式遍历，任意层级的同名字段都会被替换，
+ *     不构建对象树，输出达到长度上限即停止</li>
+ *     <li>表单请求体与查询字符串：按 {@code &}、{@code =} 单趟扫描，不做 split</li>
+ * </ul>
+ * JSON 被截断或格式不合法时保留已输出的部分并以 {@code ...} 结尾，不会回退为原文
+ *
+ * @author weihan
+ */
+public final class ParameterRedactor {
+    /**
+     * 替换后的值
+     */
+    public static final String MASK = "*****";
+
+    private static final String ELLIPSIS = "...";
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+    private static final int MAX_DEPTH = 64;
+
+    private final String[] names;
+
+    /**
+     * @param names 需要脱敏的参数名，可以为null
+     */
+    public ParameterRedactor(Collection<String> names) {
+        TreeSet<String> sorted = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if (names != null) {
+            for (String name : names) {
+                if (name != null && !name.isBlank()) {
+                    sorted.add(name.trim());
+                }
+            }
+        }
+        this.names = sorted.toArray(new String[0]);
+    }
+
+    /**
+     * 是否没有配置任何参数名
+     */
+    public boolean isEmpty() {
+        return names.length == 0;
+    }
+
+    /**
+     * 参数名是否需要脱敏，忽略大小写
+     */
+    public boolean isRedacted(String name) {
+        return names.length > 0 && Arrays.binarySearch(names, name, String.CASE_INSENSITIVE_ORDER) >= 0;
+    }
+
+    /**
+     * 脱敏请求体或响应体
+     *
+     * @param content 捕获到的内容
+     * @param contentType 内容类型，可以为null，为null时按首个非空白字符识别 JSON
+     * @param maxLength 输出的最大字符数
+     * @param truncated 捕获的内容是否只是前缀
+     * @return 脱敏后的文本，既不是 JSON 也不是表单时返回null
+     */
+    public String redactBody(byte[] content, String contentType, int maxLength, boolean truncated) {
+        if (content == null || content.length == 0) {
+            return null;
+        }
+        if (contentType != null && contentType.regionMatches(true, 0, FORM_CONTENT_TYPE, 0, FORM_CONTENT_TYPE.length())) {
+            String form = new String(content, StandardCharsets.UTF_8);
+            StringBuilder out = new StringBuilder(Math.min(form.length(), maxLength) + ELLIPSIS.length());
+            boolean complete = redactPairs(form, maxLength, out);
+            return finish(out, truncated || !complete);
+        }
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json") || looksLikeJson(content)) {
+            return redactJson(content, maxLength, truncated);
+        }
+        return null;
+    }
+
+    /**
+     * 脱敏 JSON
+     *
+     * @param content JSON 内容
+     * @param maxLength 输出的最大字符数
+     * @param truncated 捕获的内容是否只是前缀
+     * @return 脱敏后的 JSON
+     */
+    public String redactJson(byte[] content, int maxLength, boolean truncated) {
+        StringBuilder out = new StringBuilder(Math.min(content.length, maxLength) + ELLIPSIS.length());
+        boolean complete;
+        try (JSONReader reader = JSONReader.of(content)) {
+            complete = writeValue(reader, out, maxLength, 0) && reader.isEnd();
+        } catch (RuntimeException e) {
+            // 捕获的前缀在值中间被截断，或者内容本身不是合法的 JSON
+            complete = false;
+        }
+        if (out.length() > maxLength) {
+            out.setLength(maxLength);
+            complete = false;
+        }
+        return finish(out, truncated || !complete);
+    }
+
+    /**
+     * 脱敏查询字符串
+     *
+     * @param query 查询字符串，可以为null
+     * @return 脱敏后的查询字符串
+     */
+    public String redactQuery(String query) {
+        if (query == null || names.length == 0 || query.indexOf('=') < 0) {
+            return query;
+        }
+        StringBuilder out = new StringBuilder(query.length());
+        redactPairs(query, Integer.MAX_VALUE, out);
+        return out.toString();
+    }
+
+    /**
+     * 单趟扫描 {@code key=value&key=value}，需要脱敏的键保留原样、值替换为掩码
+     *
+     * @return 是否完整写出，达到长度上限时返回false
+     */
+    private boolean redactPairs(String pairs, int maxLength, StringBuilder out) {
+        int length = pairs.length();
+        int start = 0;
+        while (start <= length && out.length() < maxLength) {
+            int end = pairs.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (start > 0) {
+                out.append('&');
+            }
+            int eq = pairs.indexOf('=', start);
+            if (eq >= 0 && eq < end && isRedacted(pairs, start, eq)) {
+                out.append(pairs, start, eq + 1).append(MASK);
+            } else {
+                out.append(pairs, start, end);
+            }
+            start = end + 1;
+        }
+        if (out.length() > maxLength) {
+            out.setLength(maxLength);
+            return false;
+        }
+        return start > length;
+    }
+
+    /**
+     * 递归写出一个 JSON 值
+     *
+     * @return 是否完整写出，达到长度上限时返回false
+     */
+    private boolean writeValue(JSONReader reader, StringBuilder out, int maxLength, int depth) {
+        if (out.length() >= maxLength || depth > MAX_DEPTH) {
+            return false;
+        }
+        if (reader.nextIfObjectStart()) {
+            out.append('{');
+            boolean first = true;
+            while (!reader.nextIfObjectEnd()) {
+                if (out.length() >= maxLength) {
+                    return false;
+                }
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                String name = reader.readFieldName();
+                if (name == null) {
+                    throw new JSONException("Expected field name");
+                }
+                writeString(name, out);
+                out.append(':');
+                if (isRedacted(name)) {
+                    reader.skipValue();
+                    writeString(MASK, out);
+                } else if (!writeValue(reader, out, maxLength, depth + 1)) {
+                    return false;
+                }
+            }
+            out.append('}');
+        } else if (reader.nextIfArrayStart()) {
+            out.append('[');
+            boolean first = true;
+            while (!reader.nextIfArrayEnd()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                if (!writeValue(reader, out, maxLength, depth + 1)) {
+                    return false;
+                }
+            }
+            out.append(']');
+        } else if (reader.isString()) {
+            writeString(reader.readString(), out);
+        } else if (reader.isNumber()) {
+            out.append(reader.readNumber());
+        } else if (reader.nextIfNull()) {
+            out.append("null");
+        } else if (reader.current() == 't' || reader.current() == 'f') {
+            out.append(reader.readBoolValue());
+        } else {
+            throw new JSONException("Unexpected character '" + reader.current() + "'");
+        }
+        return true;
+    }
+
+    private static void writeString(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * 在不创建子串的情况下按忽略大小写二分查找参数名
+     */
+    private boolean isRedacted(String source, int start, int end) {
+        int low = 0;
+        int high = names.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareIgnoreCase(names[mid], source, start, end);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 与 {@link String#CASE_INSENSITIVE_ORDER} 的比较规则一致
+     */
+    private static int compareIgnoreCase(String key, String source, int start, int end) {
+        int keyLength = key.length();
+        int regionLength = end - start;
+        int n = Math.min(keyLength, regionLength);
+        for (int i = 0; i < n; i++) {
+            char a = key.charAt(i);
+            char b = source.charAt(start + i);
+            if (a != b) {
+                a = Character.toLowerCase(Character.toUpperCase(a));
+                b = Character.toLowerCase(Character.toUpperCase(b));
+                if (a != b) {
+                    return a - b;
+                }
+            }
+        }
+        return keyLength - regionLength;
+    }
+
+    private static boolean looksLikeJson(byte[] content) {
+        for (byte b : content) {
+            if (b == '{' || b == '[') {
+                return true;
+            }
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static String finish(StringBuilder out, boolean truncated) {
+        return truncated ? out.append(ELLIPSIS).toString() : out.toString();
+    }
+}
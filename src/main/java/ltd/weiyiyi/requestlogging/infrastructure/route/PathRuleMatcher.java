@@ -0,0 +1,331 @@
+package ltd.weiyiyi.requestlogging.infrastructure.route;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 编译后的路径规则匹配器
+ * 启动时把一组规则编译为按路径段组织的前缀树，匹配时沿请求路径逐段向下查找，字面量段使用有序数组二分查找，
+ * 不做字符串切分，也不分配对象
+ *
+ * <p>规则格式为 {@code [方法[,方法...]] 路径模式}，例如 {@code /actuator/**}、{@code GET,HEAD /health}、
+ * {@code POST /upload/**}。路径模式为 Ant 风格：{@code ?} 匹配一个字符，{@code *} 匹配段内任意字符，
+ * {@code **} 匹配任意多个段，{@code {name}} 等同于 {@code *}。前缀规则写作 {@code /prefix/**}。
+ * 连续或末尾的 {@code /} 被忽略</p>
+ *
+ * @author weihan
+ */
+public final class PathRuleMatcher {
+    private static final String[] METHODS = {"GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE"};
+    private static final int OTHER_METHOD = 1 << METHODS.length;
+    private static final int ALL_METHODS = -1;
+
+    private final Node root;
+    private final int ruleCount;
+
+    private PathRuleMatcher(Node root, int ruleCount) {
+        this.root = root;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * 编译规则
+     *
+     * @param rules 规则列表，可以为null
+     * @return 匹配器
+     * @throws IllegalArgumentException 规则格式不合法
+     */
+    public static PathRuleMatcher compile(Collection<String> rules) {
+        Node root = new Node();
+        int count = 0;
+        if (rules != null) {
+            for (String rule : rules) {
+                if (rule != null && !rule.isBlank()) {
+                    add(root, rule.trim());
+                    count++;
+                }
+            }
+        }
+        root.freeze();
+        return new PathRuleMatcher(root, count);
+    }
+
+    /**
+     * 判断请求是否匹配任一规则
+     *
+     * @param method 请求方法
+     * @param path 请求路径（不含上下文路径与查询字符串）
+     * @return 是否匹配
+     */
+    public boolean matches(String method, String path) {
+        if (ruleCount == 0 || path == null) {
+            return false;
+        }
+        return matches(root, path, 0, methodBit(method));
+    }
+
+    /**
+     * 是否没有任何规则
+     */
+    public boolean isEmpty() {
+        return ruleCount == 0;
+    }
+
+    private static boolean matches(Node node, String path, int pos, int methodBit) {
+        int length = path.length();
+        while (pos < length && path.charAt(pos) == '/') {
+            pos++;
+        }
+        if (pos == length) {
+            // ** 也可以匹配零个段
+            return (node.terminalMask & methodBit) != 0
+                    || node.doubleStar != null && matches(node.doubleStar, path, pos, methodBit);
+        }
+        if (node.doubleStar != null && (node.doubleStar.terminalMask & methodBit) != 0) {
+            // 以 ** 结尾的规则匹配剩余所有段
+            return true;
+        }
+        int end = path.indexOf('/', pos);
+        if (end < 0) {
+            end = length;
+        }
+
+        Node literal = node.findLiteral(path, pos, end);
+        if (literal != null && matches(literal, path, end, methodBit)) {
+            return true;
+        }
+        if (node.wildcard != null && matches(node.wildcard, path, end, methodBit)) {
+            return true;
+        }
+        for (int i = 0; i < node.patterns.length; i++) {
+            if (glob(node.patterns[i], path, pos, end) && matches(node.patternChildren[i], path, end, methodBit)) {
+                return true;
+            }
+        }
+        if (node.doubleStar != null) {
+            // ** 依次尝试吞掉0个、1个……段
+            int next = pos;
+            while (true) {
+                if (matches(node.doubleStar, path, next, methodBit)) {
+                    return true;
+                }
+                if (next >= length) {
+                    return false;
+                }
+                int slash = path.indexOf('/', next);
+                next = slash < 0 ? length : slash + 1;
+            }
+        }
+        return false;
+    }
+
+    private static void add(Node root, String rule) {
+        int methodMask = ALL_METHODS;
+        String pattern = rule;
+        int space = indexOfWhitespace(rule);
+        if (space > 0) {
+            methodMask = parseMethods(rule.substring(0, space));
+            pattern = rule.substring(space).trim();
+        }
+        if (pattern.isEmpty()) {
+            throw new IllegalArgumentException("Empty path pattern in rule '" + rule + "'");
+        }
+
+        Node node = root;
+        for (String segment : pattern.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if ("**".equals(segment)) {
+                if (node.doubleStar == null) {
+                    node.doubleStar = new Node();
+                }
+                node = node.doubleStar;
+            } else if ("*".equals(segment) || isVariable(segment)) {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+            } else if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('{') >= 0) {
+                node = node.patternMap.computeIfAbsent(toGlob(segment), key -> new Node());
+            } else {
+                node = node.literalMap.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+        node.terminalMask |= methodMask;
+    }
+
+    private static int indexOfWhitespace(String rule) {
+        for (int i = 0; i < rule.length(); i++) {
+            if (Character.isWhitespace(rule.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int parseMethods(String methods) {
+        int mask = 0;
+        for (String method : methods.split(",")) {
+            String name = method.trim().toUpperCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                continue;
+            }
+            if ("*".equals(name)) {
+                return ALL_METHODS;
+            }
+            int bit = methodBit(name);
+            if (bit == OTHER_METHOD) {
+                throw new IllegalArgumentException("Unknown HTTP method '" + method + "' in path rule");
+            }
+            mask |= bit;
+        }
+        return mask;
+    }
+
+    private static int methodBit(String method) {
+        if (method != null) {
+            for (int i = 0; i < METHODS.length; i++) {
+                if (METHODS[i].equals(method)) {
+                    return 1 << i;
+                }
+            }
+        }
+        return OTHER_METHOD;
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.length() >= 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}'
+                && segment.indexOf('}') == segment.length() - 1;
+    }
+
+    /**
+     * 把段内的 {name} 替换为 *
+     */
+    private static String toGlob(String segment) {
+        StringBuilder sb = new StringBuilder(segment.length());
+        int depth = 0;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '{') {
+                if (depth++ == 0) {
+                    sb.append('*');
+                }
+            } else if (c == '}' && depth > 0) {
+                depth--;
+            } else if (depth == 0) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 段内通配：? 匹配一个字符，* 匹配任意个字符
+     */
+    static boolean glob(String pattern, String path, int start, int end) {
+        int p = 0;
+        int s = start;
+        int star = -1;
+        int mark = start;
+        int patternLength = pattern.length();
+        while (s < end) {
+            if (p < patternLength && (pattern.charAt(p) == '?' || pattern.charAt(p) == path.charAt(s))) {
+                p++;
+                s++;
+            } else if (p < patternLength && pattern.charAt(p) == '*') {
+                star = p++;
+                mark = s;
+            } else if (star >= 0) {
+                p = star + 1;
+                s = ++mark;
+            } else {
+                return false;
+            }
+        }
+        while (p < patternLength && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == patternLength;
+    }
+
+    private static final class Node {
+        private static final String[] NO_KEYS = new String[0];
+        private static final Node[] NO_NODES = new Node[0];
+
+        private Map<String, Node> literalMap = new TreeMap<>();
+        private Map<String, Node> patternMap = new LinkedHashMap<>();
+
+        private String[] literals = NO_KEYS;
+        private Node[] literalChildren = NO_NODES;
+        private String[] patterns = NO_KEYS;
+        private Node[] patternChildren = NO_NODES;
+        private Node wildcard;
+        private Node doubleStar;
+        private int terminalMask;
+
+        /**
+         * 编译完成后把子节点转为数组，字面量按字典序排列以便二分查找
+         */
+        void freeze() {
+            List<Node> children = new ArrayList<>();
+            if (!literalMap.isEmpty()) {
+                literals = literalMap.keySet().toArray(NO_KEYS);
+                literalChildren = literalMap.values().toArray(NO_NODES);
+                children.addAll(literalMap.values());
+            }
+            if (!patternMap.isEmpty()) {
+                patterns = patternMap.keySet().toArray(NO_KEYS);
+                patternChildren = patternMap.values().toArray(NO_NODES);
+                children.addAll(patternMap.values());
+            }
+            literalMap = null;
+            patternMap = null;
+            if (wildcard != null) {
+                children.add(wildcard);
+            }
+            if (doubleStar != null) {
+                children.add(doubleStar);
+            }
+            for (Node child : children) {
+                child.freeze();
+            }
+        }
+
+        Node findLiteral(String path, int start, int end) {
+            int low = 0;
+            int high = literals.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(literals[mid], path, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return literalChildren[mid];
+                }
+            }
+            return null;
+        }
+
+        private static int compare(String key, String path, int start, int end) {
+            int keyLength = key.length();
+            int segmentLength = end - start;
+            int n = Math.min(keyLength, segmentLength);
+            for (int i = 0; i < n; i++) {
+                char a = key.charAt(i);
+                char b = path.charAt(start + i);
+                if (a != b) {
+                    return a - b;
+                }
+            }
+            return keyLength - segmentLength;
+        }
+    }
+}
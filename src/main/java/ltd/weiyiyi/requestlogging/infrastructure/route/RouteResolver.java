@@ -0,0 +1,186 @@
+package ltd.weiyiyi.requestlogging.infrastructure.route;
+
+import ltd.weiyiyi.requestlogging.infrastructure.compatibility.ServletAdapter;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 路由解析器
+ * 优先使用 Spring MVC 匹配到的路径模式（如 /orders/{orderId}），处理器尚未匹配或不是 Spring MVC 请求时，
+ * 把URI中的数字、UUID、十六进制段替换为 {id}、{uuid}、{hex} 占位符
+ *
+ * <p>URI到路由的结果缓存在两代 ConcurrentHashMap 中：新一代写满后整体降为老一代，原来的老一代直接丢弃，
+ * 命中老一代的条目会被提升到新一代。缓存总条目数不超过配置的容量，遇到URL扫描等大量不同URI时也不会无限增长</p>
+ *
+ * @author weihan
+ */
+public class RouteResolver {
+    /**
+     * 即 HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE，避免依赖 spring-webmvc
+     */
+    public static final String BEST_MATCHING_PATTERN_ATTRIBUTE =
+            "org.springframework.web.servlet.HandlerMapping.bestMatchingPattern";
+
+    static final String ID_PLACEHOLDER = "{id}";
+    static final String UUID_PLACEHOLDER = "{uuid}";
+    static final String HEX_PLACEHOLDER = "{hex}";
+
+    /**
+     * 超过该长度的URI不缓存，避免超长URI占用缓存空间
+     */
+    private static final int MAX_CACHED_URI_LENGTH = 256;
+    /**
+     * 长度不小于该值且包含数字的十六进制段视为ID
+     */
+    private static final int MIN_HEX_LENGTH = 8;
+    private static final int UUID_LENGTH = 36;
+
+    private final int generationSize;
+    private volatile ConcurrentHashMap<String, String> young;
+    private volatile ConcurrentHashMap<String, String> old;
+
+    /**
+     * @param cacheSize 缓存的最大条目数，0表示不缓存
+     */
+    public RouteResolver(int cacheSize) {
+        this.generationSize = Math.max(0, cacheSize / 2);
+        this.young = new ConcurrentHashMap<>();
+        this.old = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 解析请求的路由
+     *
+     * @param request 请求适配器
+     * @return 路由，URI为null时返回null
+     */
+    public String resolve(ServletAdapter request) {
+        Object pattern = request.getAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern instanceof String) {
+            return (String) pattern;
+        }
+        return normalize(request.getRequestURI());
+    }
+
+    /**
+     * 把URI归一化为路由模板
+     *
+     * @param uri 请求URI
+     * @return 路由模板
+     */
+    public String normalize(String uri) {
+        if (uri == null) {
+            return null;
+        }
+        if (generationSize == 0 || uri.length() > MAX_CACHED_URI_LENGTH) {
+            return tokenize(uri);
+        }
+        ConcurrentHashMap<String, String> current = young;
+        String route = current.get(uri);
+        if (route != null) {
+            return route;
+        }
+        route = old.get(uri);
+        if (route == null) {
+            route = tokenize(uri);
+        }
+        if (current.size() >= generationSize) {
+            current = rotate(current);
+        }
+        current.put(uri, route);
+        return route;
+    }
+
+    private synchronized ConcurrentHashMap<String, String> rotate(ConcurrentHashMap<String, String> full) {
+        if (young != full) {
+            // 其他线程已完成切换
+            return young;
+        }
+        ConcurrentHashMap<String, String> next = new ConcurrentHashMap<>();
+        old = full;
+        young = next;
+        return next;
+    }
+
+    /**
+     * 按路径段替换可变部分，没有需要替换的段时返回原字符串
+     *
+     * @param uri 请求URI
+     * @return 路由模板
+     */
+    static String tokenize(String uri) {
+        StringBuilder sb = null;
+        int length = uri.length();
+        int start = 0;
+        while (start <= length) {
+            int end = uri.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            String placeholder = placeholderOf(uri, start, end);
+            if (placeholder != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(length).append(uri, 0, start);
+                }
+                sb.append(placeholder);
+            } else if (sb != null) {
+                sb.append(uri, start, end);
+            }
+            if (end < length && sb != null) {
+                sb.append('/');
+            }
+            start = end + 1;
+        }
+        return sb != null ? sb.toString() : uri;
+    }
+
+    private static String placeholderOf(String uri, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return null;
+        }
+        boolean digits = true;
+        boolean hex = true;
+        boolean hasDigit = false;
+        for (int i = start; i < end; i++) {
+            char c = uri.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else {
+                digits = false;
+                if (!isHexLetter(c)) {
+                    hex = false;
+                    break;
+                }
+            }
+        }
+        if (digits) {
+            return ID_PLACEHOLDER;
+        }
+        if (hex && hasDigit && length >= MIN_HEX_LENGTH) {
+            return HEX_PLACEHOLDER;
+        }
+        if (length == UUID_LENGTH && isUuid(uri, start)) {
+            return UUID_PLACEHOLDER;
+        }
+        return null;
+    }
+
+    private static boolean isUuid(String uri, int start) {
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = uri.charAt(start + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!(c >= '0' && c <= '9') && !isHexLetter(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHexLetter(char c) {
+        return (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
@@ -0,0 +1,168 @@
+package ltd.weiyiyi.requestlogging.infrastructure.sampling;
+
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求采样器
+ * 每个请求只做一次采样决定，由追踪ID的哈希值与采样率比较得出，同一追踪ID在所有节点上的决定一致。
+ * 采样率按以下顺序确定：
+ * <ol>
+ *     <li>按配置顺序第一个匹配请求URI的路由采样率（Ant 风格模式，如 /orders/{id}、/internal/**）</li>
+ *     <li>启用自适应采样时，按最近一个调整周期的请求速率计算出的采样率，使输出接近目标条数/秒</li>
+ *     <li>全局采样率</li>
+ * </ol>
+ *
+ * @author weihan
+ */
+public class RequestSampler {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final double baseRate;
+    private final List<RouteRate> routeRates;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * 自适应采样的目标条数/秒，不大于0表示不启用
+     */
+    private final double targetPerSecond;
+    private final long adjustIntervalNanos;
+    private final LongAdder requests = new LongAdder();
+    private final AtomicBoolean adjusting = new AtomicBoolean();
+    private volatile long periodStartNanos;
+    private volatile double adaptiveRate;
+
+    public RequestSampler(RequestLoggingProperties properties) {
+        this.baseRate = clamp(properties.getSamplingRate());
+        this.routeRates = new ArrayList<>();
+        Map<String, Double> configured = properties.getRouteSamplingRates();
+        if (configured != null) {
+            configured.forEach((pattern, rate) -> routeRates.add(new RouteRate(pattern, clamp(rate))));
+        }
+        this.targetPerSecond = properties.getSamplingTargetPerSecond();
+        this.adjustIntervalNanos = DurationStyle.detectAndParse(properties.getSamplingAdjustInterval()).toNanos();
+        this.periodStartNanos = System.nanoTime();
+        this.adaptiveRate = baseRate;
+    }
+
+    /**
+     * 决定一个请求是否被采样
+     *
+     * @param traceId 追踪ID
+     * @param uri 请求URI
+     * @return 是否采样
+     */
+    public boolean isSampled(String traceId, String uri) {
+        return isSampled(traceId, rateOf(uri));
+    }
+
+    /**
+     * 按给定采样率决定是否采样
+     *
+     * @param traceId 追踪ID
+     * @param rate 采样率 (0.0-1.0)
+     * @return 是否采样
+     */
+    public static boolean isSampled(String traceId, double rate) {
+        if (rate >= 1.0) {
+            return true;
+        }
+        if (rate <= 0.0 || traceId == null) {
+            return false;
+        }
+        return toUnitInterval(hash(traceId)) < rate;
+    }
+
+    /**
+     * 获取请求URI对应的采样率
+     *
+     * @param uri 请求URI
+     * @return 采样率 (0.0-1.0)
+     */
+    public double rateOf(String uri) {
+        if (uri != null) {
+            for (RouteRate routeRate : routeRates) {
+                if (pathMatcher.match(routeRate.pattern, uri)) {
+                    return routeRate.rate;
+                }
+            }
+        }
+        if (targetPerSecond <= 0) {
+            return baseRate;
+        }
+        requests.increment();
+        long now = System.nanoTime();
+        if (now - periodStartNanos >= adjustIntervalNanos) {
+            adjust(now);
+        }
+        return adaptiveRate;
+    }
+
+    /**
+     * 当前的自适应采样率，未启用自适应采样时为全局采样率
+     */
+    public double getAdaptiveRate() {
+        return adaptiveRate;
+    }
+
+    private void adjust(long now) {
+        if (!adjusting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long elapsed = now - periodStartNanos;
+            if (elapsed < adjustIntervalNanos) {
+                return;
+            }
+            double perSecond = (double) requests.sumThenReset() * NANOS_PER_SECOND / elapsed;
+            adaptiveRate = perSecond <= targetPerSecond ? 1.0 : targetPerSecond / perSecond;
+            periodStartNanos = now;
+        } finally {
+            adjusting.set(false);
+        }
+    }
+
+    /**
+     * 对追踪ID做 FNV-1a 哈希并用 MurmurHash3 的 fmix64 打散，与JVM无关，各节点结果一致
+     */
+    static long hash(String traceId) {
+        long h = FNV_OFFSET_BASIS;
+        for (int i = 0; i < traceId.length(); i++) {
+            h ^= traceId.charAt(i);
+            h *= FNV_PRIME;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static double toUnitInterval(long hash) {
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    private static double clamp(double rate) {
+        return Math.min(Math.max(rate, 0.0), 1.0);
+    }
+
+    private static final class RouteRate {
+        private final String pattern;
+        private final double rate;
+
+        private RouteRate(String pattern, double rate) {
+            this.pattern = pattern;
+            this.rate = rate;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ltd.weiyiyi.requestlogging.infrastructure.sampling;
+
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 尾部采样策略
+ * 请求完成后再决定是否保留日志，满足任一条件即保留：
+ * <ul>
+ *     <li>状态码 &gt;= 500</li>
+ *     <li>处理过程中抛出异常</li>
+ *     <li>耗时不小于慢请求阈值（可按路由配置）</li>
+ *     <li>被 {@link RequestSampler} 采样</li>
+ * </ul>
+ *
+ * @author weihan
+ */
+public class TailSamplingPolicy {
+    private final long slowThresholdMillis;
+    private final List<RouteThreshold> routeThresholds;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public TailSamplingPolicy(RequestLoggingProperties properties) {
+        this.slowThresholdMillis = DurationStyle.detectAndParse(properties.getSlowRequestThreshold()).toMillis();
+        this.routeThresholds = new ArrayList<>();
+        Map<String, String> configured = properties.getRouteSlowThresholds();
+        if (configured != null) {
+            configured.forEach((pattern, threshold) -> routeThresholds.add(
+                    new RouteThreshold(pattern, DurationStyle.detectAndParse(threshold).toMillis())));
+        }
+    }
+
+    /**
+     * 决定请求完成后是否保留日志
+     *
+     * @param uri 请求URI
+     * @param status 响应状态
+     * @param failed 是否抛出异常
+     * @param durationMillis 耗时（毫秒）
+     * @param sampled 是否被采样
+     * @return 是否保留
+     */
+    public boolean shouldKeep(String uri, int status, boolean failed, long durationMillis, boolean sampled) {
+        return sampled || failed || status >= 500 || durationMillis >= slowThresholdOf(uri);
+    }
+
+    /**
+     * 获取请求URI对应的慢请求阈值
+     *
+     * @param uri 请求URI
+     * @return 阈值（毫秒）
+     */
+    public long slowThresholdOf(String uri) {
+        if (uri != null) {
+            for (RouteThreshold routeThreshold : routeThresholds) {
+                if (pathMatcher.match(routeThreshold.pattern, uri)) {
+                    return routeThreshold.thresholdMillis;
+                }
+            }
+        }
+        return slowThresholdMillis;
+    }
+
+    private static final class RouteThreshold {
+        private final String pattern;
+        private final long thresholdMillis;
+
+        private RouteThreshold(String pattern, long thresholdMillis) {
+            this.pattern = pattern;
+            this.thresholdMillis = thresholdMillis;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ltd.weiyiyi.requestlogging.infrastructure.spi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 日志段压缩编解码器接口
+ * 用于自定义已滚动日志段的压缩格式，通过 SPI 加载并按名称选择
+ *
+ * @author weihan
+ */
+public interface CompressionCodec {
+    /**
+     * 获取编解码器名称
+     *
+     * @return 编解码器名称，对应配置项 compression-codec
+     */
+    String getName();
+
+    /**
+     * 获取压缩文件的扩展名
+     *
+     * @return 扩展名，包含开头的点，例如 .gz
+     */
+    String getFileExtension();
+
+    /**
+     * 包装输出流，写入包装后的流的内容被压缩后写入原始流，关闭包装后的流时关闭原始流
+     *
+     * @param out 原始输出流
+     * @return 压缩输出流
+     * @throws IOException 如果发生IO异常
+     */
+    OutputStream compress(OutputStream out) throws IOException;
+}
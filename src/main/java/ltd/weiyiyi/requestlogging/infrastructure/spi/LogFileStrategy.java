@@ -1,6 +1,7 @@
 package ltd.weiyiyi.requestlogging.infrastructure.spi;
 
 import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
 import java.io.File;
 
 /**
@@ -24,6 +25,16 @@ public interface LogFileStrategy {
      */
     void init(File baseDir);
 
+    /**
+     * 使用配置初始化策略，需要读取配置的策略可以覆盖此方法
+     *
+     * @param baseDir 日志文件基础目录
+     * @param properties 配置
+     */
+    default void init(File baseDir, RequestLoggingProperties properties) {
+        init(baseDir);
+    }
+
     /**
      * 获取日志文件
      *
@@ -32,6 +43,16 @@ public interface LogFileStrategy {
      */
     File getLogFile(RequestLog log);
 
+    /**
+     * 日志写入后通知写入的字节数，按大小滚动的策略可以据此计数而无需查询文件大小。
+     * 在写入线程中调用，实现不得阻塞
+     *
+     * @param file 写入的文件
+     * @param bytes 写入的字节数
+     */
+    default void onBytesWritten(File file, long bytes) {
+    }
+
     /**
      * 清理过期的日志文件
      */
@@ -0,0 +1,33 @@
+package ltd.weiyiyi.requestlogging.infrastructure.spi;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+
+/**
+ * 日志写入目标
+ * 由 {@link LogSinkStrategy} 创建并持有，在滚动前一直保持打开，写入器直接向其通道写入
+ *
+ * @author weihan
+ */
+public interface LogSink {
+    /**
+     * 获取写入的文件
+     *
+     * @return 日志文件
+     */
+    File getFile();
+
+    /**
+     * 获取文件通道
+     *
+     * @return 已打开的文件通道
+     */
+    FileChannel getChannel();
+
+    /**
+     * 获取文件当前的字节数，包括打开前已有的内容
+     *
+     * @return 字节数
+     */
+    long getBytesWritten();
+}
@@ -0,0 +1,82 @@
+package ltd.weiyiyi.requestlogging.infrastructure.spi;
+
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * 日志写入策略接口（第二代）
+ * 与 {@link LogFileStrategy} 每条日志返回一个文件不同，策略向写入器提供长期打开的 {@link LogSink}，
+ * 并在每次写入后收到写入的字节数，可以自行实现滚动、预分配与刷盘。
+ * {@link #acquire(RequestLog)}、{@link #onBytesWritten(LogSink, long)}、{@link #onWriteError(LogSink, IOException)}
+ * 由写入器在写锁内依次调用，实现不需要额外同步；{@link #getActiveFile()} 可能在其他线程中调用。
+ * 旧的 {@link LogFileStrategy} 实现通过适配器继续可用
+ *
+ * @author weihan
+ */
+public interface LogSinkStrategy extends Closeable {
+    /**
+     * 获取策略名称
+     *
+     * @return 策略名称
+     */
+    String getStrategyName();
+
+    /**
+     * 初始化策略
+     *
+     * @param baseDir 日志文件基础目录
+     * @param properties 配置
+     */
+    void init(File baseDir, RequestLoggingProperties properties);
+
+    /**
+     * 获取下一批日志的写入目标，需要滚动时关闭旧的目标并打开新的目标
+     *
+     * @param log 批次中的第一条日志
+     * @return 写入目标
+     * @throws IOException 打开文件失败
+     */
+    LogSink acquire(RequestLog log) throws IOException;
+
+    /**
+     * 一批日志写入完成后调用
+     *
+     * @param sink 写入目标
+     * @param bytes 写入的字节数
+     */
+    void onBytesWritten(LogSink sink, long bytes);
+
+    /**
+     * 写入失败时调用，实现应关闭该目标，下次 {@link #acquire(RequestLog)} 时重新打开
+     *
+     * @param sink 写入目标
+     * @param error 写入异常
+     */
+    void onWriteError(LogSink sink, IOException error);
+
+    /**
+     * 获取当前正在写入的文件，后台压缩与保留清理会跳过该文件
+     *
+     * @return 当前文件，尚未打开时返回null
+     */
+    File getActiveFile();
+
+    /**
+     * 设置滚动监听器，滚动后以关闭的文件为参数调用，监听器不得阻塞
+     *
+     * @param listener 监听器
+     */
+    default void onSinkClosed(Consumer<File> listener) {
+    }
+
+    /**
+     * 关闭当前的写入目标
+     */
+    @Override
+    void close();
+}
@@ -1,5 +1,6 @@
 package ltd.weiyiyi.requestlogging.infrastructure.spi;
 
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
 import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
 import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
 
@@ -34,4 +35,40 @@ public interface RequestLogProcessor {
      * @param requestLog 请求日志对象
      */
     void processRequestError(RequestLog requestLog);
-} 
\ No newline at end of file
+
+    /**
+     * 处理交换日志，日志对象同时包含请求与响应信息
+     * 默认按是否有异常转为请求错误或请求完成日志处理
+     *
+     * @param requestLog 请求日志对象
+     */
+    default void processExchange(RequestLog requestLog) {
+        if (requestLog.getException() != null) {
+            processRequestError(requestLog);
+        } else {
+            processRequestComplete(requestLog);
+        }
+    }
+
+    /**
+     * 按事件类型分发日志
+     *
+     * @param type 事件类型
+     * @param requestLog 请求日志对象
+     */
+    default void process(LogEventType type, RequestLog requestLog) {
+        switch (type) {
+            case REQUEST_START -> processRequestStart(requestLog);
+            case REQUEST_COMPLETE -> processRequestComplete(requestLog);
+            case REQUEST_ERROR -> processRequestError(requestLog);
+            case EXCHANGE -> processExchange(requestLog);
+            default -> throw new IllegalArgumentException("Unsupported log event type: " + type);
+        }
+    }
+
+    /**
+     * 关闭处理器，释放文件句柄等资源
+     */
+    default void close() {
+    }
+}
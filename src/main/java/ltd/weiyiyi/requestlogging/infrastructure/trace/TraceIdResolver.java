@@ -0,0 +1,137 @@
+package ltd.weiyiyi.requestlogging.infrastructure.trace;
+
+import ltd.weiyiyi.requestlogging.infrastructure.compatibility.ServletAdapter;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 追踪ID解析器
+ * 优先沿用上游传入的追踪ID：先取配置的请求头（默认 X-Trace-Id），再取 W3C {@code traceparent} 中的 trace-id；
+ * 都没有或格式不合法时生成新的128位ID，渲染为32位小写十六进制
+ *
+ * <p>生成使用 {@link ThreadLocalRandom}，不经过 SecureRandom，没有锁竞争；
+ * 十六进制字符写入线程私有的字符缓冲区后再创建字符串</p>
+ *
+ * @author weihan
+ */
+public class TraceIdResolver {
+    /**
+     * W3C Trace Context 请求头
+     */
+    public static final String TRACEPARENT_HEADER = "traceparent";
+
+    /**
+     * 接受的上游追踪ID最大长度，超出视为非法
+     */
+    static final int MAX_INBOUND_LENGTH = 128;
+    static final int TRACE_ID_LENGTH = 32;
+
+    /**
+     * traceparent 格式：version(2)-trace-id(32)-parent-id(16)-flags(2)
+     */
+    private static final int TRACEPARENT_LENGTH = 55;
+    private static final int TRACEPARENT_TRACE_ID_OFFSET = 3;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<char[]> BUFFERS = ThreadLocal.withInitial(() -> new char[TRACE_ID_LENGTH]);
+
+    private final String traceIdHeader;
+    private final boolean acceptInbound;
+
+    /**
+     * @param traceIdHeader 追踪ID请求头名称
+     * @param acceptInbound 是否沿用上游传入的追踪ID
+     */
+    public TraceIdResolver(String traceIdHeader, boolean acceptInbound) {
+        this.traceIdHeader = traceIdHeader;
+        this.acceptInbound = acceptInbound;
+    }
+
+    /**
+     * 解析请求的追踪ID
+     *
+     * @param request 请求适配器，可以为null
+     * @return 追踪ID
+     */
+    public String resolve(ServletAdapter request) {
+        if (acceptInbound && request != null) {
+            if (traceIdHeader != null && !traceIdHeader.isEmpty()) {
+                String inbound = request.getHeader(traceIdHeader);
+                if (isValidInbound(inbound)) {
+                    return inbound;
+                }
+            }
+            String traceId = fromTraceparent(request.getHeader(TRACEPARENT_HEADER));
+            if (traceId != null) {
+                return traceId;
+            }
+        }
+        return generate();
+    }
+
+    /**
+     * 生成128位随机追踪ID
+     *
+     * @return 32位小写十六进制字符串
+     */
+    public static String generate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long high = random.nextLong();
+        long low = random.nextLong();
+        char[] buffer = BUFFERS.get();
+        writeHex(high, buffer, 0);
+        writeHex(low, buffer, 16);
+        return new String(buffer);
+    }
+
+    /**
+     * 从 traceparent 中提取 trace-id
+     *
+     * @param traceparent traceparent 请求头的值
+     * @return trace-id，格式不合法或全为0时返回null
+     */
+    static String fromTraceparent(String traceparent) {
+        if (traceparent == null || traceparent.length() < TRACEPARENT_LENGTH
+                || traceparent.charAt(2) != '-' || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') {
+            return null;
+        }
+        // 版本 ff 非法
+        if (traceparent.startsWith("ff")) {
+            return null;
+        }
+        boolean allZero = true;
+        for (int i = TRACEPARENT_TRACE_ID_OFFSET; i < TRACEPARENT_TRACE_ID_OFFSET + TRACE_ID_LENGTH; i++) {
+            char c = traceparent.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return null;
+            }
+            allZero &= c == '0';
+        }
+        return allZero ? null : traceparent.substring(TRACEPARENT_TRACE_ID_OFFSET, TRACEPARENT_TRACE_ID_OFFSET + TRACE_ID_LENGTH);
+    }
+
+    /**
+     * 上游追踪ID只接受字母、数字与 - _ . : 组成的非空字符串，避免日志注入
+     */
+    static boolean isValidInbound(String traceId) {
+        if (traceId == null || traceId.isEmpty() || traceId.length() > MAX_INBOUND_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < traceId.length(); i++) {
+            char c = traceId.charAt(i);
+            boolean valid = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                    || c == '-' || c == '_' || c == '.' || c == ':';
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeHex(long value, char[] buffer, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            buffer[offset + i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ltd.weiyiyi.requestlogging.infrastructure.util;
+
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * 日志时间戳工具类
+ *
+ * @author weihan
+ */
+public final class LogTimestamps {
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private LogTimestamps() {
+    }
+
+    /**
+     * 获取日志记录对应的时间戳：请求开始事件取请求时间，其他事件优先取响应时间
+     *
+     * @param type 事件类型
+     * @param log 请求日志对象
+     * @return 毫秒时间戳，时间为空时返回当前时间
+     */
+    public static long recordTimestamp(LogEventType type, RequestLog log) {
+        LocalDateTime time = type == LogEventType.REQUEST_START || log.getResponseTime() == null
+            ? log.getRequestTime() : log.getResponseTime();
+        return time != null ? toEpochMillis(time) : System.currentTimeMillis();
+    }
+
+    /**
+     * 将本地时间按系统时区转换为毫秒时间戳
+     *
+     * @param time 本地时间
+     * @return 毫秒时间戳
+     */
+    public static long toEpochMillis(LocalDateTime time) {
+        return time.toEpochSecond(ZONE.getRules().getOffset(time)) * 1000 + time.getNano() / 1_000_000;
+    }
+
+    /**
+     * 将毫秒时间戳按系统时区转换为本地时间
+     *
+     * @param epochMillis 毫秒时间戳
+     * @return 本地时间
+     */
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZONE);
+    }
+}
@@ -0,0 +1,181 @@
+package ltd.weiyiyi.requestlogging.infrastructure.async;
+
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.spi.RequestLogProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link AsyncLogDispatcher} 溢出策略与关闭过程测试
+ *
+ * @author weihan
+ */
+class AsyncLogDispatcherTest {
+
+    @Test
+    void deliversPublishedEventsOnConsumerThread() throws InterruptedException {
+        CountingProcessor processor = new CountingProcessor(null);
+        AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(List.of(processor), properties(16, "block"));
+        for (int i = 0; i < 100; i++) {
+            dispatcher.publish(LogEventType.EXCHANGE, new RequestLog());
+        }
+        dispatcher.shutdown();
+
+        assertEquals(100, processor.count.get());
+        assertEquals(100, dispatcher.getPublishedCount());
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    void dropNewestCountsRejectedEvents() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingProcessor processor = new CountingProcessor(release);
+        AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(List.of(processor), properties(4, "drop-newest"));
+        dispatcher.publish(LogEventType.EXCHANGE, new RequestLog());
+        processor.awaitBlocked();
+        for (int i = 0; i < 10; i++) {
+            dispatcher.publish(LogEventType.EXCHANGE, new RequestLog());
+        }
+        release.countDown();
+        dispatcher.shutdown();
+
+        assertEquals(1 + 4, processor.count.get());
+        assertEquals(6, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    void dropOldestKeepsNewestEvents() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingProcessor processor = new CountingProcessor(release);
+        AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(List.of(processor), properties(4, "drop-oldest"));
+        dispatcher.publish(LogEventType.EXCHANGE, log("first"));
+        processor.awaitBlocked();
+        for (int i = 0; i < 10; i++) {
+            dispatcher.publish(LogEventType.EXCHANGE, log("log-" + i));
+        }
+        release.countDown();
+        dispatcher.shutdown();
+
+        assertEquals(List.of("first", "log-6", "log-7", "log-8", "log-9"), processor.traceIds());
+        assertEquals(6, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    void publishAfterShutdownIsDeliveredSynchronously() {
+        CountingProcessor processor = new CountingProcessor(null);
+        AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(List.of(processor), properties(4, "block"));
+        dispatcher.shutdown();
+        dispatcher.publish(LogEventType.EXCHANGE, new RequestLog());
+
+        assertEquals(1, processor.count.get());
+    }
+
+    @Test
+    void noEventIsLostWhileShuttingDown() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            CountingProcessor processor = new CountingProcessor(null);
+            AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(List.of(processor), properties(8, "block"));
+            int producers = 4;
+            int perProducer = 2_000;
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        dispatcher.publish(LogEventType.EXCHANGE, new RequestLog());
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            dispatcher.shutdown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(0, dispatcher.getDroppedCount());
+            assertEquals(producers * perProducer, processor.count.get(), "round " + round);
+        }
+    }
+
+    private static RequestLoggingProperties properties(int bufferSize, String overflowPolicy) {
+        RequestLoggingProperties properties = new RequestLoggingProperties();
+        properties.setAsyncRingBufferSize(bufferSize);
+        properties.setAsyncConsumerThreads(1);
+        properties.setAsyncOverflowPolicy(overflowPolicy);
+        return properties;
+    }
+
+    private static RequestLog log(String traceId) {
+        RequestLog log = new RequestLog();
+        log.setTraceId(traceId);
+        return log;
+    }
+
+    /**
+     * 记录收到的日志，设置了 release 时第一条日志会阻塞消费线程直到放行
+     */
+    private static final class CountingProcessor implements RequestLogProcessor {
+        private final AtomicInteger count = new AtomicInteger();
+        private final List<String> traceIds = new ArrayList<>();
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release;
+
+        private CountingProcessor(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void init(RequestLoggingProperties properties) {
+        }
+
+        @Override
+        public void processRequestStart(RequestLog requestLog) {
+            record(requestLog);
+        }
+
+        @Override
+        public void processRequestComplete(RequestLog requestLog) {
+            record(requestLog);
+        }
+
+        @Override
+        public void processRequestError(RequestLog requestLog) {
+            record(requestLog);
+        }
+
+        private void record(RequestLog requestLog) {
+            synchronized (traceIds) {
+                traceIds.add(requestLog.getTraceId());
+            }
+            if (count.incrementAndGet() == 1 && release != null) {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void awaitBlocked() throws InterruptedException {
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        }
+
+        private List<String> traceIds() {
+            synchronized (traceIds) {
+                return new ArrayList<>(traceIds);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ltd.weiyiyi.requestlogging.infrastructure.binary;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import ltd.weiyiyi.requestlogging.domain.model.LogEventType;
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.JsonLinesEncoder;
+import ltd.weiyiyi.requestlogging.infrastructure.formatter.LogFormatter;
+import ltd.weiyiyi.requestlogging.infrastructure.layout.Utf8Buffer;
+import ltd.weiyiyi.requestlogging.infrastructure.util.LogTimestamps;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 二进制日志编码、读取与转换的往返测试
+ *
+ * @author weihan
+ */
+class BinaryLogRoundTripTest {
+    private static final LocalDateTime REQUEST_TIME = LocalDateTime.of(2021, 3, 4, 5, 6, 7, 123_000_000);
+    private static final LocalDateTime RESPONSE_TIME = REQUEST_TIME.plusNanos(45_000_000);
+
+    @Test
+    void decodesEveryField() throws IOException {
+        RequestLog original = sampleLog("5f2a8c1e-3b4d-4e6f-8a9b-0c1d2e3f4a5b");
+        List<BinaryLogEntry> entries = readAll(encode(LogEventType.EXCHANGE, original, original));
+
+        assertEquals(2, entries.size());
+        for (BinaryLogEntry entry : entries) {
+            RequestLog log = entry.getLog();
+            assertEquals(LogEventType.EXCHANGE, entry.getType());
+            assertEquals(original.getTraceId(), log.getTraceId());
+            assertEquals(original.getMethod(), log.getMethod());
+            assertEquals(original.getUri(), log.getUri());
+            assertEquals(original.getRoute(), log.getRoute());
+            assertEquals(original.getQueryString(), log.getQueryString());
+            assertEquals(original.getClientIp(), log.getClientIp());
+            assertEquals(original.getStatus(), log.getStatus());
+            assertEquals(original.getProcessingTime(), log.getProcessingTime());
+            assertEquals(original.getHeaders(), log.getHeaders());
+            assertEquals(original.getRequestBody(), log.getRequestBody());
+            assertEquals(original.getResponseBody(), log.getResponseBody());
+            assertEquals(REQUEST_TIME, log.getRequestTime());
+            assertEquals(RESPONSE_TIME, log.getResponseTime());
+            assertNull(log.getException());
+        }
+    }
+
+    @Test
+    void textConversionPrintsRecordTimeNotConversionTime() throws IOException {
+        RequestLog decoded = readAll(encode(LogEventType.EXCHANGE, sampleLog("trace-1"))).get(0).getLog();
+        RequestLoggingProperties properties = new RequestLoggingProperties();
+        properties.setEnableColorOutput(false);
+        String text = new LogFormatter(properties).format(LogEventType.EXCHANGE, decoded).toString();
+
+        assertTrue(text.contains("2021-03-04 05:06:07.168"), text);
+
+        RequestLog start = readAll(encode(LogEventType.REQUEST_START, sampleLog("trace-2"))).get(0).getLog();
+        String startText = new LogFormatter(properties).format(LogEventType.REQUEST_START, start).toString();
+        assertTrue(startText.contains("2021-03-04 05:06:07.123"), startText);
+    }
+
+    @Test
+    void jsonConversionKeepsRecordTimestamp() throws IOException {
+        BinaryLogEntry entry = readAll(encode(LogEventType.EXCHANGE, sampleLog("trace-1"))).get(0);
+        JSONObject json = JSON.parseObject(new JsonLinesEncoder().encode(entry.getType(), entry.getLog()).toString());
+
+        assertEquals(LogTimestamps.toEpochMillis(RESPONSE_TIME), json.getLongValue("ts"));
+        assertEquals("trace-1", json.getString("traceId"));
+    }
+
+    @Test
+    void skipsCorruptedBytesAndResumesAtNextSegment() throws IOException {
+        byte[] first = encode(LogEventType.EXCHANGE, sampleLog("first-1"), sampleLog("first-2"));
+        byte[] second = encode(LogEventType.EXCHANGE, sampleLog("second-1"));
+        // 损坏第一个段的最后一个记录帧
+        byte[] corrupted = Arrays.copyOf(first, first.length);
+        for (int i = first.length - 20; i < first.length; i++) {
+            corrupted[i] = (byte) 0xFF;
+        }
+        byte[] data = concat(corrupted, second);
+
+        BinaryLogReader reader = new BinaryLogReader(new ByteArrayInputStream(data));
+        List<String> traceIds = new ArrayList<>();
+        BinaryLogEntry entry;
+        while ((entry = reader.next()) != null) {
+            traceIds.add(entry.getLog().getTraceId());
+        }
+
+        assertTrue(traceIds.contains("first-1"), traceIds.toString());
+        assertFalse(traceIds.contains("first-2"), traceIds.toString());
+        assertEquals("second-1", traceIds.get(traceIds.size() - 1));
+        assertTrue(reader.getSkippedBytes() > 0);
+    }
+
+    @Test
+    void truncatedTrailingFrameEndsTheStream() throws IOException {
+        byte[] data = encode(LogEventType.EXCHANGE, sampleLog("a"), sampleLog("b"));
+        List<BinaryLogEntry> entries = readAll(Arrays.copyOf(data, data.length - 3));
+
+        assertEquals(1, entries.size());
+        assertEquals("a", entries.get(0).getLog().getTraceId());
+    }
+
+    private static RequestLog sampleLog(String traceId) {
+        RequestLog log = new RequestLog();
+        log.setTraceId(traceId);
+        log.setMethod("POST");
+        log.setUri("/orders/42");
+        log.setRoute("/orders/{id}");
+        log.setQueryString("expand=items");
+        log.setClientIp("10.0.0.1");
+        log.setStatus(201);
+        log.setProcessingTime(45);
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", "application/json");
+        headers.put("X-Request-Id", "r-1");
+        log.setHeaders(headers);
+        log.setRequestBody("{\"item\":\"book\"}");
+        log.setResponseBody("{\"id\":42}");
+        log.setRequestTime(REQUEST_TIME);
+        log.setResponseTime(RESPONSE_TIME);
+        return log;
+    }
+
+    private static byte[] encode(LogEventType type, RequestLog... logs) {
+        BinaryLogEncoder encoder = new BinaryLogEncoder();
+        Utf8Buffer out = new Utf8Buffer(1024);
+        encoder.beginSegment(out);
+        for (RequestLog log : logs) {
+            encoder.encode(type, log, out);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<BinaryLogEntry> readAll(byte[] data) throws IOException {
+        List<BinaryLogEntry> entries = new ArrayList<>();
+        try (BinaryLogReader reader = new BinaryLogReader(new ByteArrayInputStream(data))) {
+            BinaryLogEntry entry;
+            while ((entry = reader.next()) != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
@@ -0,0 +1,83 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import ltd.weiyiyi.requestlogging.domain.model.RequestLog;
+import ltd.weiyiyi.requestlogging.infrastructure.config.RequestLoggingProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link MappedFileLogProcessor} 测试
+ *
+ * @author weihan
+ */
+class MappedFileLogProcessorTest {
+    @TempDir
+    File tempDir;
+
+    @Test
+    void dropsRecordsWhenSegmentCannotBeCreatedAndResumesWithNextIndex() throws Exception {
+        File baseDir = new File(tempDir, "logs");
+        RequestLoggingProperties properties = new RequestLoggingProperties();
+        properties.setLogFileStrategy(MappedSegmentStrategy.STRATEGY_NAME);
+        properties.setLogFileBaseDir(baseDir.getPath());
+        properties.setMappedSegmentSize("1KB");
+        properties.setFileOutputFormat("json");
+        MappedFileLogProcessor processor = new MappedFileLogProcessor();
+        processor.init(properties);
+        try {
+            // 目录被替换为普通文件后无法创建新段
+            File moved = new File(tempDir, "moved");
+            assertTrue(baseDir.renameTo(moved));
+            Files.createFile(baseDir.toPath());
+            for (int i = 0; i < 100; i++) {
+                processor.processExchange(new RequestLog());
+            }
+            assertTrue(processor.getDroppedCount() > 0);
+
+            assertTrue(baseDir.delete());
+            assertTrue(baseDir.mkdirs());
+            long dropped = processor.getDroppedCount();
+            processor.processExchange(new RequestLog());
+            assertEquals(dropped, processor.getDroppedCount());
+
+            String[] names = baseDir.list();
+            assertEquals(1, names.length);
+            assertTrue(names[0].endsWith("-002.log"), Arrays.toString(names));
+        } finally {
+            processor.close();
+        }
+    }
+
+    @Test
+    void blankOrMissingBaseDirFallsBackToWorkingDirectoryLogs() {
+        String userDir = System.getProperty("user.dir");
+        System.setProperty("user.dir", tempDir.getPath());
+        try {
+            for (String configured : new String[] {null, "  "}) {
+                RequestLoggingProperties properties = new RequestLoggingProperties();
+                properties.setLogFileStrategy(MappedSegmentStrategy.STRATEGY_NAME);
+                properties.setLogFileBaseDir(configured);
+                properties.setMappedSegmentSize("1KB");
+                properties.setFileOutputFormat("json");
+                MappedFileLogProcessor processor = new MappedFileLogProcessor();
+                processor.init(properties);
+                try {
+                    processor.processExchange(new RequestLog());
+                } finally {
+                    processor.close();
+                }
+                String[] names = new File(tempDir, "logs").list();
+                assertTrue(names != null && names.length > 0, String.valueOf(configured));
+            }
+        } finally {
+            System.setProperty("user.dir", userDir);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link MappedSegment} 预留与封存测试
+ *
+ * @author weihan
+ */
+class MappedSegmentTest {
+    @TempDir
+    File tempDir;
+
+    @Test
+    void reserveFailsAfterSealAndFileIsTruncatedToWrittenLength() throws Exception {
+        File file = new File(tempDir, "segment.log");
+        MappedSegment segment = new MappedSegment(file, 1024, Long.MAX_VALUE);
+        byte[] record = "hello\n".getBytes();
+        int offset = segment.reserve(record.length);
+        segment.write(offset, record, record.length);
+        segment.seal();
+
+        assertEquals(-1, segment.reserve(record.length));
+        assertTrue(segment.isSealed());
+        assertEquals(record.length, file.length());
+    }
+
+    @Test
+    void concurrentSealNeverLosesReservedRecords() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            File file = new File(tempDir, "segment-" + round + ".log");
+            MappedSegment segment = new MappedSegment(file, 64 * 1024, Long.MAX_VALUE);
+            byte[] record = new byte[32];
+            Arrays.fill(record, (byte) 'x');
+            record[record.length - 1] = '\n';
+            AtomicLong written = new AtomicLong();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                writers.add(new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    int offset;
+                    while ((offset = segment.reserve(record.length)) >= 0) {
+                        segment.write(offset, record, record.length);
+                        written.addAndGet(record.length);
+                    }
+                }));
+            }
+            for (Thread writer : writers) {
+                writer.start();
+            }
+            start.countDown();
+            Thread.sleep(0, 200_000);
+            segment.seal();
+            for (Thread writer : writers) {
+                writer.join();
+            }
+
+            assertEquals(written.get(), file.length(), "round " + round);
+            byte[] content = Files.readAllBytes(file.toPath());
+            for (int i = 0; i < content.length; i++) {
+                assertEquals(i % record.length == record.length - 1 ? '\n' : 'x', (char) content[i]);
+            }
+        }
+    }
+}
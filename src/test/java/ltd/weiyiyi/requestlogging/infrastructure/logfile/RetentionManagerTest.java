@@ -0,0 +1,75 @@
+package ltd.weiyiyi.requestlogging.infrastructure.logfile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link RetentionManager} 测试
+ *
+ * @author weihan
+ */
+class RetentionManagerTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    @TempDir
+    File baseDir;
+
+    @Test
+    void limitsApplyToAllDirectoriesTogether() throws IOException {
+        File shard0 = new File(baseDir, "shard-00");
+        File shard1 = new File(baseDir, "shard-01");
+        File old0 = logFile(shard0, "request-1.log", 100, NOW - 5000);
+        File old1 = logFile(shard1, "request-1.log", 100, NOW - 4000);
+        File mid0 = logFile(shard0, "request-2.log", 100, NOW - 3000);
+        File active0 = logFile(shard0, "request-3.log", 100, NOW - 2000);
+        File active1 = logFile(shard1, "request-2.log", 100, NOW - 1000);
+
+        RetentionManager manager = new RetentionManager(List.of(shard0, shard1), 0, 3, 0, () -> List.of(active0, active1));
+        try {
+            assertEquals(2, manager.enforce(NOW));
+        } finally {
+            manager.close();
+        }
+
+        assertFalse(old0.exists());
+        assertFalse(old1.exists());
+        assertTrue(mid0.exists());
+        assertTrue(active0.exists());
+        assertTrue(active1.exists());
+    }
+
+    @Test
+    void activeFilesAreNeverDeleted() throws IOException {
+        File shard0 = new File(baseDir, "shard-00");
+        File shard1 = new File(baseDir, "shard-01");
+        File active0 = logFile(shard0, "request-1.log", 500, NOW - 2000);
+        File active1 = logFile(shard1, "request-1.log", 500, NOW - 1000);
+
+        RetentionManager manager = new RetentionManager(List.of(shard0, shard1), 0, 0, 100, () -> List.of(active0, active1));
+        try {
+            assertEquals(0, manager.enforce(NOW));
+        } finally {
+            manager.close();
+        }
+
+        assertTrue(active0.exists());
+        assertTrue(active1.exists());
+    }
+
+    private static File logFile(File dir, String name, int size, long lastModified) throws IOException {
+        assertTrue(dir.isDirectory() || dir.mkdirs());
+        File file = new File(dir, name);
+        Files.write(file.toPath(), new byte[size]);
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+}
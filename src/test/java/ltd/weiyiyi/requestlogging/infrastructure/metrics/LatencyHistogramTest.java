@@ -0,0 +1,33 @@
+package ltd.weiyiyi.requestlogging.infrastructure.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link LatencyHistogram} 测试
+ *
+ * @author weihan
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void resetClearsCountsMaxAndSum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(1000, histogram.snapshot().getTotalCount());
+
+        histogram.reset();
+        HistogramSnapshot empty = histogram.snapshot();
+        assertEquals(0, empty.getTotalCount());
+        assertEquals(0, empty.getMax());
+
+        histogram.record(7);
+        HistogramSnapshot reused = histogram.snapshot();
+        assertEquals(1, reused.getTotalCount());
+        assertEquals(7, reused.getMax());
+        assertEquals(7, reused.getValueAtPercentile(50));
+    }
+}
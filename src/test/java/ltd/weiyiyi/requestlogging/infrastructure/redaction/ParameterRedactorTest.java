@@ -0,0 +1,101 @@
+package ltd.weiyiyi.requestlogging.infrastructure.redaction;
+
+import ltd.weiyiyi.requestlogging.infrastructure.compatibility.BoundedCaptureRequestWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ParameterRedactor} 测试
+ *
+ * @author weihan
+ */
+class ParameterRedactorTest {
+    private static final String FORM = "application/x-www-form-urlencoded";
+
+    private final ParameterRedactor redactor = new ParameterRedactor(List.of("password", "token", "Secret"));
+
+    @Test
+    void jsonPrefixCutInsideRedactedValueNeverLeaksIt() {
+        String redacted = redactor.redactJson(bytes("{\"user\":\"bob\",\"password\":\"abc"), 1000, true);
+
+        assertFalse(redacted.contains("abc"), redacted);
+        assertTrue(redacted.startsWith("{\"user\":\"bob\",\"password\":"), redacted);
+        assertTrue(redacted.endsWith("..."), redacted);
+
+        String nested = redactor.redactJson(bytes("{\"auth\":{\"token\":\"eyJhbGciOiJI"), 1000, true);
+        assertFalse(nested.contains("eyJ"), nested);
+    }
+
+    @Test
+    void redactedKeyWithObjectOrArrayValueIsReplacedAsAWhole() {
+        String redacted = redactor.redactJson(
+                bytes("{\"token\":{\"access\":\"a1\",\"refresh\":\"r1\"},\"secret\":[\"s1\",{\"k\":\"s2\"}],\"id\":7}"),
+                1000, false);
+
+        assertEquals("{\"token\":\"*****\",\"secret\":\"*****\",\"id\":7}", redacted);
+    }
+
+    @Test
+    void keysDifferingOnlyInCaseAreAllRedacted() {
+        String json = redactor.redactJson(bytes("{\"PASSWORD\":\"p1\",\"Password\":\"p2\",\"SECRET\":\"s\"}"), 1000, false);
+        assertEquals("{\"PASSWORD\":\"*****\",\"Password\":\"*****\",\"SECRET\":\"*****\"}", json);
+
+        assertEquals("PassWord=*****&TOKEN=*****&q=1", redactor.redactQuery("PassWord=p&TOKEN=t&q=1"));
+        assertTrue(new ParameterRedactor(List.of("token", "TOKEN", " Token ")).isRedacted("tOkEn"));
+    }
+
+    @Test
+    void maxLengthInsideAPairNeverLeaksTheRedactedValue() {
+        byte[] form = bytes("user=bob&password=hunter22&next=%2Fhome");
+        for (int maxLength = 1; maxLength <= 40; maxLength++) {
+            String redacted = redactor.redactBody(form, FORM, maxLength, false);
+            assertFalse(redacted.contains("hunter"), redacted);
+            assertTrue(redacted.length() <= maxLength + 3, redacted);
+        }
+
+        assertEquals("user=bob&pas...", redactor.redactBody(form, FORM, 12, false));
+        assertEquals("user=bob&password=**...", redactor.redactBody(form, FORM, 20, false));
+        assertEquals("user=bob&password=*****&next=%2Fhome", redactor.redactBody(form, FORM, 1000, false));
+    }
+
+    @Test
+    void queryWithoutEqualsSignIsReturnedUnchanged() {
+        assertEquals("password", redactor.redactQuery("password"));
+        assertEquals("debug&verbose", redactor.redactQuery("debug&verbose"));
+        assertEquals("password&token=*****", redactor.redactQuery("password&token=t"));
+        assertEquals("", redactor.redactQuery(""));
+    }
+
+    @Test
+    void formBodyRebuiltFromParametersIsRedacted() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+        request.setContentType(FORM);
+        request.addParameter("user", "bob");
+        request.addParameter("password", "hunter2 & more");
+        request.addParameter("token", "t1", "t2");
+        BoundedCaptureRequestWrapper wrapper = new BoundedCaptureRequestWrapper(request, 1024);
+
+        // 容器解析参数时不经过包装器，请求体只能按参数重建
+        assertEquals("bob", wrapper.getParameter("user"));
+        byte[] content = wrapper.getContentAsByteArray();
+        String redacted = redactor.redactBody(content, wrapper.getContentType(), 1000, wrapper.isContentTruncated());
+
+        assertEquals("user=bob&password=*****&token=*****&token=*****", redacted);
+
+        BoundedCaptureRequestWrapper limited = new BoundedCaptureRequestWrapper(request, 20);
+        limited.getParameterMap();
+        String cut = redactor.redactBody(limited.getContentAsByteArray(), FORM, 1000, limited.isContentTruncated());
+        assertFalse(cut.contains("hunter"), cut);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}